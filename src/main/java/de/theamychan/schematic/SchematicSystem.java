@@ -1,5 +1,6 @@
 package de.theamychan.schematic;
 
+import de.theamychan.schematic.listener.PlayerQuitListener;
 import de.theamychan.schematic.manager.SchematicManager;
 import io.gomint.plugin.Plugin;
 import io.gomint.plugin.PluginName;
@@ -19,12 +20,20 @@ public class SchematicSystem extends Plugin {
     public void onInstall() {
         instance = this;
         schematicManager = new SchematicManager( this );
+        schematicManager.startWatching( true );
+        registerListener( new PlayerQuitListener( schematicManager ) );
 
+        int unfinished = schematicManager.getUnfinishedJobs().size();
+        if ( unfinished > 0 ) {
+            getLogger().info( unfinished + " Schematic Jobs wurden nicht beendet, benutze /schem resume um sie fortzusetzen" );
+        }
     }
 
     @Override
     public void onUninstall() {
-
+        if ( schematicManager != null ) {
+            schematicManager.shutdown();
+        }
     }
 
 }
@@ -0,0 +1,133 @@
+package de.theamychan.schematic.clipboard;
+
+import io.gomint.world.block.Block;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maps the block names used in schematics (the simple class names of the GoMint block
+ * implementations, e.g. "Stone") to small integer ids.
+ */
+public class BlockPalette {
+
+    private final List<String> names;
+    private final Map<String, Integer> ids;
+
+    public BlockPalette() {
+        this.names = new ArrayList<>();
+        this.ids = new HashMap<>();
+    }
+
+    /**
+     * Copy constructor.
+     *
+     * @param other the palette to copy
+     */
+    public BlockPalette( BlockPalette other ) {
+        this.names = new ArrayList<>( other.names );
+        this.ids = new HashMap<>( other.ids );
+    }
+
+    /**
+     * Get the id of the given block name, adding it to the palette if it is not known yet.
+     *
+     * @param name the block name
+     * @return the palette id of the name
+     */
+    public int getOrAdd( String name ) {
+        Integer id = this.ids.get( name );
+        if ( id == null ) {
+            id = this.names.size();
+            this.names.add( name );
+            this.ids.put( name, id );
+        }
+        return id;
+    }
+
+    /**
+     * Get the id of the given block name.
+     *
+     * @param name the block name
+     * @return the palette id or -1 if the name is not part of this palette
+     */
+    public int getId( String name ) {
+        Integer id = this.ids.get( name );
+        return id == null ? -1 : id;
+    }
+
+    public String getName( int id ) {
+        return this.names.get( id );
+    }
+
+    public int size() {
+        return this.names.size();
+    }
+
+    /**
+     * Resolve every entry of this palette to its GoMint block class. Entries which can not be
+     * resolved are left null.
+     *
+     * @return the block classes indexed by palette id
+     */
+    @SuppressWarnings( "unchecked" )
+    public Class<? extends Block>[] resolveTypes() {
+        Class<? extends Block>[] types = new Class[this.names.size()];
+        for (int i = 0; i < types.length; i++) {
+            types[i] = resolveType( this.names.get( i ) );
+        }
+        return types;
+    }
+
+    /**
+     * Get the names of this palette which have no GoMint block. Blocks with these names are
+     * skipped when the clipboard is pasted.
+     *
+     * @return the unresolved names in palette order, empty if every name resolves
+     */
+    public List<String> getUnresolved() {
+        List<String> unresolved = new ArrayList<>();
+        for (String name : this.names) {
+            if ( resolveType( name ) == null ) {
+                unresolved.add( name );
+            }
+        }
+        return unresolved;
+    }
+
+    /**
+     * Resolve a block name to the GoMint API interface of the block.
+     *
+     * @param name the block name, e.g. "Stone"
+     * @return the block class or null if there is no such block
+     */
+    @SuppressWarnings( "unchecked" )
+    public static Class<? extends Block> resolveType( String name ) {
+        try {
+            return (Class<? extends Block>) Class.forName( "io.gomint.world.block.Block" + name );
+        } catch ( ClassNotFoundException e ) {
+            return null;
+        }
+    }
+
+    /**
+     * Turn a block name typed by a player into a schematic name. Both the schematic name and the
+     * name of the GoMint interface are accepted, e.g. "Wool", "wool" and "BlockWool".
+     *
+     * @param input the name typed by the player
+     * @return the schematic name or null if there is no such block
+     */
+    public static String parseName( String input ) {
+        if ( input == null || input.isEmpty() ) {
+            return null;
+        }
+        String name = Character.toUpperCase( input.charAt( 0 ) ) + input.substring( 1 );
+        if ( name.startsWith( "Block" ) && name.length() > 5 && resolveType( name.substring( 5 ) ) != null ) {
+            return name.substring( 5 );
+        }
+        return resolveType( name ) != null ? name : null;
+    }
+
+}
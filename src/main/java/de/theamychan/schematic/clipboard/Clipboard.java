@@ -0,0 +1,266 @@
+package de.theamychan.schematic.clipboard;
+
+import de.theamychan.schematic.util.Region;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A schematic held in memory as a palette and one palette id per block. Blocks are stored
+ * x-fastest, then z, then y, which is the order used by the Sponge and MCEdit formats.
+ */
+public class Clipboard {
+
+    /**
+     * Palette id of a position which is not part of the schematic and is skipped on paste.
+     */
+    public static final int EMPTY = -1;
+
+    @Getter
+    private final int width, height, length;
+    @Getter
+    private final int offsetX, offsetY, offsetZ;
+    @Getter
+    private final BlockPalette palette;
+    private final int[] blocks;
+    private volatile boolean frozen;
+    private PlacementPlan plan;
+
+    /**
+     * Construct an empty Clipboard.
+     *
+     * @param width   size along the X axis
+     * @param height  size along the Y axis
+     * @param length  size along the Z axis
+     * @param offsetX X offset of the lowest corner relative to the paste origin
+     * @param offsetY Y offset of the lowest corner relative to the paste origin
+     * @param offsetZ Z offset of the lowest corner relative to the paste origin
+     */
+    public Clipboard( int width, int height, int length, int offsetX, int offsetY, int offsetZ ) {
+        this( width, height, length, offsetX, offsetY, offsetZ, new BlockPalette(), newBlockArray( width, height, length ) );
+        Arrays.fill( this.blocks, EMPTY );
+    }
+
+    /**
+     * Construct a Clipboard around already decoded block data. The array is not copied.
+     *
+     * @param width   size along the X axis
+     * @param height  size along the Y axis
+     * @param length  size along the Z axis
+     * @param offsetX X offset of the lowest corner relative to the paste origin
+     * @param offsetY Y offset of the lowest corner relative to the paste origin
+     * @param offsetZ Z offset of the lowest corner relative to the paste origin
+     * @param palette the palette the block ids refer to
+     * @param blocks  the palette ids of all blocks
+     */
+    public Clipboard( int width, int height, int length, int offsetX, int offsetY, int offsetZ, BlockPalette palette, int[] blocks ) {
+        if ( blocks.length != (long) width * height * length ) {
+            throw new IllegalArgumentException( "block data does not match the dimensions " + width + "x" + height + "x" + length );
+        }
+        this.width = width;
+        this.height = height;
+        this.length = length;
+        this.offsetX = offsetX;
+        this.offsetY = offsetY;
+        this.offsetZ = offsetZ;
+        this.palette = palette;
+        this.blocks = blocks;
+    }
+
+    static int[] newBlockArray( int width, int height, int length ) {
+        long volume = (long) width * height * length;
+        if ( width < 0 || height < 0 || length < 0 || volume > Integer.MAX_VALUE - 8 ) {
+            throw new IllegalArgumentException( "invalid clipboard dimensions " + width + "x" + height + "x" + length );
+        }
+        return new int[(int) volume];
+    }
+
+    public int getVolume() {
+        return this.blocks.length;
+    }
+
+    public int getIndex( int x, int y, int z ) {
+        return ( y * this.length + z ) * this.width + x;
+    }
+
+    public int getBlock( int index ) {
+        return this.blocks[index];
+    }
+
+    public int getBlock( int x, int y, int z ) {
+        return this.blocks[getIndex( x, y, z )];
+    }
+
+    public void setBlock( int index, int id ) {
+        checkWritable();
+        this.plan = null;
+        this.blocks[index] = id;
+    }
+
+    public void setBlock( int x, int y, int z, int id ) {
+        checkWritable();
+        this.plan = null;
+        this.blocks[getIndex( x, y, z )] = id;
+    }
+
+    /**
+     * Get the placement plan stored with this Clipboard's schematic. Changing a block drops the
+     * plan, since it may no longer fit.
+     *
+     * @return the plan or null if none is known
+     */
+    public PlacementPlan getPlan() {
+        PlacementPlan plan = this.plan;
+        return plan != null && plan.matches( this ) ? plan : null;
+    }
+
+    public void setPlan( PlacementPlan plan ) {
+        checkWritable();
+        this.plan = plan;
+    }
+
+    private void checkWritable() {
+        if ( this.frozen ) {
+            throw new IllegalStateException( "clipboard is shared and can not be modified, edit a copy instead" );
+        }
+    }
+
+    /**
+     * Make this Clipboard read-only so it can be shared between players and threads.
+     *
+     * @return this Clipboard
+     */
+    public Clipboard freeze() {
+        this.frozen = true;
+        return this;
+    }
+
+    public boolean isFrozen() {
+        return this.frozen;
+    }
+
+    /**
+     * Create a modifiable copy of this Clipboard with its own palette.
+     *
+     * @return the copy
+     */
+    public Clipboard copy() {
+        Clipboard copy = new Clipboard( this.width, this.height, this.length, this.offsetX, this.offsetY, this.offsetZ,
+                new BlockPalette( this.palette ), this.blocks.clone() );
+        copy.plan = this.plan;
+        return copy;
+    }
+
+    /**
+     * Set the block at the given position by name.
+     *
+     * @param x    X position inside the clipboard
+     * @param y    Y position inside the clipboard
+     * @param z    Z position inside the clipboard
+     * @param name the block name
+     */
+    public void setBlock( int x, int y, int z, String name ) {
+        checkWritable();
+        setBlock( x, y, z, this.palette.getOrAdd( name ) );
+    }
+
+    /**
+     * Get the area covered by this Clipboard, relative to the paste origin.
+     *
+     * @return the covered area
+     */
+    public Region getRegion() {
+        return new Region( this.offsetX, this.offsetY, this.offsetZ,
+                this.offsetX + this.width - 1, this.offsetY + this.height - 1, this.offsetZ + this.length - 1 );
+    }
+
+    /**
+     * Copy the part of this Clipboard inside the given area. The copy shares the palette unless
+     * this Clipboard is frozen.
+     *
+     * @param region the area to keep, relative to the paste origin
+     * @return the copy or null if the area does not overlap this Clipboard
+     */
+    public Clipboard crop( Region region ) {
+        Region kept = getRegion().intersection( region );
+        if ( kept == null ) {
+            return null;
+        }
+
+        Clipboard result = new Clipboard( kept.getSizeX(), kept.getSizeY(), kept.getSizeZ(),
+                kept.getMinX(), kept.getMinY(), kept.getMinZ(), this.frozen ? new BlockPalette( this.palette ) : this.palette, newBlockArray( kept.getSizeX(), kept.getSizeY(), kept.getSizeZ() ) );
+        int index = 0;
+        for (int y = kept.getMinY(); y <= kept.getMaxY(); y++) {
+            for (int z = kept.getMinZ(); z <= kept.getMaxZ(); z++) {
+                int from = getIndex( kept.getMinX() - this.offsetX, y - this.offsetY, z - this.offsetZ );
+                System.arraycopy( this.blocks, from, result.blocks, index, kept.getSizeX() );
+                index += kept.getSizeX();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Build a Clipboard out of the lines of a schematic in the plugin's own text format.
+     *
+     * @param list lines of the form x~y~z~Name, relative to the paste origin
+     * @return the decoded clipboard
+     */
+    public static Clipboard fromStringlist( List<String> list ) {
+        int size = list.size();
+        int[] xs = new int[size];
+        int[] ys = new int[size];
+        int[] zs = new int[size];
+        String[] names = new String[size];
+        int minX = 0, minY = 0, minZ = 0, maxX = -1, maxY = -1, maxZ = -1;
+
+        for (int i = 0; i < size; i++) {
+            String[] data = list.get( i ).split( "~" );
+            xs[i] = Integer.parseInt( data[0] );
+            ys[i] = Integer.parseInt( data[1] );
+            zs[i] = Integer.parseInt( data[2] );
+            names[i] = data[3];
+            if ( i == 0 ) {
+                minX = maxX = xs[i];
+                minY = maxY = ys[i];
+                minZ = maxZ = zs[i];
+            } else {
+                minX = Math.min( minX, xs[i] );
+                minY = Math.min( minY, ys[i] );
+                minZ = Math.min( minZ, zs[i] );
+                maxX = Math.max( maxX, xs[i] );
+                maxY = Math.max( maxY, ys[i] );
+                maxZ = Math.max( maxZ, zs[i] );
+            }
+        }
+
+        Clipboard clipboard = new Clipboard( maxX - minX + 1, maxY - minY + 1, maxZ - minZ + 1, minX, minY, minZ );
+        for (int i = 0; i < size; i++) {
+            clipboard.setBlock( xs[i] - minX, ys[i] - minY, zs[i] - minZ, names[i] );
+        }
+        return clipboard;
+    }
+
+    /**
+     * Convert this Clipboard into the plugin's own text format.
+     *
+     * @return lines of the form x~y~z~Name, relative to the paste origin
+     */
+    public List<String> toStringlist() {
+        List<String> list = new ArrayList<>();
+        for (int y = 0; y < this.height; y++) {
+            for (int z = 0; z < this.length; z++) {
+                for (int x = 0; x < this.width; x++) {
+                    int id = getBlock( x, y, z );
+                    if ( id != EMPTY ) {
+                        list.add( ( x + this.offsetX ) + "~" + ( y + this.offsetY ) + "~" + ( z + this.offsetZ ) + "~" + this.palette.getName( id ) );
+                    }
+                }
+            }
+        }
+        return list;
+    }
+
+}
@@ -0,0 +1,132 @@
+package de.theamychan.schematic.clipboard;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Keeps one frozen {@link Clipboard} per schematic file version in memory and shares it between
+ * everybody who loaded it. A version is identified by the file's path, size and modification
+ * time, so a changed file is read again while holders of the old version keep their clipboard.
+ * A clipboard is dropped once its last holder has released it, unless it has been preloaded.
+ */
+public class ClipboardCache {
+
+    /**
+     * Number of preloaded clipboards kept without any holder, the oldest is dropped first.
+     */
+    private static final int MAX_PRELOADED = 4;
+
+    private final Map<String, Entry> entries = new HashMap<>();
+    private final Set<String> preloaded = new LinkedHashSet<>();
+
+    /**
+     * Get a holder for the current version of the given file. The file is only read when that
+     * version is not resident yet.
+     *
+     * @param file   the schematic file
+     * @param loader reads the file, may return null if it can not be read
+     * @return a new holder or null if the file could not be read
+     */
+    public ClipboardHolder acquire( File file, Supplier<Clipboard> loader ) {
+        String key = key( file );
+        synchronized ( this ) {
+            Entry entry = this.entries.get( key );
+            if ( entry != null ) {
+                entry.references++;
+                return new ClipboardHolder( this, key, entry.clipboard );
+            }
+        }
+
+        // Read outside of the lock, two players loading the same new file at once read it twice
+        // but only the first result is kept
+        Clipboard clipboard = loader.get();
+        if ( clipboard == null ) {
+            return null;
+        }
+        clipboard.freeze();
+
+        synchronized ( this ) {
+            Entry entry = this.entries.computeIfAbsent( key, k -> new Entry( clipboard ) );
+            entry.references++;
+            return new ClipboardHolder( this, key, entry.clipboard );
+        }
+    }
+
+    private static String key( File file ) {
+        return file.getAbsolutePath() + "@" + file.length() + "@" + file.lastModified();
+    }
+
+    synchronized void release( String key ) {
+        Entry entry = this.entries.get( key );
+        if ( entry != null && --entry.references == 0 && !this.preloaded.contains( key ) ) {
+            this.entries.remove( key );
+        }
+    }
+
+    /**
+     * Decode the current version of a file ahead of time and keep it even while nobody holds it,
+     * so the next load does not have to wait for the file.
+     *
+     * @param file   the schematic file
+     * @param loader reads the file, may return null if it can not be read
+     */
+    public void preload( File file, Supplier<Clipboard> loader ) {
+        ClipboardHolder holder = acquire( file, loader );
+        if ( holder == null ) {
+            return;
+        }
+        synchronized ( this ) {
+            this.preloaded.remove( holder.getKey() );
+            this.preloaded.add( holder.getKey() );
+            if ( this.preloaded.size() > MAX_PRELOADED ) {
+                Iterator<String> oldest = this.preloaded.iterator();
+                String key = oldest.next();
+                oldest.remove();
+                Entry entry = this.entries.get( key );
+                if ( entry != null && entry.references == 0 ) {
+                    this.entries.remove( key );
+                }
+            }
+        }
+        holder.release();
+    }
+
+    /**
+     * Forget every version of the given file. Holders of a removed version keep their clipboard,
+     * but it is not handed out again.
+     *
+     * @param file the schematic file
+     * @return true if a version of the file was resident
+     */
+    public synchronized boolean invalidate( File file ) {
+        String prefix = file.getAbsolutePath() + "@";
+        this.preloaded.removeIf( key -> key.startsWith( prefix ) );
+        return this.entries.keySet().removeIf( key -> key.startsWith( prefix ) );
+    }
+
+    /**
+     * Get the number of schematic versions currently held in memory.
+     *
+     * @return the number of resident clipboards
+     */
+    public synchronized int size() {
+        return this.entries.size();
+    }
+
+    private static class Entry {
+
+        private final Clipboard clipboard;
+        private int references;
+
+        private Entry( Clipboard clipboard ) {
+            this.clipboard = clipboard;
+        }
+
+    }
+
+}
@@ -0,0 +1,217 @@
+package de.theamychan.schematic.clipboard;
+
+import de.theamychan.schematic.jfr.SchematicEvents;
+import de.theamychan.schematic.manager.TickScheduler;
+import de.theamychan.schematic.manager.WorldAccess;
+import de.theamychan.schematic.util.Region;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Copies an area of a world into a {@link Clipboard}. The area is walked chunk column by chunk
+ * column and section by section inside each column, every chunk is looked up once and block
+ * names go straight into the clipboard's palette id array without any per block objects.
+ * {@link #captureAsync} only copies chunk columns on the main thread, a bounded number per tick,
+ * and encodes them on the async threads.
+ */
+public final class ClipboardCapture {
+
+    /**
+     * Positions copied on the main thread per tick by {@link #captureAsync}, one chunk column is
+     * always copied at least.
+     */
+    public static final int SNAPSHOT_POSITIONS_PER_TICK = 65536;
+
+    /**
+     * Copied positions which may wait for encoding before {@link #captureAsync} pauses copying.
+     */
+    public static final int MAX_PENDING_POSITIONS = 4 * SNAPSHOT_POSITIONS_PER_TICK;
+
+    private ClipboardCapture() {
+    }
+
+    /**
+     * Capture the blocks of the given area.
+     *
+     * @param world   the world to read from
+     * @param region  the area to capture
+     * @param originX X co-ordinate the clipboard is relative to
+     * @param originY Y co-ordinate the clipboard is relative to
+     * @param originZ Z co-ordinate the clipboard is relative to
+     * @return the captured clipboard
+     */
+    public static Clipboard capture( WorldAccess world, Region region, int originX, int originY, int originZ ) {
+        Clipboard clipboard = new Clipboard( region.getSizeX(), region.getSizeY(), region.getSizeZ(),
+                region.getMinX() - originX, region.getMinY() - originY, region.getMinZ() - originZ );
+
+        for (int chunkX = region.getMinX() >> 4; chunkX <= region.getMaxX() >> 4; chunkX++) {
+            for (int chunkZ = region.getMinZ() >> 4; chunkZ <= region.getMaxZ() >> 4; chunkZ++) {
+                captureChunk( world.getChunk( chunkX, chunkZ ), chunkX, chunkZ, region, clipboard, clipboard.getPalette() );
+            }
+        }
+        return clipboard;
+    }
+
+    /**
+     * Capture the blocks of the given area on all cores. The area is copied one chunk column at
+     * a time on the main thread, at most {@link #SNAPSHOT_POSITIONS_PER_TICK} positions per tick,
+     * and every copy is handed to the async threads right away. No more than
+     * {@link #MAX_PENDING_POSITIONS} copied positions wait for encoding at any time, so copies
+     * never pile up in memory. Every chunk column is copied within a single tick and is
+     * consistent in itself; only different columns may come from different ticks.
+     *
+     * @param world     the world to read from
+     * @param region    the area to capture
+     * @param originX   X co-ordinate the clipboard is relative to
+     * @param originY   Y co-ordinate the clipboard is relative to
+     * @param originZ   Z co-ordinate the clipboard is relative to
+     * @param scheduler the scheduler to copy and encode the chunks with
+     * @param consumer  called on the main thread with the captured clipboard
+     */
+    public static void captureAsync( WorldAccess world, Region region, int originX, int originY, int originZ,
+                                     TickScheduler scheduler, Consumer<Clipboard> consumer ) {
+        Clipboard clipboard = new Clipboard( region.getSizeX(), region.getSizeY(), region.getSizeZ(),
+                region.getMinX() - originX, region.getMinY() - originY, region.getMinZ() - originZ );
+        AsyncCapture capture = new AsyncCapture( world, region, clipboard, scheduler, consumer );
+        capture.handle = scheduler.scheduleRepeating( capture, 50, TimeUnit.MILLISECONDS );
+    }
+
+    /**
+     * Copies the next chunk columns of an {@link #captureAsync} every tick.
+     */
+    private static final class AsyncCapture implements Runnable {
+
+        private final WorldAccess world;
+        private final Region region;
+        private final Clipboard clipboard;
+        private final TickScheduler scheduler;
+        private final Consumer<Clipboard> consumer;
+        private final int columnsZ, units;
+        private final AtomicInteger remaining;
+        private final AtomicLong pending = new AtomicLong();
+        private TickScheduler.Handle handle;
+        private int next;
+
+        private AsyncCapture( WorldAccess world, Region region, Clipboard clipboard, TickScheduler scheduler, Consumer<Clipboard> consumer ) {
+            this.world = world;
+            this.region = region;
+            this.clipboard = clipboard;
+            this.scheduler = scheduler;
+            this.consumer = consumer;
+            this.columnsZ = ( region.getMaxZ() >> 4 ) - ( region.getMinZ() >> 4 ) + 1;
+            this.units = ( ( region.getMaxX() >> 4 ) - ( region.getMinX() >> 4 ) + 1 ) * this.columnsZ;
+            this.remaining = new AtomicInteger( this.units );
+        }
+
+        @Override
+        public void run() {
+            long taken = 0;
+            while ( this.next < this.units && taken < SNAPSHOT_POSITIONS_PER_TICK && this.pending.get() < MAX_PENDING_POSITIONS ) {
+                int unit = this.next++;
+                int chunkX = ( this.region.getMinX() >> 4 ) + unit / this.columnsZ;
+                int chunkZ = ( this.region.getMinZ() >> 4 ) + unit % this.columnsZ;
+                int fromY = this.region.getMinY(), toY = this.region.getMaxY();
+
+                WorldAccess.ChunkView snapshot = this.world.snapshotChunk( chunkX, chunkZ, fromY, toY );
+                long positions = (long) ( toY - fromY + 1 ) << 8;
+                taken += positions;
+                this.pending.addAndGet( positions );
+                this.scheduler.executeAsync( () -> {
+                    encodeColumn( snapshot, chunkX, chunkZ, fromY, toY, unit, this.region, this.clipboard );
+                    this.pending.addAndGet( -positions );
+                    if ( this.remaining.decrementAndGet() == 0 ) {
+                        this.scheduler.execute( () -> this.consumer.accept( this.clipboard ) );
+                    }
+                } );
+            }
+            if ( this.next >= this.units && this.handle != null ) {
+                this.handle.cancel();
+                this.handle = null;
+            }
+        }
+
+    }
+
+    /**
+     * Encode one chunk column with a palette of its own, so columns can be encoded at the same
+     * time, and then translate its ids to the shared palette.
+     */
+    private static void encodeColumn( WorldAccess.ChunkView snapshot, int chunkX, int chunkZ, int fromY, int toY, int segment,
+                                       Region region, Clipboard clipboard ) {
+        Object event = SchematicEvents.beginSegmentEncode();
+        BlockPalette palette = clipboard.getPalette();
+        BlockPalette local = new BlockPalette();
+        captureChunk( snapshot, chunkX, chunkZ, fromY, toY, region, clipboard, local );
+        int minX = Math.max( region.getMinX(), chunkX << 4 ), maxX = Math.min( region.getMaxX(), ( chunkX << 4 ) + 15 );
+        int minZ = Math.max( region.getMinZ(), chunkZ << 4 ), maxZ = Math.min( region.getMaxZ(), ( chunkZ << 4 ) + 15 );
+
+        int[] ids = new int[local.size()];
+        boolean same = true;
+        synchronized ( palette ) {
+            for (int id = 0; id < ids.length; id++) {
+                ids[id] = palette.getOrAdd( local.getName( id ) );
+                same &= ids[id] == id;
+            }
+        }
+        if ( !same ) {
+            for (int y = fromY; y <= toY; y++) {
+                for (int z = minZ; z <= maxZ; z++) {
+                    int index = clipboard.getIndex( minX - region.getMinX(), y - region.getMinY(), z - region.getMinZ() );
+                    for (int x = minX; x <= maxX; x++, index++) {
+                        clipboard.setBlock( index, ids[clipboard.getBlock( index )] );
+                    }
+                }
+            }
+        }
+
+        if ( SchematicEvents.shouldCommit( event ) ) {
+            SchematicEvents.commitSegment( event, "capture", segment, 0,
+                    (long) ( maxX - minX + 1 ) * ( toY - fromY + 1 ) * ( maxZ - minZ + 1 ) );
+        }
+    }
+
+    /**
+     * Copy the part of the area inside one chunk column into the clipboard.
+     *
+     * @param chunk     the chunk to read from
+     * @param chunkX    the chunk X co-ordinate
+     * @param chunkZ    the chunk Z co-ordinate
+     * @param region    the captured area, in world co-ordinates
+     * @param clipboard the clipboard covering the whole area
+     * @param palette   the palette to resolve block names with
+     */
+    public static void captureChunk( WorldAccess.ChunkView chunk, int chunkX, int chunkZ, Region region, Clipboard clipboard, BlockPalette palette ) {
+        captureChunk( chunk, chunkX, chunkZ, region.getMinY(), region.getMaxY(), region, clipboard, palette );
+    }
+
+    private static void captureChunk( WorldAccess.ChunkView chunk, int chunkX, int chunkZ, int fromY, int toY,
+                                      Region region, Clipboard clipboard, BlockPalette palette ) {
+        int minX = Math.max( region.getMinX(), chunkX << 4 ), maxX = Math.min( region.getMaxX(), ( chunkX << 4 ) + 15 );
+        int minZ = Math.max( region.getMinZ(), chunkZ << 4 ), maxZ = Math.min( region.getMaxZ(), ( chunkZ << 4 ) + 15 );
+
+        // Consecutive blocks are very often of the same type, names are canonical instances
+        String lastName = null;
+        int lastId = Clipboard.EMPTY;
+
+        for (int section = fromY >> 4; section <= toY >> 4; section++) {
+            int minY = Math.max( fromY, section << 4 ), maxY = Math.min( toY, ( section << 4 ) + 15 );
+            for (int y = minY; y <= maxY; y++) {
+                for (int z = minZ; z <= maxZ; z++) {
+                    int index = clipboard.getIndex( minX - region.getMinX(), y - region.getMinY(), z - region.getMinZ() );
+                    for (int x = minX; x <= maxX; x++, index++) {
+                        String name = chunk.getBlockName( x & 15, y, z & 15 );
+                        if ( name != lastName ) {
+                            lastName = name;
+                            lastId = palette.getOrAdd( name );
+                        }
+                        clipboard.setBlock( index, lastId );
+                    }
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,76 @@
+package de.theamychan.schematic.clipboard;
+
+/**
+ * A player's reference to a clipboard. Loaded schematics start out as the shared, frozen clipboard
+ * of the {@link ClipboardCache}; the first call to {@link #edit()} replaces it with a private copy.
+ */
+public class ClipboardHolder {
+
+    private final ClipboardCache cache;
+    private final String key;
+    private Clipboard clipboard;
+    private boolean shared;
+
+    ClipboardHolder( ClipboardCache cache, String key, Clipboard clipboard ) {
+        this.cache = cache;
+        this.key = key;
+        this.clipboard = clipboard;
+        this.shared = true;
+    }
+
+    /**
+     * Wrap a clipboard which belongs to a single player only.
+     *
+     * @param clipboard the clipboard
+     */
+    public ClipboardHolder( Clipboard clipboard ) {
+        this.cache = null;
+        this.key = null;
+        this.clipboard = clipboard;
+        this.shared = false;
+    }
+
+    /**
+     * Get the clipboard for reading. It must not be modified, use {@link #edit()} for that.
+     *
+     * @return the clipboard
+     */
+    public synchronized Clipboard get() {
+        return this.clipboard;
+    }
+
+    /**
+     * Get a clipboard which may be modified. A shared clipboard is copied on the first call and
+     * the shared instance is released.
+     *
+     * @return the private clipboard
+     */
+    public synchronized Clipboard edit() {
+        if ( this.shared ) {
+            this.clipboard = this.clipboard.copy();
+            this.shared = false;
+            this.cache.release( this.key );
+        }
+        return this.clipboard;
+    }
+
+    String getKey() {
+        return this.key;
+    }
+
+    public synchronized boolean isShared() {
+        return this.shared;
+    }
+
+    /**
+     * Give up this reference. Must be called exactly once when the holder is no longer needed.
+     */
+    public synchronized void release() {
+        if ( this.shared ) {
+            this.shared = false;
+            this.cache.release( this.key );
+        }
+        this.clipboard = null;
+    }
+
+}
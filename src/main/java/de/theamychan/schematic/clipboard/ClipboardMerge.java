@@ -0,0 +1,151 @@
+package de.theamychan.schematic.clipboard;
+
+import de.theamychan.schematic.util.Region;
+
+import java.util.stream.IntStream;
+
+/**
+ * Combines two clipboards without a world. Both palettes are merged up front, afterwards the
+ * result is filled in independent 16x16x16 tiles on all cores using nothing but palette ids.
+ * Air counts as a defined but not solid block: it is kept where nothing solid competes with it,
+ * but never wins against a solid block and never cuts anything away.
+ */
+public final class ClipboardMerge {
+
+    public enum Operation {
+        /**
+         * Blocks of both clipboards, the first one wins where both have a solid block.
+         */
+        UNION,
+        /**
+         * Blocks of both clipboards, the second one is laid over the first one.
+         */
+        OVERLAY,
+        /**
+         * Blocks of the first clipboard which are not covered by a solid block of the second one.
+         */
+        SUBTRACT,
+        /**
+         * Blocks of the first clipboard where both clipboards have a solid block.
+         */
+        INTERSECT
+    }
+
+    private static final String AIR = "Air";
+    private static final int TILE_SIZE = 16;
+
+    private ClipboardMerge() {
+    }
+
+    /**
+     * Combine two clipboards.
+     *
+     * @param first     the first clipboard
+     * @param second    the second clipboard
+     * @param offsetX   X offset of the second clipboard relative to the first one's paste origin
+     * @param offsetY   Y offset of the second clipboard relative to the first one's paste origin
+     * @param offsetZ   Z offset of the second clipboard relative to the first one's paste origin
+     * @param operation how the clipboards are combined
+     * @return the combined clipboard, relative to the first one's paste origin, or null if an
+     * intersection of two disjoint clipboards was requested
+     */
+    public static Clipboard merge( Clipboard first, Clipboard second, int offsetX, int offsetY, int offsetZ, Operation operation ) {
+        Region a = first.getRegion();
+        Region b = second.getRegion().shift( offsetX, offsetY, offsetZ );
+        Region bounds = getBounds( a, b, operation );
+        if ( bounds == null ) {
+            return null;
+        }
+
+        Clipboard result = new Clipboard( bounds.getSizeX(), bounds.getSizeY(), bounds.getSizeZ(),
+                bounds.getMinX(), bounds.getMinY(), bounds.getMinZ() );
+        int[] idsA = translate( first.getPalette(), result.getPalette() );
+        int[] idsB = translate( second.getPalette(), result.getPalette() );
+        int airA = first.getPalette().getId( AIR );
+        int airB = second.getPalette().getId( AIR );
+
+        int tilesX = ( bounds.getSizeX() + TILE_SIZE - 1 ) / TILE_SIZE;
+        int tilesY = ( bounds.getSizeY() + TILE_SIZE - 1 ) / TILE_SIZE;
+        int tilesZ = ( bounds.getSizeZ() + TILE_SIZE - 1 ) / TILE_SIZE;
+        IntStream.range( 0, tilesX * tilesY * tilesZ ).parallel().forEach( tile -> {
+            int fromX = bounds.getMinX() + tile % tilesX * TILE_SIZE;
+            int fromZ = bounds.getMinZ() + tile / tilesX % tilesZ * TILE_SIZE;
+            int fromY = bounds.getMinY() + tile / tilesX / tilesZ * TILE_SIZE;
+            int toX = Math.min( bounds.getMaxX(), fromX + TILE_SIZE - 1 );
+            int toY = Math.min( bounds.getMaxY(), fromY + TILE_SIZE - 1 );
+            int toZ = Math.min( bounds.getMaxZ(), fromZ + TILE_SIZE - 1 );
+
+            for (int y = fromY; y <= toY; y++) {
+                for (int z = fromZ; z <= toZ; z++) {
+                    int index = result.getIndex( fromX - bounds.getMinX(), y - bounds.getMinY(), z - bounds.getMinZ() );
+                    for (int x = fromX; x <= toX; x++, index++) {
+                        int idA = a.contains( x, y, z ) ? first.getBlock( x - a.getMinX(), y - a.getMinY(), z - a.getMinZ() ) : Clipboard.EMPTY;
+                        int idB = b.contains( x, y, z ) ? second.getBlock( x - b.getMinX(), y - b.getMinY(), z - b.getMinZ() ) : Clipboard.EMPTY;
+                        boolean solidA = idA != Clipboard.EMPTY && idA != airA;
+                        boolean solidB = idB != Clipboard.EMPTY && idB != airB;
+                        int valueA = idA == Clipboard.EMPTY ? Clipboard.EMPTY : idsA[idA];
+                        int valueB = idB == Clipboard.EMPTY ? Clipboard.EMPTY : idsB[idB];
+
+                        int id;
+                        switch ( operation ) {
+                            case UNION:
+                                id = pick( valueA, solidA, valueB, solidB );
+                                break;
+                            case OVERLAY:
+                                id = pick( valueB, solidB, valueA, solidA );
+                                break;
+                            case SUBTRACT:
+                                id = solidB ? Clipboard.EMPTY : valueA;
+                                break;
+                            default:
+                                id = solidA && solidB ? valueA : Clipboard.EMPTY;
+                                break;
+                        }
+                        result.setBlock( index, id );
+                    }
+                }
+            }
+        } );
+        return result;
+    }
+
+    /**
+     * Get the area the result of a merge covers. The result is allocated as a whole, so this is
+     * what a merge costs no matter how many blocks the clipboards actually hold.
+     *
+     * @param first     the area of the first clipboard
+     * @param second    the area of the second clipboard, already shifted by the offset
+     * @param operation how the clipboards are combined
+     * @return the area of the result, or null if an intersection of two disjoint areas was requested
+     */
+    public static Region getBounds( Region first, Region second, Operation operation ) {
+        switch ( operation ) {
+            case SUBTRACT:
+                return first;
+            case INTERSECT:
+                return first.intersection( second );
+            default:
+                return first.union( second );
+        }
+    }
+
+    private static int[] translate( BlockPalette from, BlockPalette to ) {
+        int[] ids = new int[from.size()];
+        for (int id = 0; id < ids.length; id++) {
+            ids[id] = to.getOrAdd( from.getName( id ) );
+        }
+        return ids;
+    }
+
+    /**
+     * Take the preferred block if it is solid, then the other one if it is solid, then whichever
+     * is defined.
+     */
+    private static int pick( int preferred, boolean preferredSolid, int other, boolean otherSolid ) {
+        if ( preferredSolid || ( !otherSolid && preferred != Clipboard.EMPTY ) ) {
+            return preferred;
+        }
+        return other;
+    }
+
+}
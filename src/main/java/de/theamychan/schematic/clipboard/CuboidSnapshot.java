@@ -0,0 +1,156 @@
+package de.theamychan.schematic.clipboard;
+
+import de.theamychan.schematic.manager.TickScheduler;
+import de.theamychan.schematic.manager.WorldAccess;
+import de.theamychan.schematic.util.BlockPositions;
+import de.theamychan.schematic.util.Cuboid;
+import de.theamychan.schematic.util.Region;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+/**
+ * Immutable copy of the blocks inside a {@link Cuboid}. The snapshot is taken chunk by chunk on
+ * the main thread, {@link #takeAsync} spreads this over as many ticks as the size of the cuboid
+ * needs. Afterwards it can be searched and counted from any number of threads at once. All
+ * queries run as parallel streams over the chunk aligned positions of the cuboid.
+ */
+public class CuboidSnapshot {
+
+    private final Cuboid cuboid;
+    private final Region region;
+    private final Clipboard clipboard;
+    private final BlockPalette palette;
+
+    private CuboidSnapshot( Cuboid cuboid, Clipboard clipboard ) {
+        this.cuboid = cuboid;
+        this.region = cuboid.getRegion();
+        this.clipboard = clipboard;
+        this.palette = clipboard.getPalette();
+    }
+
+    /**
+     * Copy the blocks of the given area. Must be called on the main thread.
+     *
+     * @param world  the world to read from
+     * @param cuboid the area to copy
+     * @return the snapshot
+     */
+    public static CuboidSnapshot take( WorldAccess world, Cuboid cuboid ) {
+        Region region = cuboid.getRegion();
+        return new CuboidSnapshot( cuboid, ClipboardCapture.capture( world, region, region.getMinX(), region.getMinY(), region.getMinZ() ) );
+    }
+
+    /**
+     * Copy the blocks of the given area through
+     * {@link ClipboardCapture#captureAsync(WorldAccess, Region, int, int, int, TickScheduler, Consumer)},
+     * so the main thread only copies a bounded number of chunks per tick. Must be called on the
+     * main thread.
+     *
+     * @param world     the world to read from
+     * @param cuboid    the area to copy
+     * @param scheduler the scheduler to copy the chunks with
+     * @param consumer  called on the main thread with the snapshot
+     */
+    public static void takeAsync( WorldAccess world, Cuboid cuboid, TickScheduler scheduler, Consumer<CuboidSnapshot> consumer ) {
+        Region region = cuboid.getRegion();
+        ClipboardCapture.captureAsync( world, region, region.getMinX(), region.getMinY(), region.getMinZ(), scheduler,
+                clipboard -> consumer.accept( new CuboidSnapshot( cuboid, clipboard ) ) );
+    }
+
+    public Cuboid getCuboid() {
+        return cuboid;
+    }
+
+    public long getVolume() {
+        return clipboard.getVolume();
+    }
+
+    /**
+     * Get the name of the block at the given world co-ordinates.
+     *
+     * @param x the X co-ordinate
+     * @param y the Y co-ordinate
+     * @param z the Z co-ordinate
+     * @return the block name or null when the co-ordinates are outside of the snapshot
+     */
+    public String getBlockName( int x, int y, int z ) {
+        if ( !region.contains( x, y, z ) ) {
+            return null;
+        }
+        return palette.getName( clipboard.getBlock( (int) region.getIndex( x, y, z ) ) );
+    }
+
+    private int getBlockId( long position ) {
+        return clipboard.getBlock( (int) region.getIndex( BlockPositions.unpackX( position ),
+                BlockPositions.unpackY( position ), BlockPositions.unpackZ( position ) ) );
+    }
+
+    /**
+     * Count the blocks of the given type.
+     *
+     * @param name the block name, e.g. "Stone"
+     * @return the amount of blocks of this type
+     */
+    public long count( String name ) {
+        int id = palette.getId( name );
+        if ( id == Clipboard.EMPTY ) {
+            return 0;
+        }
+        return region.positions().parallel().filter( position -> getBlockId( position ) == id ).count();
+    }
+
+    /**
+     * Find any block of the given type.
+     *
+     * @param name the block name
+     * @return the packed position of a matching block, see {@link BlockPositions}
+     */
+    public OptionalLong find( String name ) {
+        int id = palette.getId( name );
+        if ( id == Clipboard.EMPTY ) {
+            return OptionalLong.empty();
+        }
+        return region.positions().parallel().filter( position -> getBlockId( position ) == id ).findAny();
+    }
+
+    /**
+     * Check if the snapshot only consists of the given type.
+     *
+     * @param name the block name
+     * @return true when every block is of this type
+     */
+    public boolean containsOnly( String name ) {
+        int id = palette.getId( name );
+        return id != Clipboard.EMPTY && region.positions().parallel().allMatch( position -> getBlockId( position ) == id );
+    }
+
+    /**
+     * Count every block type in the snapshot.
+     *
+     * @return block names mapped to their amount, most frequent first
+     */
+    public Map<String, Long> countAll() {
+        int size = palette.size();
+        long[] counts = region.positions().parallel().collect(
+                () -> new long[size],
+                ( result, position ) -> result[getBlockId( position )]++,
+                ( left, right ) -> {
+                    for (int i = 0; i < size; i++) {
+                        left[i] += right[i];
+                    }
+                } );
+
+        Map<String, Long> result = new LinkedHashMap<>();
+        IntStream.range( 0, size )
+                .filter( id -> counts[id] > 0 )
+                .boxed()
+                .sorted( ( a, b ) -> Long.compare( counts[b], counts[a] ) )
+                .forEachOrdered( id -> result.put( palette.getName( id ), counts[id] ) );
+        return result;
+    }
+
+}
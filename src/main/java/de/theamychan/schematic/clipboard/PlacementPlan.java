@@ -0,0 +1,262 @@
+package de.theamychan.schematic.clipboard;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * The order in which the blocks of a {@link Clipboard} are placed. The clipboard is cut into
+ * 16x16x16 tiles, which are placed column by column and bottom to top, so consecutive blocks stay
+ * in the same few chunks and sections. Blocks are placed in phases: everything which can stand on
+ * its own first, then blocks which need a neighbour to hold them (torches, ladders, plants, ...)
+ * and fluids last, so nothing pops off or flows away before its support exists.
+ * <p>
+ * A paste walks the plan as a sequence of steps: column by column, every phase visits all tiles of
+ * the column before the next column starts, and every tile has {@link #CELLS} cells in x, z, y
+ * order. The chunks under a column are therefore done in one go instead of once per phase. Tiles
+ * without blocks of the current phase are skipped as a whole.
+ */
+public final class PlacementPlan {
+
+    public static final int TILE_SIZE = 16;
+    public static final int CELLS = TILE_SIZE * TILE_SIZE * TILE_SIZE;
+
+    public static final int SUPPORT = 0;
+    public static final int ATTACHED = 1;
+    public static final int FLUID = 2;
+    public static final int PHASES = 3;
+
+    private static final Set<String> ATTACHED_BLOCKS = new HashSet<>( Arrays.asList(
+            "Ladder", "Lever", "Vines", "TallGrass", "Dandelion", "Cactus", "SugarCane", "RedstoneWire", "Tripwire",
+            "TripwireHook", "SnowLayer", "Wheat", "Carrots", "Potatoes", "Beetroot", "Bed", "Sand", "Gravel", "DeadBush",
+            "Fern", "LilyPad", "NetherWart", "Cocoa", "RedstoneRepeater", "RedstoneComparator", "Anvil" ) );
+    private static final String[] ATTACHED_SUFFIXES = {
+            "Torch", "Door", "Trapdoor", "Button", "Rail", "Sign", "Carpet", "Sapling", "Mushroom", "Flower", "Banner", "PressurePlate" };
+
+    private final int width, height, length;
+    private final int tilesX, tilesZ;
+    private final int[] tiles;
+    private final byte[] tilePhases;
+    private final byte[] phases;
+    private final int[] columnStart;
+    private final int[] columnSize;
+
+    private PlacementPlan( int width, int height, int length, int[] tiles, byte[] tilePhases, byte[] phases ) {
+        this.width = width;
+        this.height = height;
+        this.length = length;
+        this.tilesX = tiles( width );
+        this.tilesZ = tiles( length );
+        this.tiles = tiles;
+        this.tilePhases = tilePhases;
+        this.phases = phases;
+
+        // Entries of a column are adjacent, see compute()
+        this.columnStart = new int[tiles.length];
+        this.columnSize = new int[tiles.length];
+        int columns = this.tilesX * this.tilesZ;
+        for (int start = 0, end; start < tiles.length; start = end) {
+            end = start + 1;
+            while ( end < tiles.length && tiles[end] % columns == tiles[start] % columns ) {
+                end++;
+            }
+            for (int entry = start; entry < end; entry++) {
+                this.columnStart[entry] = start;
+                this.columnSize[entry] = end - start;
+            }
+        }
+    }
+
+    /**
+     * Compute the plan of a clipboard. Tiles which only contain empty positions are left out.
+     *
+     * @param clipboard the clipboard to plan
+     * @return the plan
+     */
+    public static PlacementPlan compute( Clipboard clipboard ) {
+        BlockPalette palette = clipboard.getPalette();
+        byte[] phases = new byte[palette.size()];
+        for (int id = 0; id < phases.length; id++) {
+            phases[id] = (byte) getPhase( palette.getName( id ) );
+        }
+
+        int tilesX = tiles( clipboard.getWidth() ), tilesY = tiles( clipboard.getHeight() ), tilesZ = tiles( clipboard.getLength() );
+        int[] tiles = new int[tilesX * tilesY * tilesZ];
+        byte[] tilePhases = new byte[tiles.length];
+        int entries = 0;
+        for (int tz = 0; tz < tilesZ; tz++) {
+            for (int tx = 0; tx < tilesX; tx++) {
+                for (int ty = 0; ty < tilesY; ty++) {
+                    int mask = 0;
+                    for (int y = ty * TILE_SIZE; y < Math.min( clipboard.getHeight(), ( ty + 1 ) * TILE_SIZE ); y++) {
+                        for (int z = tz * TILE_SIZE; z < Math.min( clipboard.getLength(), ( tz + 1 ) * TILE_SIZE ); z++) {
+                            int index = clipboard.getIndex( tx * TILE_SIZE, y, z );
+                            for (int x = tx * TILE_SIZE; x < Math.min( clipboard.getWidth(), ( tx + 1 ) * TILE_SIZE ); x++, index++) {
+                                int id = clipboard.getBlock( index );
+                                if ( id != Clipboard.EMPTY ) {
+                                    mask |= 1 << phases[id];
+                                }
+                            }
+                        }
+                    }
+                    if ( mask != 0 ) {
+                        tiles[entries] = ( ty * tilesZ + tz ) * tilesX + tx;
+                        tilePhases[entries] = (byte) mask;
+                        entries++;
+                    }
+                }
+            }
+        }
+        return new PlacementPlan( clipboard.getWidth(), clipboard.getHeight(), clipboard.getLength(),
+                Arrays.copyOf( tiles, entries ), Arrays.copyOf( tilePhases, entries ), phases );
+    }
+
+    /**
+     * Get the phase a block is placed in.
+     *
+     * @param name the block name, e.g. "Torch"
+     * @return {@link #SUPPORT}, {@link #ATTACHED} or {@link #FLUID}
+     */
+    public static int getPhase( String name ) {
+        if ( name.endsWith( "Water" ) || name.endsWith( "Lava" ) ) {
+            return FLUID;
+        }
+        if ( ATTACHED_BLOCKS.contains( name ) ) {
+            return ATTACHED;
+        }
+        for (String suffix : ATTACHED_SUFFIXES) {
+            if ( name.endsWith( suffix ) ) {
+                return ATTACHED;
+            }
+        }
+        return SUPPORT;
+    }
+
+    private static int tiles( int size ) {
+        return ( size + TILE_SIZE - 1 ) / TILE_SIZE;
+    }
+
+    /**
+     * Check if this plan was made for a clipboard of the same size and palette.
+     *
+     * @param clipboard the clipboard to check
+     * @return true if the plan can be used to place the clipboard
+     */
+    public boolean matches( Clipboard clipboard ) {
+        return clipboard.getWidth() == this.width && clipboard.getHeight() == this.height && clipboard.getLength() == this.length
+                && clipboard.getPalette().size() == this.phases.length;
+    }
+
+    /**
+     * Get the number of steps needed to walk the whole plan.
+     *
+     * @return the number of steps
+     */
+    public long getSteps() {
+        return (long) PHASES * this.tiles.length * CELLS;
+    }
+
+    public int getEntries() {
+        return this.tiles.length;
+    }
+
+    /**
+     * Get the entry a tile step of the plan places. The steps of a column with n entries are its
+     * n tiles in the first phase, the same tiles in the second phase and so on.
+     *
+     * @param tile the step divided by {@link #CELLS}
+     * @return the entry of the tile
+     */
+    public int getEntryOfTile( long tile ) {
+        int entry = (int) ( tile / PHASES );
+        int start = this.columnStart[entry];
+        return start + (int) ( ( tile - (long) PHASES * start ) % this.columnSize[entry] );
+    }
+
+    /**
+     * Get the phase a tile step of the plan places.
+     *
+     * @param tile the step divided by {@link #CELLS}
+     * @return {@link #SUPPORT}, {@link #ATTACHED} or {@link #FLUID}
+     */
+    public int getPhaseOfTile( long tile ) {
+        int entry = (int) ( tile / PHASES );
+        int start = this.columnStart[entry];
+        return (int) ( ( tile - (long) PHASES * start ) / this.columnSize[entry] );
+    }
+
+    public int getPhaseOfBlock( int id ) {
+        return this.phases[id];
+    }
+
+    public boolean hasPhase( int entry, int phase ) {
+        return ( this.tilePhases[entry] & ( 1 << phase ) ) != 0;
+    }
+
+    public int getTileX( int entry ) {
+        return this.tiles[entry] % this.tilesX * TILE_SIZE;
+    }
+
+    public int getTileY( int entry ) {
+        return this.tiles[entry] / this.tilesX / this.tilesZ * TILE_SIZE;
+    }
+
+    public int getTileZ( int entry ) {
+        return this.tiles[entry] / this.tilesX % this.tilesZ * TILE_SIZE;
+    }
+
+    /**
+     * Write the plan as part of a tiled schematic.
+     *
+     * @param output the output to write to
+     * @throws IOException if the plan can not be written
+     */
+    public void write( DataOutput output ) throws IOException {
+        output.writeInt( this.tiles.length );
+        for (int entry = 0; entry < this.tiles.length; entry++) {
+            output.writeInt( this.tiles[entry] );
+            output.writeByte( this.tilePhases[entry] );
+        }
+        output.write( this.phases );
+    }
+
+    /**
+     * Read a plan written by {@link #write(DataOutput)}.
+     *
+     * @param input   the input to read from
+     * @param width   the width of the schematic
+     * @param height  the height of the schematic
+     * @param length  the length of the schematic
+     * @param palette the palette of the schematic
+     * @return the plan
+     * @throws IOException if the plan can not be read or does not fit the schematic
+     */
+    public static PlacementPlan read( DataInput input, int width, int height, int length, BlockPalette palette ) throws IOException {
+        int entries = input.readInt();
+        int maxTiles = tiles( width ) * tiles( height ) * tiles( length );
+        if ( entries < 0 || entries > maxTiles ) {
+            throw new IOException( "Corrupted placement plan" );
+        }
+        int[] tiles = new int[entries];
+        byte[] tilePhases = new byte[entries];
+        for (int entry = 0; entry < entries; entry++) {
+            tiles[entry] = input.readInt();
+            tilePhases[entry] = input.readByte();
+            if ( tiles[entry] < 0 || tiles[entry] >= maxTiles ) {
+                throw new IOException( "Corrupted placement plan" );
+            }
+        }
+        byte[] phases = new byte[palette.size()];
+        input.readFully( phases );
+        for (byte phase : phases) {
+            if ( phase < 0 || phase >= PHASES ) {
+                throw new IOException( "Corrupted placement plan" );
+            }
+        }
+        return new PlacementPlan( width, height, length, tiles, tilePhases, phases );
+    }
+
+}
@@ -0,0 +1,52 @@
+package de.theamychan.schematic.command;
+
+import de.theamychan.schematic.manager.AdmissionControl;
+import de.theamychan.schematic.manager.JobCost;
+import io.gomint.command.CommandOutput;
+import io.gomint.command.CommandSender;
+
+/**
+ * Messages for jobs which went through the {@link AdmissionControl}.
+ */
+final class AdmissionOutput {
+
+    private AdmissionOutput() {
+    }
+
+    static CommandOutput apply( CommandOutput output, AdmissionControl.Admission admission, JobCost cost ) {
+        String message = message( admission, cost );
+        if ( message == null ) {
+            return output;
+        }
+        return admission == AdmissionControl.Admission.QUEUED ? output.success( message ) : output.fail( message );
+    }
+
+    /**
+     * Tell the sender how a job was admitted, for jobs which are submitted after the command has
+     * already returned.
+     */
+    static void send( CommandSender commandSender, AdmissionControl.Admission admission, JobCost cost ) {
+        String message = message( admission, cost );
+        if ( message != null ) {
+            commandSender.sendMessage( message );
+        }
+    }
+
+    private static String message( AdmissionControl.Admission admission, JobCost cost ) {
+        switch ( admission ) {
+            case QUEUED:
+                return "Der Server ist gerade ausgelastet, dein Auftrag startet sobald genug Speicher frei ist.";
+            case TOO_LARGE:
+                return "Der Auftrag ist zu groß! (" + cost.getVolume() + " Blöcke, etwa " + ( cost.getBytes() >> 20 ) + " MB)";
+            case BUSY:
+                return "Der Server hat gerade zu wenig freien Speicher, versuche es später erneut!";
+            default:
+                return null;
+        }
+    }
+
+    static Runnable cancelled( CommandSender commandSender ) {
+        return () -> commandSender.sendMessage( "Dein Auftrag wurde abgebrochen, der Server hat zu wenig freien Speicher!" );
+    }
+
+}
@@ -0,0 +1,57 @@
+package de.theamychan.schematic.command;
+
+import de.theamychan.schematic.SchematicSystem;
+import de.theamychan.schematic.manager.AdmissionControl;
+import de.theamychan.schematic.manager.JobCost;
+import de.theamychan.schematic.manager.SchematicManager;
+import de.theamychan.schematic.util.Cuboid;
+import io.gomint.command.Command;
+import io.gomint.command.CommandOutput;
+import io.gomint.command.CommandSender;
+import io.gomint.command.PlayerCommandSender;
+import io.gomint.command.annotation.Description;
+import io.gomint.command.annotation.Name;
+import io.gomint.command.annotation.Permission;
+import io.gomint.entity.EntityPlayer;
+import io.gomint.math.Location;
+
+import java.util.Map;
+
+@Name("schem analyze")
+@Description("Zähle die Blöcke in deiner Auswahl")
+@Permission( "schematic.analyze" )
+public class CommandAnalyze extends Command {
+
+    private static final int MAX_LINES = 10;
+
+    @Override
+    public CommandOutput execute( CommandSender commandSender, String alias, Map<String, Object> arguments ) {
+        CommandOutput output = new CommandOutput();
+
+        if(commandSender instanceof PlayerCommandSender ){
+            EntityPlayer player = (EntityPlayer) commandSender;
+
+            SchematicManager manager = SchematicSystem.getInstance().getSchematicManager();
+            Location loc1 = manager.getLoc1().get( player );
+            Location loc2 = manager.getLoc2().get( player );
+            if(loc1 == null || loc2 == null){
+                return output.fail( "Bitte setze zuerst beide Positionen!" );
+            }
+
+            JobCost cost = JobCost.capture( new Cuboid( loc1, loc2 ).getRegion() );
+            AdmissionControl.Admission admission = manager.getAdmissionControl().submit( player, cost, ticket ->
+                    manager.analyze( loc1, loc2, counts -> {
+                        ticket.release();
+                        commandSender.sendMessage( "Die Auswahl enthält " + counts.size() + " verschiedene Blöcke:" );
+                        counts.entrySet().stream().limit( MAX_LINES ).forEach( entry ->
+                                commandSender.sendMessage( "- " + entry.getKey() + ": " + entry.getValue() ) );
+                    } ), AdmissionOutput.cancelled( commandSender ) );
+            if(admission == AdmissionControl.Admission.STARTED){
+                return output.success( "Die Auswahl wird analysiert..." );
+            }
+            return AdmissionOutput.apply( output, admission, cost );
+        }
+
+        return output;
+    }
+}
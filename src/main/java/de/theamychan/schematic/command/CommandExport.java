@@ -0,0 +1,36 @@
+package de.theamychan.schematic.command;
+
+import de.theamychan.schematic.SchematicSystem;
+import io.gomint.command.Command;
+import io.gomint.command.CommandOutput;
+import io.gomint.command.CommandSender;
+import io.gomint.command.annotation.*;
+import io.gomint.command.validator.StringValidator;
+
+import java.util.Map;
+
+@Name("schem export")
+@Description("Exportiere ein Schematic als Sponge oder MCEdit Datei")
+@Permission( "schematic.export" )
+@Overload({
+        @Parameter( name = "name", validator = StringValidator.class, arguments = {".*"} ),
+        @Parameter( name = "format", validator = StringValidator.class, arguments = {"sponge|mcedit"}, optional = true )
+})
+public class CommandExport extends Command {
+
+    @Override
+    public CommandOutput execute( CommandSender commandSender, String alias, Map<String, Object> arguments ) {
+        CommandOutput output = new CommandOutput();
+
+        String name = (String) arguments.get( "name" );
+        String format = (String) arguments.getOrDefault( "format", "sponge" );
+
+        if(SchematicSystem.getInstance().getSchematicManager().export( name, format ) ){
+            output.success( "Das Schematic wurde erfolgreich exportiert!" );
+        }else{
+            output.fail( "Das Schematic konnte nicht exportiert werden!" );
+        }
+
+        return output;
+    }
+}
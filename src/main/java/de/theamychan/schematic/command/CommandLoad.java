@@ -1,6 +1,9 @@
 package de.theamychan.schematic.command;
 
 import de.theamychan.schematic.SchematicSystem;
+import de.theamychan.schematic.manager.AdmissionControl;
+import de.theamychan.schematic.manager.JobCost;
+import de.theamychan.schematic.manager.SchematicManager;
 import io.gomint.command.Command;
 import io.gomint.command.CommandOutput;
 import io.gomint.command.CommandSender;
@@ -9,6 +12,7 @@ import io.gomint.command.annotation.*;
 import io.gomint.command.validator.StringValidator;
 import io.gomint.entity.EntityPlayer;
 
+import java.util.List;
 import java.util.Map;
 
 @Name("schem load")
@@ -27,11 +31,26 @@ public class CommandLoad extends Command {
             EntityPlayer player = (EntityPlayer) commandSender;
             String name = (String) arguments.get( "name" );
 
-            if(SchematicSystem.getInstance().getSchematicManager().load( name, player ) ){
-                output.success( "Das Schematic wurde erfolgreich geladen!" );
-            }else{
-                output.fail( "Das Schematic konnte nicht geladen werden!" );
+            SchematicManager manager = SchematicSystem.getInstance().getSchematicManager();
+            JobCost cost = manager.estimateLoad( name );
+            if(cost == null){
+                return output.fail( "Das Schematic konnte nicht geladen werden!" );
             }
+
+            AdmissionControl.Admission admission = manager.getAdmissionControl().submit( player, cost, ticket ->
+                    manager.loadAsync( name, player, success -> {
+                        ticket.release();
+                        if(success){
+                            commandSender.sendMessage( "Das Schematic wurde erfolgreich geladen!" );
+                            List<String> unresolved = manager.getSchematics().get( player ).get().getPalette().getUnresolved();
+                            if(!unresolved.isEmpty()){
+                                commandSender.sendMessage( "Unbekannte Blöcke werden beim Setzen übersprungen: " + String.join( ", ", unresolved ) );
+                            }
+                        }else{
+                            commandSender.sendMessage( "Das Schematic konnte nicht geladen werden!" );
+                        }
+                    } ), AdmissionOutput.cancelled( commandSender ) );
+            return AdmissionOutput.apply( output, admission, cost );
         }
 
         return output;
@@ -0,0 +1,82 @@
+package de.theamychan.schematic.command;
+
+import de.theamychan.schematic.SchematicSystem;
+import de.theamychan.schematic.clipboard.ClipboardMerge;
+import de.theamychan.schematic.manager.AdmissionControl;
+import de.theamychan.schematic.manager.SchematicManager;
+import io.gomint.command.Command;
+import io.gomint.command.CommandOutput;
+import io.gomint.command.CommandSender;
+import io.gomint.command.annotation.*;
+import io.gomint.command.validator.StringValidator;
+
+import java.util.Locale;
+import java.util.Map;
+
+@Name("schem merge")
+@Description("Kombiniere zwei Schematics zu einem neuen")
+@Permission( "schematic.merge" )
+@Overload({
+        @Parameter( name = "operation", validator = StringValidator.class, arguments = {"union|overlay|subtract|intersect"} ),
+        @Parameter( name = "first", validator = StringValidator.class, arguments = {".*"} ),
+        @Parameter( name = "second", validator = StringValidator.class, arguments = {".*"} ),
+        @Parameter( name = "target", validator = StringValidator.class, arguments = {".*"} ),
+        @Parameter( name = "offset", validator = StringValidator.class, arguments = {"-?\\d+,-?\\d+,-?\\d+"}, optional = true )
+})
+public class CommandMerge extends Command {
+
+    /**
+     * The world border, larger offsets would make the bounds of the merged schematic overflow.
+     */
+    private static final int MAX_OFFSET = 30000000;
+
+    @Override
+    public CommandOutput execute( CommandSender commandSender, String alias, Map<String, Object> arguments ) {
+        CommandOutput output = new CommandOutput();
+
+        ClipboardMerge.Operation operation = ClipboardMerge.Operation.valueOf( ( (String) arguments.get( "operation" ) ).toUpperCase( Locale.ROOT ) );
+        String first = (String) arguments.get( "first" );
+        String second = (String) arguments.get( "second" );
+        String target = (String) arguments.get( "target" );
+        String[] offset = ( (String) arguments.getOrDefault( "offset", "0,0,0" ) ).split( "," );
+        int offsetX, offsetY, offsetZ;
+        try {
+            offsetX = Integer.parseInt( offset[0] );
+            offsetY = Integer.parseInt( offset[1] );
+            offsetZ = Integer.parseInt( offset[2] );
+        } catch ( NumberFormatException e ) {
+            return output.fail( "Ungültiger Versatz: " + arguments.get( "offset" ) );
+        }
+        if(Math.abs( (long) offsetX ) > MAX_OFFSET || Math.abs( (long) offsetY ) > MAX_OFFSET || Math.abs( (long) offsetZ ) > MAX_OFFSET){
+            return output.fail( "Der Versatz darf höchstens " + MAX_OFFSET + " Blöcke betragen!" );
+        }
+
+        SchematicManager manager = SchematicSystem.getInstance().getSchematicManager();
+        if(manager.getSchematicFile( target ) != null){
+            return output.fail( "Das Schematic " + target + " existiert bereits!" );
+        }
+        if(manager.getSchematicFile( first ) == null || manager.getSchematicFile( second ) == null){
+            return output.fail( "Das Schematic " + ( manager.getSchematicFile( first ) == null ? first : second ) + " existiert nicht!" );
+        }
+
+        // The result is sized from the headers before anything is admitted, two small schematics
+        // far apart still make a huge result
+        manager.estimateMerge( first, second, offsetX, offsetY, offsetZ, operation, cost -> {
+            if(cost == null){
+                commandSender.sendMessage( "Die Schematics konnten nicht gelesen werden!" );
+                return;
+            }
+            AdmissionControl.Admission admission = manager.getAdmissionControl().submit( commandSender, cost, ticket ->
+                    manager.merge( first, second, offsetX, offsetY, offsetZ, operation, target, success -> {
+                        ticket.release();
+                        if(success){
+                            commandSender.sendMessage( "Das Schematic " + target + " wurde erfolgreich erstellt!" );
+                        }else{
+                            commandSender.sendMessage( "Die Schematics konnten nicht kombiniert werden!" );
+                        }
+                    } ), AdmissionOutput.cancelled( commandSender ) );
+            AdmissionOutput.send( commandSender, admission, cost );
+        } );
+        return output.success( "Die Schematics werden kombiniert..." );
+    }
+}
@@ -1,21 +1,35 @@
 package de.theamychan.schematic.command;
 
 import de.theamychan.schematic.SchematicSystem;
+import de.theamychan.schematic.clipboard.BlockPalette;
+import de.theamychan.schematic.clipboard.ClipboardHolder;
+import de.theamychan.schematic.manager.AdmissionControl;
+import de.theamychan.schematic.manager.JobCost;
+import de.theamychan.schematic.manager.PasteMask;
+import de.theamychan.schematic.manager.SchematicManager;
+import de.theamychan.schematic.util.Region;
 import io.gomint.command.Command;
 import io.gomint.command.CommandOutput;
 import io.gomint.command.CommandSender;
 import io.gomint.command.PlayerCommandSender;
-import io.gomint.command.annotation.Description;
-import io.gomint.command.annotation.Name;
-import io.gomint.command.annotation.Permission;
+import io.gomint.command.annotation.*;
+import io.gomint.command.validator.StringValidator;
+import io.gomint.command.validator.TextValidator;
 import io.gomint.entity.EntityPlayer;
+import io.gomint.math.Location;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.function.Consumer;
 
 @Name("schem paste")
 @Description("Setzte ein Schematic")
 @Permission( "schematic.paste" )
+@Overload({
+        @Parameter( name = "name", validator = StringValidator.class, arguments = {".*"}, optional = true ),
+        @Parameter( name = "options", validator = TextValidator.class, optional = true )
+})
 public class CommandPaste extends Command {
 
     @Override
@@ -24,16 +38,107 @@ public class CommandPaste extends Command {
 
         if(commandSender instanceof PlayerCommandSender ){
             EntityPlayer player = (EntityPlayer) commandSender;
+            String name = (String) arguments.get( "name" );
+            String options = (String) arguments.get( "options" );
+            if(name != null && name.startsWith( "--" )){
+                options = options == null ? name : name + " " + options;
+                name = null;
+            }
 
-            SchematicSystem.getInstance().getSchematicManager().paste( player, success -> {
+            // Options: --region x1,y1,z1,x2,y2,z2 --only-air --exclude <Block>
+            Region region = null;
+            boolean onlyAir = false;
+            List<String> excluded = new ArrayList<>();
+            String[] tokens = options == null ? new String[0] : options.trim().split( "\\s+" );
+            for (int i = 0; i < tokens.length; i++) {
+                String token = tokens[i];
+                if(token.isEmpty()){
+                    continue;
+                }
+                if(token.equals( "--only-air" )){
+                    onlyAir = true;
+                }else if(token.equals( "--region" ) && i + 1 < tokens.length && tokens[i + 1].matches( "-?\\d+(,-?\\d+){5}" )){
+                    region = parseRegion( tokens[++i] );
+                    if(region == null){
+                        return output.fail( "Ungültiger Bereich: " + tokens[i] );
+                    }
+                }else if(token.equals( "--exclude" ) && i + 1 < tokens.length){
+                    String type = BlockPalette.parseName( tokens[++i] );
+                    if(type == null){
+                        return output.fail( "Unbekannter Block: " + tokens[i] );
+                    }
+                    excluded.add( type );
+                }else{
+                    return output.fail( "Unbekannte Option: " + token );
+                }
+            }
+            PasteMask mask = onlyAir || !excluded.isEmpty() ? new PasteMask( onlyAir, excluded ) : PasteMask.NONE;
+
+            Consumer<Boolean> consumer = success -> {
                 if(success){
                     commandSender.sendMessage( "Das Schematic wurde erfolgreich gesetzt!" );
                 }else{
                     commandSender.sendMessage( "Das Schematic konnte nicht gesetzt werden!" );
                 }
-            } );
+            };
+
+            Consumer<List<String>> unresolved = names ->
+                    commandSender.sendMessage( "Unbekannte Blöcke werden übersprungen: " + String.join( ", ", names ) );
+
+            SchematicManager manager = SchematicSystem.getInstance().getSchematicManager();
+            if(name == null){
+                ClipboardHolder holder = manager.getSchematics().get( player );
+                if(holder == null){
+                    return output.fail( "Du hast kein Schematic geladen!" );
+                }
+                List<String> names = holder.get().getPalette().getUnresolved();
+                if(!names.isEmpty()){
+                    unresolved.accept( names );
+                }
+                JobCost cost = JobCost.paste( holder.get().getRegion(), region != null );
+                Region area = region;
+                AdmissionControl.Admission admission = manager.getAdmissionControl().submit( player, cost, ticket ->
+                        manager.paste( player, area, mask, success -> {
+                            ticket.release();
+                            consumer.accept( success );
+                        } ), AdmissionOutput.cancelled( commandSender ) );
+                return AdmissionOutput.apply( output, admission, cost );
+            }else{
+                JobCost load = manager.estimateLoad( name );
+                if(load == null){
+                    return output.fail( "Das Schematic konnte nicht gesetzt werden!" );
+                }
+                JobCost cost = load.plus( JobCost.paste( load.getVolume() ) );
+                Location location = player.getLocation();
+                String schematic = name;
+                Region area = region;
+                AdmissionControl.Admission admission = manager.getAdmissionControl().submit( player, cost, ticket ->
+                        manager.paste( location, schematic, area, mask, unresolved, success -> {
+                            ticket.release();
+                            consumer.accept( success );
+                        } ), AdmissionOutput.cancelled( commandSender ) );
+                return AdmissionOutput.apply( output, admission, cost );
+            }
         }
 
         return output;
     }
+
+    /**
+     * Parse an area given as x1,y1,z1,x2,y2,z2 in world co-ordinates.
+     *
+     * @return the area or null if a co-ordinate does not fit into an int or the size of the area
+     * does not
+     */
+    private Region parseRegion( String region ) {
+        String[] data = region.split( "," );
+        Region parsed;
+        try {
+            parsed = new Region( Integer.parseInt( data[0] ), Integer.parseInt( data[1] ), Integer.parseInt( data[2] ),
+                    Integer.parseInt( data[3] ), Integer.parseInt( data[4] ), Integer.parseInt( data[5] ) );
+        } catch ( NumberFormatException e ) {
+            return null;
+        }
+        return parsed.getSizeX() > 0 && parsed.getSizeY() > 0 && parsed.getSizeZ() > 0 ? parsed : null;
+    }
 }
@@ -0,0 +1,66 @@
+package de.theamychan.schematic.command;
+
+import de.theamychan.schematic.SchematicSystem;
+import de.theamychan.schematic.manager.AdmissionControl;
+import de.theamychan.schematic.manager.JobCost;
+import de.theamychan.schematic.manager.SchematicManager;
+import de.theamychan.schematic.util.Region;
+import io.gomint.command.Command;
+import io.gomint.command.CommandOutput;
+import io.gomint.command.CommandSender;
+import io.gomint.command.PlayerCommandSender;
+import io.gomint.command.annotation.*;
+import io.gomint.command.validator.StringValidator;
+import io.gomint.entity.EntityPlayer;
+
+import java.util.Map;
+import java.util.function.Consumer;
+
+@Name("schem preview")
+@Description("Zeige wo ein Schematic eingefügt werden würde")
+@Permission( "schematic.preview" )
+@Overload({
+        @Parameter( name = "name", validator = StringValidator.class, arguments = {".*"}, optional = true )
+})
+public class CommandPreview extends Command {
+
+    @Override
+    public CommandOutput execute( CommandSender commandSender, String alias, Map<String, Object> arguments ) {
+        CommandOutput output = new CommandOutput();
+
+        if(commandSender instanceof PlayerCommandSender ){
+            EntityPlayer player = (EntityPlayer) commandSender;
+            String name = (String) arguments.get( "name" );
+
+            Consumer<Region> consumer = region -> {
+                if(region == null){
+                    commandSender.sendMessage( name == null ? "Du hast kein Schematic geladen!" : "Das Schematic konnte nicht gefunden werden!" );
+                    return;
+                }
+                commandSender.sendMessage( "Vorschau: " + region.getSizeX() + "x" + region.getSizeY() + "x" + region.getSizeZ()
+                        + " Blöcke von " + region.getMinX() + ", " + region.getMinY() + ", " + region.getMinZ()
+                        + " bis " + region.getMaxX() + ", " + region.getMaxY() + ", " + region.getMaxZ() );
+            };
+
+            SchematicManager manager = SchematicSystem.getInstance().getSchematicManager();
+            if(name == null){
+                manager.preview( player, null, consumer );
+                return output;
+            }
+
+            // Schematics which are not tiled have to be read completely to be sized
+            JobCost cost = manager.estimateBounds( name );
+            if(cost == null){
+                return output.fail( "Das Schematic konnte nicht gefunden werden!" );
+            }
+            AdmissionControl.Admission admission = manager.getAdmissionControl().submit( player, cost, ticket ->
+                    manager.preview( player, name, region -> {
+                        ticket.release();
+                        consumer.accept( region );
+                    } ), AdmissionOutput.cancelled( commandSender ) );
+            return AdmissionOutput.apply( output, admission, cost );
+        }
+
+        return output;
+    }
+}
@@ -0,0 +1,72 @@
+package de.theamychan.schematic.command;
+
+import de.theamychan.schematic.SchematicSystem;
+import de.theamychan.schematic.clipboard.BlockPalette;
+import de.theamychan.schematic.manager.AdmissionControl;
+import de.theamychan.schematic.manager.JobCost;
+import de.theamychan.schematic.manager.SchematicManager;
+import de.theamychan.schematic.util.Cuboid;
+import io.gomint.command.Command;
+import io.gomint.command.CommandOutput;
+import io.gomint.command.CommandSender;
+import io.gomint.command.PlayerCommandSender;
+import io.gomint.command.annotation.*;
+import io.gomint.command.validator.StringValidator;
+import io.gomint.entity.EntityPlayer;
+import io.gomint.math.Location;
+
+import java.util.Map;
+
+@Name("schem replace")
+@Description("Ersetze einen Block in deiner Auswahl")
+@Permission( "schematic.replace" )
+@Overload({
+        @Parameter( name = "from", validator = StringValidator.class, arguments = {"\\w+"} ),
+        @Parameter( name = "to", validator = StringValidator.class, arguments = {"\\w+"} )
+})
+public class CommandReplace extends Command {
+
+    @Override
+    public CommandOutput execute( CommandSender commandSender, String alias, Map<String, Object> arguments ) {
+        CommandOutput output = new CommandOutput();
+
+        if(commandSender instanceof PlayerCommandSender ){
+            EntityPlayer player = (EntityPlayer) commandSender;
+
+            SchematicManager manager = SchematicSystem.getInstance().getSchematicManager();
+            Location loc1 = manager.getLoc1().get( player );
+            Location loc2 = manager.getLoc2().get( player );
+            if(loc1 == null || loc2 == null){
+                return output.fail( "Bitte setze zuerst beide Positionen!" );
+            }
+
+            String from = BlockPalette.parseName( (String) arguments.get( "from" ) );
+            String to = BlockPalette.parseName( (String) arguments.get( "to" ) );
+            if(from == null || to == null){
+                return output.fail( "Unbekannter Block: " + arguments.get( from == null ? "from" : "to" ) );
+            }
+
+            if(from.equals( to )){
+                return output.fail( "Der Block " + from + " kann nicht durch sich selbst ersetzt werden!" );
+            }
+
+            JobCost cost = JobCost.capture( new Cuboid( loc1, loc2 ).getRegion() );
+            AdmissionControl.Admission admission = manager.getAdmissionControl().submit( player, cost, ticket ->
+                    manager.replace( loc1, loc2, from, to, count -> {
+                        if(count == 0){
+                            commandSender.sendMessage( "Die Auswahl enthält keinen Block vom Typ " + from + "!" );
+                        }else{
+                            commandSender.sendMessage( count + " Blöcke werden ersetzt..." );
+                        }
+                    }, success -> {
+                        ticket.release();
+                        if(success){
+                            commandSender.sendMessage( "Die Blöcke wurden erfolgreich ersetzt!" );
+                        }
+                    } ), AdmissionOutput.cancelled( commandSender ) );
+            return AdmissionOutput.apply( output, admission, cost );
+        }
+
+        return output;
+    }
+}
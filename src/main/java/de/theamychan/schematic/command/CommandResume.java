@@ -0,0 +1,97 @@
+package de.theamychan.schematic.command;
+
+import de.theamychan.schematic.SchematicSystem;
+import de.theamychan.schematic.manager.AdmissionControl;
+import de.theamychan.schematic.manager.JobCheckpoint;
+import de.theamychan.schematic.manager.JobCost;
+import de.theamychan.schematic.manager.SchematicManager;
+import io.gomint.command.Command;
+import io.gomint.command.CommandOutput;
+import io.gomint.command.CommandSender;
+import io.gomint.command.PlayerCommandSender;
+import io.gomint.command.annotation.*;
+import io.gomint.command.validator.StringValidator;
+
+import java.util.List;
+import java.util.Map;
+
+@Name("schem resume")
+@Description("Setze unterbrochene Schematic Jobs fort")
+@Permission( "schematic.resume" )
+@Overload({
+        @Parameter( name = "job", validator = StringValidator.class, arguments = {".*"}, optional = true )
+})
+public class CommandResume extends Command {
+
+    @Override
+    public CommandOutput execute( CommandSender commandSender, String alias, Map<String, Object> arguments ) {
+        CommandOutput output = new CommandOutput();
+
+        SchematicManager manager = SchematicSystem.getInstance().getSchematicManager();
+        List<JobCheckpoint> unfinished = manager.getUnfinishedJobs();
+        String job = (String) arguments.get( "job" );
+
+        if(unfinished.isEmpty()){
+            return output.fail( "Es gibt keine unterbrochenen Jobs!" );
+        }
+
+        if(job == null){
+            commandSender.sendMessage( "Unterbrochene Jobs, fortsetzen mit /schem resume <job|all>:" );
+            for (JobCheckpoint checkpoint : unfinished) {
+                commandSender.sendMessage( "- " + checkpoint.getId() + ": " + ( checkpoint.isDestroy() ? "destroy " : "paste " ) + checkpoint.getSchematic()
+                        + " in " + checkpoint.getWorldName() + " bei " + checkpoint.getOriginX() + ", " + checkpoint.getOriginY() + ", " + checkpoint.getOriginZ()
+                        + " (" + checkpoint.getWritten() + " Blöcke gesetzt)" );
+            }
+            return output;
+        }
+
+        Object owner = commandSender instanceof PlayerCommandSender ? commandSender : null;
+        int matched = 0, resumed = 0;
+        for (JobCheckpoint checkpoint : unfinished) {
+            if(job.equalsIgnoreCase( "all" ) || job.equals( checkpoint.getId() )){
+                matched++;
+                // Claimed right away, a second resume before this one is admitted must not find the job
+                if(!manager.claim( checkpoint )){
+                    continue;
+                }
+                JobCost load = manager.estimateLoad( checkpoint.getSchematic() );
+                if(load == null){
+                    manager.unclaim( checkpoint );
+                    commandSender.sendMessage( "Der Job " + checkpoint.getId() + " konnte nicht fortgesetzt werden!" );
+                    continue;
+                }
+                JobCost cost = load.plus( JobCost.paste( load.getVolume() ) );
+                AdmissionControl.Admission admission = manager.getAdmissionControl().submit( owner, cost, ticket ->
+                        manager.resume( checkpoint, success -> {
+                            ticket.release();
+                            if(success){
+                                commandSender.sendMessage( "Der Job " + checkpoint.getId() + " wurde abgeschlossen!" );
+                            }else{
+                                commandSender.sendMessage( "Der Job " + checkpoint.getId() + " konnte nicht fortgesetzt werden!" );
+                            }
+                        } ), () -> {
+                    manager.unclaim( checkpoint );
+                    AdmissionOutput.cancelled( commandSender ).run();
+                } );
+                if(admission == AdmissionControl.Admission.TOO_LARGE || admission == AdmissionControl.Admission.BUSY){
+                    manager.unclaim( checkpoint );
+                }
+                if(admission == AdmissionControl.Admission.TOO_LARGE){
+                    commandSender.sendMessage( "Der Job " + checkpoint.getId() + " ist zu groß! (" + cost.getVolume() + " Blöcke, etwa " + ( cost.getBytes() >> 20 ) + " MB)" );
+                }else if(admission == AdmissionControl.Admission.BUSY){
+                    commandSender.sendMessage( "Der Server hat gerade zu wenig freien Speicher für den Job " + checkpoint.getId() + "!" );
+                }else{
+                    resumed++;
+                }
+            }
+        }
+
+        if(matched == 0){
+            return output.fail( "Diesen Job gibt es nicht!" );
+        }
+        if(resumed == 0){
+            return output.fail( "Es konnte kein Job fortgesetzt werden!" );
+        }
+        return output.success( resumed + " Job(s) werden fortgesetzt..." );
+    }
+}
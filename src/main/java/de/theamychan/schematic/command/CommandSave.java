@@ -1,6 +1,10 @@
 package de.theamychan.schematic.command;
 
 import de.theamychan.schematic.SchematicSystem;
+import de.theamychan.schematic.manager.AdmissionControl;
+import de.theamychan.schematic.manager.JobCost;
+import de.theamychan.schematic.manager.SchematicManager;
+import de.theamychan.schematic.util.Cuboid;
 import io.gomint.command.Command;
 import io.gomint.command.CommandOutput;
 import io.gomint.command.CommandSender;
@@ -8,9 +12,8 @@ import io.gomint.command.PlayerCommandSender;
 import io.gomint.command.annotation.*;
 import io.gomint.command.validator.StringValidator;
 import io.gomint.entity.EntityPlayer;
-import io.gomint.world.block.Block;
+import io.gomint.math.Location;
 
-import java.util.List;
 import java.util.Map;
 
 @Name("schem save")
@@ -29,15 +32,25 @@ public class CommandSave extends Command {
             EntityPlayer player = (EntityPlayer) commandSender;
             String name = (String) arguments.get( "name" );
 
-            List<Block> blockList = SchematicSystem.getInstance().getSchematicManager().getBlocks( SchematicSystem.getInstance().getSchematicManager().getLoc1().get( player ), SchematicSystem.getInstance().getSchematicManager().getLoc2().get( player ) );
-            List<String> list = SchematicSystem.getInstance().getSchematicManager().fromBlocklistToStringlist( blockList, player.getLocation() );
-
-            if(SchematicSystem.getInstance().getSchematicManager().save( name, list ) ){
-                output.success( "Du hast das Schematic gespeichert!" );
-            }else{
-                output.fail( "Das Schematic konnte nicht gespeichert werden!" );
+            SchematicManager manager = SchematicSystem.getInstance().getSchematicManager();
+            Location loc1 = manager.getLoc1().get( player );
+            Location loc2 = manager.getLoc2().get( player );
+            if(loc1 == null || loc2 == null){
+                return output.fail( "Bitte setze zuerst beide Positionen!" );
             }
 
+            Location origin = player.getLocation();
+            JobCost cost = JobCost.capture( new Cuboid( loc1, loc2 ).getRegion() );
+            AdmissionControl.Admission admission = manager.getAdmissionControl().submit( player, cost, ticket ->
+                    manager.captureAsync( loc1, loc2, origin, clipboard -> manager.saveAsync( name, clipboard, success -> {
+                        ticket.release();
+                        if(success){
+                            commandSender.sendMessage( "Du hast das Schematic gespeichert!" );
+                        }else{
+                            commandSender.sendMessage( "Das Schematic konnte nicht gespeichert werden!" );
+                        }
+                    } ) ), AdmissionOutput.cancelled( commandSender ) );
+            return AdmissionOutput.apply( output, admission, cost );
         }
         return output;
     }
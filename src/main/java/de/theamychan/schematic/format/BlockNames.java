@@ -0,0 +1,263 @@
+package de.theamychan.schematic.format;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Conversion between the block names used by this plugin ("StoneBrick"), namespaced Minecraft
+ * ids ("minecraft:stone_brick") and the numeric ids of the legacy MCEdit format. Plugin names
+ * follow the legacy block families, so the flattened ids of newer Minecraft versions
+ * ("minecraft:red_wool", "minecraft:spruce_planks") are mapped onto their family through an
+ * alias table before falling back to a plain CamelCase conversion.
+ */
+public final class BlockNames {
+
+    private static final String NAMESPACE = "minecraft:";
+
+    private static final String[] LEGACY_IDS = new String[256];
+    private static final Map<String, Integer> LEGACY_NAMES = new HashMap<>();
+
+    private static final Map<String, String> ALIASES = new HashMap<>();
+    private static final String[] COLORS = { "white", "orange", "magenta", "light_blue", "yellow", "lime", "pink", "gray",
+            "light_gray", "cyan", "purple", "blue", "brown", "green", "red", "black" };
+    private static final Map<String, String> COLORED = new HashMap<>();
+    private static final String[] WOODS = { "oak", "spruce", "birch", "jungle", "acacia", "dark_oak" };
+    private static final Map<String, String> WOODEN = new HashMap<>();
+    private static final Map<String, String> FLATTENED = new HashMap<>();
+
+    static {
+        String[] names = {
+                "air", "stone", "grass", "dirt", "cobblestone", "planks", "sapling", "bedrock", "flowing_water", "water",
+                "flowing_lava", "lava", "sand", "gravel", "gold_ore", "iron_ore", "coal_ore", "log", "leaves", "sponge",
+                "glass", "lapis_ore", "lapis_block", "dispenser", "sandstone", "noteblock", "bed", "golden_rail", "detector_rail", "sticky_piston",
+                "web", "tallgrass", "deadbush", "piston", "piston_head", "wool", "piston_extension", "yellow_flower", "red_flower", "brown_mushroom",
+                "red_mushroom", "gold_block", "iron_block", "double_stone_slab", "stone_slab", "brick_block", "tnt", "bookshelf", "mossy_cobblestone", "obsidian",
+                "torch", "fire", "mob_spawner", "oak_stairs", "chest", "redstone_wire", "diamond_ore", "diamond_block", "crafting_table", "wheat",
+                "farmland", "furnace", "lit_furnace", "standing_sign", "wooden_door", "ladder", "rail", "stone_stairs", "wall_sign", "lever",
+                "stone_pressure_plate", "iron_door", "wooden_pressure_plate", "redstone_ore", "lit_redstone_ore", "unlit_redstone_torch", "redstone_torch", "stone_button", "snow_layer", "ice",
+                "snow", "cactus", "clay", "reeds", "jukebox", "fence", "pumpkin", "netherrack", "soul_sand", "glowstone",
+                "portal", "lit_pumpkin", "cake", "unpowered_repeater", "powered_repeater", "stained_glass", "trapdoor", "monster_egg", "stonebrick", "brown_mushroom_block",
+                "red_mushroom_block", "iron_bars", "glass_pane", "melon_block", "pumpkin_stem", "melon_stem", "vine", "fence_gate", "brick_stairs", "stone_brick_stairs",
+                "mycelium", "waterlily", "nether_brick", "nether_brick_fence", "nether_brick_stairs", "nether_wart", "enchanting_table", "brewing_stand", "cauldron", "end_portal",
+                "end_portal_frame", "end_stone", "dragon_egg", "redstone_lamp", "lit_redstone_lamp", "double_wooden_slab", "wooden_slab", "cocoa", "sandstone_stairs", "emerald_ore",
+                "ender_chest", "tripwire_hook", "tripwire", "emerald_block", "spruce_stairs", "birch_stairs", "jungle_stairs", "command_block", "beacon", "cobblestone_wall",
+                "flower_pot", "carrots", "potatoes", "wooden_button", "skull", "anvil", "trapped_chest", "light_weighted_pressure_plate", "heavy_weighted_pressure_plate", "unpowered_comparator",
+                "powered_comparator", "daylight_detector", "redstone_block", "quartz_ore", "hopper", "quartz_block", "quartz_stairs", "activator_rail", "dropper", "stained_hardened_clay",
+                "stained_glass_pane", "leaves2", "log2", "acacia_stairs", "dark_oak_stairs", "slime", "barrier", "iron_trapdoor", "prismarine", "sea_lantern",
+                "hay_block", "carpet", "hardened_clay", "coal_block", "packed_ice", "double_plant", "standing_banner", "wall_banner", "daylight_detector_inverted", "red_sandstone",
+                "red_sandstone_stairs", "double_stone_slab2", "stone_slab2", "spruce_fence_gate", "birch_fence_gate", "jungle_fence_gate", "dark_oak_fence_gate", "acacia_fence_gate", "spruce_fence", "birch_fence",
+                "jungle_fence", "dark_oak_fence", "acacia_fence", "spruce_door", "birch_door", "jungle_door", "acacia_door", "dark_oak_door", "end_rod", "chorus_plant",
+                "chorus_flower", "purpur_block", "purpur_pillar", "purpur_stairs", "purpur_double_slab", "purpur_slab", "end_bricks", "beetroots", "grass_path", "end_gateway",
+                "repeating_command_block", "chain_command_block", "frosted_ice", "magma", "nether_wart_block", "red_nether_brick", "bone_block", "structure_void", "observer"
+        };
+        System.arraycopy( names, 0, LEGACY_IDS, 0, names.length );
+
+        String[] colors = { "white", "orange", "magenta", "light_blue", "yellow", "lime", "pink", "gray",
+                "silver", "cyan", "purple", "blue", "brown", "green", "red", "black" };
+        for (int i = 0; i < colors.length; i++) {
+            LEGACY_IDS[219 + i] = colors[i] + "_shulker_box";
+            LEGACY_IDS[235 + i] = colors[i] + "_glazed_terracotta";
+        }
+        LEGACY_IDS[251] = "concrete";
+        LEGACY_IDS[252] = "concrete_powder";
+        LEGACY_IDS[255] = "structure_block";
+
+        for (int i = 0; i < LEGACY_IDS.length; i++) {
+            if ( LEGACY_IDS[i] != null ) {
+                LEGACY_NAMES.put( LEGACY_IDS[i], i );
+            }
+        }
+
+        // Flattened ids which were renamed or merged into a legacy block
+        String[][] aliases = {
+                { "grass_block", "grass" }, { "grass", "tallgrass" }, { "short_grass", "tallgrass" }, { "fern", "tallgrass" },
+                { "tall_grass", "double_plant" }, { "large_fern", "double_plant" }, { "sunflower", "double_plant" },
+                { "lilac", "double_plant" }, { "rose_bush", "double_plant" }, { "peony", "double_plant" },
+                { "dead_bush", "deadbush" }, { "cobweb", "web" }, { "note_block", "noteblock" }, { "powered_rail", "golden_rail" },
+                { "spawner", "mob_spawner" }, { "wall_torch", "torch" }, { "redstone_wall_torch", "redstone_torch" },
+                { "snow", "snow_layer" }, { "snow_block", "snow" }, { "sugar_cane", "reeds" }, { "carved_pumpkin", "pumpkin" },
+                { "jack_o_lantern", "lit_pumpkin" }, { "nether_portal", "portal" }, { "repeater", "unpowered_repeater" },
+                { "comparator", "unpowered_comparator" }, { "stone_bricks", "stonebrick" }, { "mossy_stone_bricks", "stonebrick" },
+                { "cracked_stone_bricks", "stonebrick" }, { "chiseled_stone_bricks", "stonebrick" }, { "melon", "melon_block" },
+                { "lily_pad", "waterlily" }, { "nether_bricks", "nether_brick" }, { "end_stone_bricks", "end_bricks" },
+                { "bricks", "brick_block" }, { "terracotta", "hardened_clay" }, { "slime_block", "slime" },
+                { "magma_block", "magma" }, { "red_nether_bricks", "red_nether_brick" }, { "dirt_path", "grass_path" },
+                { "nether_quartz_ore", "quartz_ore" }, { "chiseled_quartz_block", "quartz_block" }, { "quartz_pillar", "quartz_block" },
+                { "granite", "stone" }, { "polished_granite", "stone" }, { "diorite", "stone" }, { "polished_diorite", "stone" },
+                { "andesite", "stone" }, { "polished_andesite", "stone" }, { "coarse_dirt", "dirt" }, { "podzol", "dirt" },
+                { "red_sand", "sand" }, { "chiseled_sandstone", "sandstone" }, { "cut_sandstone", "sandstone" },
+                { "chiseled_red_sandstone", "red_sandstone" }, { "cut_red_sandstone", "red_sandstone" },
+                { "dandelion", "yellow_flower" }, { "poppy", "red_flower" }, { "blue_orchid", "red_flower" }, { "allium", "red_flower" },
+                { "azure_bluet", "red_flower" }, { "red_tulip", "red_flower" }, { "orange_tulip", "red_flower" },
+                { "white_tulip", "red_flower" }, { "pink_tulip", "red_flower" }, { "oxeye_daisy", "red_flower" },
+                { "bubble_column", "water" }, { "cave_air", "air" }, { "void_air", "air" }, { "moving_piston", "piston_extension" },
+                { "smooth_stone_slab", "stone_slab" }, { "sandstone_slab", "stone_slab" },
+                { "cobblestone_slab", "stone_slab" }, { "brick_slab", "stone_slab" }, { "stone_brick_slab", "stone_slab" },
+                { "nether_brick_slab", "stone_slab" }, { "quartz_slab", "stone_slab" }, { "red_sandstone_slab", "stone_slab2" },
+                { "smooth_stone", "double_stone_slab" }, { "skeleton_skull", "skull" },
+                { "wither_skeleton_skull", "skull" }, { "zombie_head", "skull" }, { "player_head", "skull" },
+                { "creeper_head", "skull" }, { "dragon_head", "skull" }, { "skeleton_wall_skull", "skull" },
+                { "wither_skeleton_wall_skull", "skull" }, { "zombie_wall_head", "skull" }, { "player_wall_head", "skull" },
+                { "creeper_wall_head", "skull" }, { "dragon_wall_head", "skull" }, { "oak_door", "wooden_door" }, { "oak_fence", "fence" }, { "oak_fence_gate", "fence_gate" },
+                { "oak_sign", "standing_sign" }, { "oak_wall_sign", "wall_sign" }, { "light_gray_shulker_box", "silver_shulker_box" }, { "light_gray_glazed_terracotta", "silver_glazed_terracotta" }
+        };
+        for (String[] alias : aliases) {
+            ALIASES.put( alias[0], alias[1] );
+        }
+        // Exports use the first flattened id of a legacy name whose own id means something else now
+        for (String[] alias : aliases) {
+            if ( ALIASES.containsKey( alias[1] ) ) {
+                FLATTENED.putIfAbsent( alias[1], alias[0] );
+            }
+        }
+
+        String[][] colored = {
+                { "wool", "wool" }, { "carpet", "carpet" }, { "stained_glass", "stained_glass" }, { "stained_glass_pane", "stained_glass_pane" },
+                { "terracotta", "stained_hardened_clay" }, { "concrete", "concrete" }, { "concrete_powder", "concrete_powder" },
+                { "bed", "bed" }, { "banner", "standing_banner" }, { "wall_banner", "wall_banner" }
+        };
+        for (String[] family : colored) {
+            COLORED.put( family[0], family[1] );
+            FLATTENED.put( family[1], "white_" + family[0] );
+        }
+
+        String[][] wooden = {
+                { "planks", "planks" }, { "sapling", "sapling" }, { "slab", "wooden_slab" }, { "button", "wooden_button" },
+                { "pressure_plate", "wooden_pressure_plate" }, { "trapdoor", "trapdoor" }, { "sign", "standing_sign" },
+                { "wall_sign", "wall_sign" }
+        };
+        for (String[] family : wooden) {
+            WOODEN.put( family[0], family[1] );
+            FLATTENED.putIfAbsent( family[1], "oak_" + family[0] );
+        }
+        FLATTENED.put( "log", "oak_log" );
+        FLATTENED.put( "log2", "acacia_log" );
+        FLATTENED.put( "leaves", "oak_leaves" );
+        FLATTENED.put( "leaves2", "acacia_leaves" );
+    }
+
+    private BlockNames() {
+    }
+
+    /**
+     * Convert a Minecraft block id or block state into a plugin block name, e.g.
+     * "minecraft:oak_log[axis=y]" into "Log" and "minecraft:red_wool" into "Wool". Ids without
+     * an alias are converted to CamelCase; whether the result exists as a GoMint block is only
+     * known once it is resolved, see {@link de.theamychan.schematic.clipboard.BlockPalette#getUnresolved()}.
+     *
+     * @param key the namespaced id, with or without block state
+     * @return the plugin block name
+     */
+    public static String fromMinecraft( String key ) {
+        int start = key.indexOf( ':' ) + 1;
+        int end = key.indexOf( '[' );
+        return toCamelCase( alias( key.substring( start, end < 0 ? key.length() : end ) ) );
+    }
+
+    private static String alias( String id ) {
+        String alias = ALIASES.get( id );
+        if ( alias != null ) {
+            return alias;
+        }
+        for (String color : COLORS) {
+            if ( id.startsWith( color ) && id.length() > color.length() + 1 && id.charAt( color.length() ) == '_' ) {
+                String family = COLORED.get( id.substring( color.length() + 1 ) );
+                if ( family != null ) {
+                    return family;
+                }
+            }
+        }
+        for (int i = 0; i < WOODS.length; i++) {
+            String wood = WOODS[i];
+            if ( id.startsWith( wood ) && id.length() > wood.length() + 1 && id.charAt( wood.length() ) == '_' ) {
+                String rest = id.substring( wood.length() + 1 );
+                // Acacia and dark oak logs and leaves live in the second legacy block
+                if ( rest.equals( "log" ) || rest.equals( "wood" ) ) {
+                    return i < 4 ? "log" : "log2";
+                }
+                if ( rest.equals( "leaves" ) ) {
+                    return i < 4 ? "leaves" : "leaves2";
+                }
+                String family = WOODEN.get( rest );
+                if ( family != null ) {
+                    return family;
+                }
+            }
+        }
+        if ( id.startsWith( "infested_" ) ) {
+            return "monster_egg";
+        }
+        if ( id.startsWith( "potted_" ) ) {
+            return "flower_pot";
+        }
+        return id;
+    }
+
+    private static String toCamelCase( String id ) {
+        StringBuilder name = new StringBuilder( id.length() );
+        boolean upper = true;
+        for (int i = 0; i < id.length(); i++) {
+            char c = id.charAt( i );
+            if ( c == '_' ) {
+                upper = true;
+            } else {
+                name.append( upper ? Character.toUpperCase( c ) : c );
+                upper = false;
+            }
+        }
+        return name.toString();
+    }
+
+    /**
+     * Convert a plugin block name into a namespaced Minecraft id, e.g. "StoneBrick" into
+     * "minecraft:stone_brick". Block families are exported as their first member ("Wool" as
+     * "minecraft:white_wool"), so {@link #fromMinecraft(String)} reads the id back as the same name.
+     *
+     * @param name the plugin block name
+     * @return the namespaced id
+     */
+    public static String toMinecraft( String name ) {
+        String key = toSnakeCase( name );
+        String flattened = FLATTENED.get( key );
+        return NAMESPACE + ( flattened == null ? key : flattened );
+    }
+
+    private static String toSnakeCase( String name ) {
+        StringBuilder key = new StringBuilder( name.length() + 4 );
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt( i );
+            if ( Character.isUpperCase( c ) ) {
+                if ( i > 0 ) {
+                    key.append( '_' );
+                }
+                key.append( Character.toLowerCase( c ) );
+            } else {
+                key.append( c );
+            }
+        }
+        return key.toString();
+    }
+
+    /**
+     * Get the plugin block name of a legacy numeric block id.
+     *
+     * @param id the legacy id
+     * @return the block name or null if the id is unknown
+     */
+    public static String fromLegacyId( int id ) {
+        String key = id >= 0 && id < LEGACY_IDS.length ? LEGACY_IDS[id] : null;
+        return key == null ? null : toCamelCase( key );
+    }
+
+    /**
+     * Get the legacy numeric block id of a plugin block name.
+     *
+     * @param name the block name
+     * @return the legacy id or -1 if the block has no legacy id
+     */
+    public static int toLegacyId( String name ) {
+        Integer id = LEGACY_NAMES.get( toSnakeCase( name ) );
+        return id == null ? -1 : id;
+    }
+
+}
@@ -0,0 +1,386 @@
+package de.theamychan.schematic.format;
+
+import de.theamychan.schematic.clipboard.BlockPalette;
+import de.theamychan.schematic.clipboard.Clipboard;
+import de.theamychan.schematic.util.Region;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static de.theamychan.schematic.format.NBTStreamReader.*;
+
+/**
+ * Streaming importer for Sponge (v1 to v3) and MCEdit schematics. Block data is decoded straight
+ * from the (gzip) stream into the clipboard's id array; only the palette and a handful of header
+ * values are kept on the side. The offset to the paste origin is taken from WorldEdit's WEOffset
+ * tags (top level in MCEdit files, inside Metadata in Sponge files) when present, otherwise from
+ * the Sponge Offset.
+ */
+public final class NBTSchematicReader {
+
+    private static final int LEGACY_ID_COUNT = 4096;
+    private static final int UNMAPPED = -2;
+
+    private final NBTStreamReader nbt;
+    private final boolean headerOnly;
+
+    private int width = -1, height = -1, length = -1;
+    private int offsetX, offsetY, offsetZ;
+    private int worldEditX, worldEditY, worldEditZ;
+    private boolean worldEditOffset;
+    private final Map<Integer, String> spongePalette = new HashMap<>();
+    private int[] blocks;
+    private boolean legacy;
+    private boolean hasBlockData;
+
+    // Arrays which appeared before the dimensions are known and have to be decoded afterwards
+    private byte[] pendingBlockData;
+    private byte[] pendingBlocks;
+    private byte[] pendingAddBlocks;
+
+    private NBTSchematicReader( NBTStreamReader nbt, boolean headerOnly ) {
+        this.nbt = nbt;
+        this.headerOnly = headerOnly;
+    }
+
+    /**
+     * Read a Sponge or MCEdit schematic.
+     *
+     * @param input the (optionally gzip compressed) NBT data
+     * @return the decoded clipboard
+     * @throws IOException if the data is not a valid schematic
+     */
+    public static Clipboard read( InputStream input ) throws IOException {
+        try ( NBTStreamReader nbt = new NBTStreamReader( input ) ) {
+            NBTSchematicReader reader = new NBTSchematicReader( nbt, false );
+            reader.readRoot();
+            return reader.finish();
+        }
+    }
+
+    /**
+     * Read the area a Sponge or MCEdit schematic covers relative to its paste origin. The whole
+     * stream is walked, but palette and block data are skipped instead of decoded.
+     *
+     * @param input the (optionally gzip compressed) NBT data
+     * @return the covered area or null if the schematic is empty
+     * @throws IOException if the data is not a valid schematic
+     */
+    public static Region readRegion( InputStream input ) throws IOException {
+        try ( NBTStreamReader nbt = new NBTStreamReader( input ) ) {
+            NBTSchematicReader reader = new NBTSchematicReader( nbt, true );
+            reader.readRoot();
+            if ( reader.width < 0 || reader.height < 0 || reader.length < 0 ) {
+                throw new IOException( "Schematic has no dimensions" );
+            }
+            if ( reader.width == 0 || reader.height == 0 || reader.length == 0 ) {
+                return null;
+            }
+            int x = reader.worldEditOffset ? reader.worldEditX : reader.offsetX;
+            int y = reader.worldEditOffset ? reader.worldEditY : reader.offsetY;
+            int z = reader.worldEditOffset ? reader.worldEditZ : reader.offsetZ;
+            return new Region( x, y, z, x + reader.width - 1, y + reader.height - 1, z + reader.length - 1 );
+        }
+    }
+
+    private void readRoot() throws IOException {
+        if ( this.nbt.readTagType() != TAG_COMPOUND ) {
+            throw new IOException( "Schematic root tag is not a compound" );
+        }
+        this.nbt.readTagName();
+        readCompound( false );
+    }
+
+    private void readCompound( boolean blockContainer ) throws IOException {
+        int type;
+        while ( ( type = this.nbt.readTagType() ) != TAG_END ) {
+            String name = this.nbt.readTagName();
+            switch ( name ) {
+                case "Schematic":
+                    if ( type != TAG_COMPOUND ) {
+                        this.nbt.skipPayload( type );
+                    } else {
+                        readCompound( false );
+                    }
+                    break;
+                case "Width":
+                    this.width = this.nbt.readIntegral( type );
+                    break;
+                case "Height":
+                    this.height = this.nbt.readIntegral( type );
+                    break;
+                case "Length":
+                    this.length = this.nbt.readIntegral( type );
+                    break;
+                case "Offset":
+                    readOffset( type );
+                    break;
+                case "Metadata":
+                    if ( type != TAG_COMPOUND ) {
+                        this.nbt.skipPayload( type );
+                    } else {
+                        // WorldEdit keeps the real paste offset of Sponge files in here
+                        readCompound( false );
+                    }
+                    break;
+                case "WEOffsetX":
+                    this.worldEditX = this.nbt.readIntegral( type );
+                    this.worldEditOffset = true;
+                    break;
+                case "WEOffsetY":
+                    this.worldEditY = this.nbt.readIntegral( type );
+                    this.worldEditOffset = true;
+                    break;
+                case "WEOffsetZ":
+                    this.worldEditZ = this.nbt.readIntegral( type );
+                    this.worldEditOffset = true;
+                    break;
+                case "Palette":
+                    readPalette( type );
+                    break;
+                case "BlockData":
+                    readBlockData( type );
+                    break;
+                case "Blocks":
+                    if ( type == TAG_COMPOUND ) {
+                        // Sponge v3 keeps palette and data in a nested compound
+                        readCompound( true );
+                    } else {
+                        readLegacyBlocks( type );
+                    }
+                    break;
+                case "Data":
+                    if ( blockContainer ) {
+                        readBlockData( type );
+                    } else {
+                        // MCEdit block meta data, GoMint block names do not carry it
+                        this.nbt.skipPayload( type );
+                    }
+                    break;
+                case "AddBlocks":
+                    readAddBlocks( type );
+                    break;
+                default:
+                    this.nbt.skipPayload( type );
+                    break;
+            }
+        }
+    }
+
+    private void readOffset( int type ) throws IOException {
+        if ( type != TAG_INT_ARRAY ) {
+            this.nbt.skipPayload( type );
+            return;
+        }
+        int size = this.nbt.readLength();
+        int[] values = new int[3];
+        for (int i = 0; i < size; i++) {
+            int value = this.nbt.readInt();
+            if ( i < values.length ) {
+                values[i] = value;
+            }
+        }
+        this.offsetX = values[0];
+        this.offsetY = values[1];
+        this.offsetZ = values[2];
+    }
+
+    private void readPalette( int type ) throws IOException {
+        if ( type != TAG_COMPOUND || this.headerOnly ) {
+            this.nbt.skipPayload( type );
+            return;
+        }
+        int childType;
+        while ( ( childType = this.nbt.readTagType() ) != TAG_END ) {
+            String key = this.nbt.readTagName();
+            this.spongePalette.put( this.nbt.readIntegral( childType ), BlockNames.fromMinecraft( key ) );
+        }
+    }
+
+    private boolean ensureBlocks() throws IOException {
+        if ( this.blocks != null ) {
+            return true;
+        }
+        if ( this.width < 0 || this.height < 0 || this.length < 0 ) {
+            return false;
+        }
+        long volume = (long) this.width * this.height * this.length;
+        if ( volume > Integer.MAX_VALUE - 8 ) {
+            throw new IOException( "Schematic is too large: " + this.width + "x" + this.height + "x" + this.length );
+        }
+        this.blocks = new int[(int) volume];
+        return true;
+    }
+
+    private void readBlockData( int type ) throws IOException {
+        if ( type != TAG_BYTE_ARRAY || this.headerOnly ) {
+            this.nbt.skipPayload( type );
+            return;
+        }
+        int size = this.nbt.readLength();
+        this.hasBlockData = true;
+        if ( ensureBlocks() ) {
+            decodeVarInts( this.nbt::readUnsignedByte, size );
+        } else {
+            this.pendingBlockData = new byte[size];
+            this.nbt.readFully( this.pendingBlockData );
+        }
+    }
+
+    private void readLegacyBlocks( int type ) throws IOException {
+        if ( type != TAG_BYTE_ARRAY || this.headerOnly ) {
+            this.nbt.skipPayload( type );
+            return;
+        }
+        int size = this.nbt.readLength();
+        this.legacy = true;
+        this.hasBlockData = true;
+        if ( ensureBlocks() ) {
+            decodeLegacyBlocks( this.nbt::readUnsignedByte, size );
+        } else {
+            this.pendingBlocks = new byte[size];
+            this.nbt.readFully( this.pendingBlocks );
+        }
+    }
+
+    private void readAddBlocks( int type ) throws IOException {
+        if ( type != TAG_BYTE_ARRAY || this.headerOnly ) {
+            this.nbt.skipPayload( type );
+            return;
+        }
+        int size = this.nbt.readLength();
+        if ( ensureBlocks() ) {
+            decodeAddBlocks( this.nbt::readUnsignedByte, size );
+        } else {
+            this.pendingAddBlocks = new byte[size];
+            this.nbt.readFully( this.pendingAddBlocks );
+        }
+    }
+
+    private void decodeVarInts( ByteSource source, int size ) throws IOException {
+        int index = 0;
+        int consumed = 0;
+        while ( consumed < size ) {
+            int value = 0;
+            int shift = 0;
+            int b;
+            do {
+                if ( shift >= 35 ) {
+                    throw new IOException( "VarInt too long in block data" );
+                }
+                b = source.next();
+                consumed++;
+                value |= ( b & 0x7F ) << shift;
+                shift += 7;
+            } while ( ( b & 0x80 ) != 0 && consumed < size );
+
+            if ( index >= this.blocks.length ) {
+                throw new IOException( "Block data exceeds the schematic volume" );
+            }
+            this.blocks[index++] = value;
+        }
+    }
+
+    private void decodeLegacyBlocks( ByteSource source, int size ) throws IOException {
+        for (int i = 0; i < size; i++) {
+            int id = source.next();
+            if ( i < this.blocks.length ) {
+                this.blocks[i] |= id;
+            }
+        }
+    }
+
+    private void decodeAddBlocks( ByteSource source, int size ) throws IOException {
+        for (int i = 0; i < size; i++) {
+            int add = source.next();
+            int index = i << 1;
+            if ( index < this.blocks.length ) {
+                this.blocks[index] |= ( add & 0x0F ) << 8;
+            }
+            if ( index + 1 < this.blocks.length ) {
+                this.blocks[index + 1] |= ( add & 0xF0 ) << 4;
+            }
+        }
+    }
+
+    private Clipboard finish() throws IOException {
+        if ( !this.hasBlockData ) {
+            throw new IOException( "Schematic contains no block data" );
+        }
+        if ( !ensureBlocks() ) {
+            throw new IOException( "Schematic has no dimensions" );
+        }
+        if ( this.pendingBlockData != null ) {
+            decodeVarInts( byteSource( this.pendingBlockData ), this.pendingBlockData.length );
+            this.pendingBlockData = null;
+        }
+        if ( this.pendingBlocks != null ) {
+            decodeLegacyBlocks( byteSource( this.pendingBlocks ), this.pendingBlocks.length );
+            this.pendingBlocks = null;
+        }
+        if ( this.pendingAddBlocks != null ) {
+            decodeAddBlocks( byteSource( this.pendingAddBlocks ), this.pendingAddBlocks.length );
+            this.pendingAddBlocks = null;
+        }
+
+        // Only ids which occur in the block data end up in the palette, so the names which have
+        // no GoMint block are exactly the blocks which will be missing after a paste
+        BlockPalette palette = new BlockPalette();
+        int[] remap;
+        if ( this.legacy ) {
+            remap = new int[LEGACY_ID_COUNT];
+        } else {
+            int max = -1;
+            for (int id : this.spongePalette.keySet()) {
+                max = Math.max( max, id );
+            }
+            remap = new int[max + 1];
+        }
+        Arrays.fill( remap, UNMAPPED );
+
+        for (int i = 0; i < this.blocks.length; i++) {
+            int raw = this.blocks[i];
+            if ( raw < 0 || raw >= remap.length ) {
+                throw new IOException( "Block " + i + " refers to unknown palette id " + raw );
+            }
+            int id = remap[raw];
+            if ( id == UNMAPPED ) {
+                id = remap[raw] = mapId( raw, palette );
+            }
+            this.blocks[i] = id;
+        }
+
+        // WorldEdit stores the absolute minimum corner as Sponge Offset, the offset to the paste
+        // origin is only found in its WEOffset tags
+        if ( this.worldEditOffset ) {
+            return new Clipboard( this.width, this.height, this.length, this.worldEditX, this.worldEditY, this.worldEditZ, palette, this.blocks );
+        }
+        return new Clipboard( this.width, this.height, this.length, this.offsetX, this.offsetY, this.offsetZ, palette, this.blocks );
+    }
+
+    private int mapId( int raw, BlockPalette palette ) throws IOException {
+        if ( this.legacy ) {
+            // Unknown legacy ids are kept under a placeholder name so they show up as unresolved
+            String name = BlockNames.fromLegacyId( raw );
+            return palette.getOrAdd( name == null ? "Legacy" + raw : name );
+        }
+        String name = this.spongePalette.get( raw );
+        if ( name == null ) {
+            throw new IOException( "Schematic refers to unknown palette id " + raw );
+        }
+        return palette.getOrAdd( name );
+    }
+
+    private static ByteSource byteSource( byte[] data ) {
+        int[] position = { 0 };
+        return () -> data[position[0]++] & 0xFF;
+    }
+
+    private interface ByteSource {
+        int next() throws IOException;
+    }
+
+}
@@ -0,0 +1,122 @@
+package de.theamychan.schematic.format;
+
+import de.theamychan.schematic.clipboard.BlockPalette;
+import de.theamychan.schematic.clipboard.Clipboard;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Streaming exporter for Sponge v2 and MCEdit schematics. Block data is encoded straight from the
+ * clipboard into the gzip stream.
+ */
+public final class NBTSchematicWriter {
+
+    private static final int SPONGE_VERSION = 2;
+    private static final int DATA_VERSION = 1631;
+
+    private NBTSchematicWriter() {
+    }
+
+    /**
+     * Write the clipboard as a Sponge v2 schematic. Positions which are not part of the clipboard
+     * are exported as air.
+     *
+     * @param clipboard the clipboard to export
+     * @param output    the target stream, closed when done
+     * @throws IOException if the stream can not be written
+     */
+    public static void writeSponge( Clipboard clipboard, OutputStream output ) throws IOException {
+        BlockPalette palette = clipboard.getPalette();
+        int air = palette.getId( "Air" );
+        int paletteSize = palette.size();
+        if ( air < 0 ) {
+            air = paletteSize++;
+        }
+
+        long dataLength = 0;
+        for (int i = 0; i < clipboard.getVolume(); i++) {
+            int id = clipboard.getBlock( i );
+            dataLength += NBTStreamWriter.varIntSize( id == Clipboard.EMPTY ? air : id );
+        }
+        if ( dataLength > Integer.MAX_VALUE ) {
+            throw new IOException( "Block data is too large for a byte array" );
+        }
+
+        try ( NBTStreamWriter nbt = new NBTStreamWriter( output ) ) {
+            nbt.beginCompound( "Schematic" );
+            nbt.writeInt( "Version", SPONGE_VERSION );
+            nbt.writeInt( "DataVersion", DATA_VERSION );
+            nbt.writeShort( "Width", clipboard.getWidth() );
+            nbt.writeShort( "Height", clipboard.getHeight() );
+            nbt.writeShort( "Length", clipboard.getLength() );
+            nbt.writeIntArray( "Offset", clipboard.getOffsetX(), clipboard.getOffsetY(), clipboard.getOffsetZ() );
+            // WorldEdit reads Offset as the minimum corner and the paste offset from here
+            nbt.beginCompound( "Metadata" );
+            nbt.writeInt( "WEOffsetX", clipboard.getOffsetX() );
+            nbt.writeInt( "WEOffsetY", clipboard.getOffsetY() );
+            nbt.writeInt( "WEOffsetZ", clipboard.getOffsetZ() );
+            nbt.endCompound();
+            nbt.writeInt( "PaletteMax", paletteSize );
+
+            nbt.beginCompound( "Palette" );
+            for (int id = 0; id < palette.size(); id++) {
+                nbt.writeInt( BlockNames.toMinecraft( palette.getName( id ) ), id );
+            }
+            if ( air == palette.size() ) {
+                nbt.writeInt( BlockNames.toMinecraft( "Air" ), air );
+            }
+            nbt.endCompound();
+
+            nbt.beginByteArray( "BlockData", (int) dataLength );
+            for (int i = 0; i < clipboard.getVolume(); i++) {
+                int id = clipboard.getBlock( i );
+                nbt.writeVarInt( id == Clipboard.EMPTY ? air : id );
+            }
+            nbt.writeEmptyList( "BlockEntities" );
+            nbt.endCompound();
+        }
+    }
+
+    /**
+     * Write the clipboard as an MCEdit schematic. Blocks without a legacy numeric id and positions
+     * which are not part of the clipboard are exported as air.
+     *
+     * @param clipboard the clipboard to export
+     * @param output    the target stream, closed when done
+     * @throws IOException if the stream can not be written
+     */
+    public static void writeMCEdit( Clipboard clipboard, OutputStream output ) throws IOException {
+        BlockPalette palette = clipboard.getPalette();
+        int[] legacyIds = new int[palette.size()];
+        for (int id = 0; id < legacyIds.length; id++) {
+            legacyIds[id] = Math.max( 0, BlockNames.toLegacyId( palette.getName( id ) ) );
+        }
+
+        try ( NBTStreamWriter nbt = new NBTStreamWriter( output ) ) {
+            nbt.beginCompound( "Schematic" );
+            nbt.writeShort( "Width", clipboard.getWidth() );
+            nbt.writeShort( "Height", clipboard.getHeight() );
+            nbt.writeShort( "Length", clipboard.getLength() );
+            nbt.writeString( "Materials", "Alpha" );
+
+            nbt.beginByteArray( "Blocks", clipboard.getVolume() );
+            for (int i = 0; i < clipboard.getVolume(); i++) {
+                int id = clipboard.getBlock( i );
+                nbt.writeRawByte( id == Clipboard.EMPTY ? 0 : legacyIds[id] );
+            }
+            nbt.beginByteArray( "Data", clipboard.getVolume() );
+            for (int i = 0; i < clipboard.getVolume(); i++) {
+                nbt.writeRawByte( 0 );
+            }
+
+            nbt.writeEmptyList( "Entities" );
+            nbt.writeEmptyList( "TileEntities" );
+            nbt.writeInt( "WEOffsetX", clipboard.getOffsetX() );
+            nbt.writeInt( "WEOffsetY", clipboard.getOffsetY() );
+            nbt.writeInt( "WEOffsetZ", clipboard.getOffsetZ() );
+            nbt.endCompound();
+        }
+    }
+
+}
@@ -0,0 +1,228 @@
+package de.theamychan.schematic.format;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Forward-only reader for the NBT format. Tags are consumed one at a time straight from the
+ * underlying stream and no tag tree is ever built, so callers decide which payloads to decode
+ * and which to skip.
+ */
+public class NBTStreamReader implements Closeable {
+
+    public static final int TAG_END = 0;
+    public static final int TAG_BYTE = 1;
+    public static final int TAG_SHORT = 2;
+    public static final int TAG_INT = 3;
+    public static final int TAG_LONG = 4;
+    public static final int TAG_FLOAT = 5;
+    public static final int TAG_DOUBLE = 6;
+    public static final int TAG_BYTE_ARRAY = 7;
+    public static final int TAG_STRING = 8;
+    public static final int TAG_LIST = 9;
+    public static final int TAG_COMPOUND = 10;
+    public static final int TAG_INT_ARRAY = 11;
+    public static final int TAG_LONG_ARRAY = 12;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final DataInputStream in;
+
+    /**
+     * Construct a reader for the given stream. Gzip compressed input is detected and
+     * decompressed on the fly.
+     *
+     * @param input the raw input
+     * @throws IOException if the stream header can not be read
+     */
+    public NBTStreamReader( InputStream input ) throws IOException {
+        InputStream buffered = new BufferedInputStream( input, BUFFER_SIZE );
+        if ( isGzip( buffered ) ) {
+            buffered = new BufferedInputStream( new GZIPInputStream( buffered, BUFFER_SIZE ), BUFFER_SIZE );
+        }
+        this.in = new DataInputStream( buffered );
+    }
+
+    /**
+     * Check if the next two bytes of the given stream are the gzip magic number without
+     * consuming them.
+     *
+     * @param in a stream supporting mark and reset
+     * @return true if the stream holds gzip compressed data
+     * @throws IOException if the stream can not be read
+     */
+    public static boolean isGzip( InputStream in ) throws IOException {
+        in.mark( 2 );
+        int first = in.read();
+        int second = in.read();
+        in.reset();
+        return first == 0x1f && second == 0x8b;
+    }
+
+    /**
+     * Get the uncompressed size of a gzip file from its trailer without decompressing it. The
+     * trailer only stores the size modulo 2^32, larger files are reported too small.
+     *
+     * @param file a gzip compressed file
+     * @return the uncompressed size in bytes
+     * @throws IOException if the file can not be read
+     */
+    public static long getUncompressedSize( File file ) throws IOException {
+        try ( RandomAccessFile input = new RandomAccessFile( file, "r" ) ) {
+            if ( input.length() < 4 ) {
+                throw new IOException( "Not a gzip file: " + file );
+            }
+            input.seek( input.length() - 4 );
+            long size = 0;
+            for (int i = 0; i < 4; i++) {
+                size |= (long) input.readUnsignedByte() << ( i * 8 );
+            }
+            return size;
+        }
+    }
+
+    public int readTagType() throws IOException {
+        return this.in.readUnsignedByte();
+    }
+
+    public String readTagName() throws IOException {
+        return this.in.readUTF();
+    }
+
+    public byte readByte() throws IOException {
+        return this.in.readByte();
+    }
+
+    public int readUnsignedByte() throws IOException {
+        return this.in.readUnsignedByte();
+    }
+
+    public short readShort() throws IOException {
+        return this.in.readShort();
+    }
+
+    public int readInt() throws IOException {
+        return this.in.readInt();
+    }
+
+    public String readString() throws IOException {
+        return this.in.readUTF();
+    }
+
+    /**
+     * Read the length prefix of a byte, int or long array, or of a list after its element type.
+     *
+     * @return the number of elements
+     * @throws IOException if the length is negative or can not be read
+     */
+    public int readLength() throws IOException {
+        int length = this.in.readInt();
+        if ( length < 0 ) {
+            throw new IOException( "Negative NBT length " + length );
+        }
+        return length;
+    }
+
+    /**
+     * Read a payload of the given type as an int. Shorts are read unsigned since they are only
+     * used for dimensions in the schematic formats.
+     *
+     * @param type the tag type
+     * @return the value
+     * @throws IOException if the type is not an integral number
+     */
+    public int readIntegral( int type ) throws IOException {
+        switch ( type ) {
+            case TAG_BYTE:
+                return this.in.readByte();
+            case TAG_SHORT:
+                return this.in.readUnsignedShort();
+            case TAG_INT:
+                return this.in.readInt();
+            default:
+                throw new IOException( "Expected an integral tag but got type " + type );
+        }
+    }
+
+    public void readFully( byte[] buffer ) throws IOException {
+        this.in.readFully( buffer );
+    }
+
+    /**
+     * Skip the payload of a tag of the given type, including all nested tags.
+     *
+     * @param type the tag type
+     * @throws IOException if the payload can not be read
+     */
+    public void skipPayload( int type ) throws IOException {
+        switch ( type ) {
+            case TAG_END:
+                return;
+            case TAG_BYTE:
+                skipBytes( 1 );
+                return;
+            case TAG_SHORT:
+                skipBytes( 2 );
+                return;
+            case TAG_INT:
+            case TAG_FLOAT:
+                skipBytes( 4 );
+                return;
+            case TAG_LONG:
+            case TAG_DOUBLE:
+                skipBytes( 8 );
+                return;
+            case TAG_BYTE_ARRAY:
+                skipBytes( readLength() );
+                return;
+            case TAG_STRING:
+                skipBytes( this.in.readUnsignedShort() );
+                return;
+            case TAG_LIST:
+                int elementType = readTagType();
+                int size = readLength();
+                for (int i = 0; i < size; i++) {
+                    skipPayload( elementType );
+                }
+                return;
+            case TAG_COMPOUND:
+                int childType;
+                while ( ( childType = readTagType() ) != TAG_END ) {
+                    skipBytes( this.in.readUnsignedShort() );
+                    skipPayload( childType );
+                }
+                return;
+            case TAG_INT_ARRAY:
+                skipBytes( readLength() * 4L );
+                return;
+            case TAG_LONG_ARRAY:
+                skipBytes( readLength() * 8L );
+                return;
+            default:
+                throw new IOException( "Unknown NBT tag type " + type );
+        }
+    }
+
+    private void skipBytes( long count ) throws IOException {
+        while ( count > 0 ) {
+            long skipped = this.in.skip( count );
+            if ( skipped <= 0 ) {
+                this.in.readByte();
+                skipped = 1;
+            }
+            count -= skipped;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.in.close();
+    }
+
+}
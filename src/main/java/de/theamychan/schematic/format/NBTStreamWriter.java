@@ -0,0 +1,119 @@
+package de.theamychan.schematic.format;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static de.theamychan.schematic.format.NBTStreamReader.*;
+
+/**
+ * Forward-only, gzip compressed NBT writer. Large arrays are written element by element so
+ * their content never has to be materialized as a separate byte array.
+ */
+public class NBTStreamWriter implements Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final DataOutputStream out;
+
+    public NBTStreamWriter( OutputStream output ) throws IOException {
+        this.out = new DataOutputStream( new BufferedOutputStream( new GZIPOutputStream( output, BUFFER_SIZE ), BUFFER_SIZE ) );
+    }
+
+    private void writeHeader( int type, String name ) throws IOException {
+        this.out.writeByte( type );
+        this.out.writeUTF( name );
+    }
+
+    public void beginCompound( String name ) throws IOException {
+        writeHeader( TAG_COMPOUND, name );
+    }
+
+    public void endCompound() throws IOException {
+        this.out.writeByte( TAG_END );
+    }
+
+    public void writeShort( String name, int value ) throws IOException {
+        writeHeader( TAG_SHORT, name );
+        this.out.writeShort( value );
+    }
+
+    public void writeInt( String name, int value ) throws IOException {
+        writeHeader( TAG_INT, name );
+        this.out.writeInt( value );
+    }
+
+    public void writeString( String name, String value ) throws IOException {
+        writeHeader( TAG_STRING, name );
+        this.out.writeUTF( value );
+    }
+
+    public void writeIntArray( String name, int... values ) throws IOException {
+        writeHeader( TAG_INT_ARRAY, name );
+        this.out.writeInt( values.length );
+        for (int value : values) {
+            this.out.writeInt( value );
+        }
+    }
+
+    /**
+     * Write an empty list of compounds.
+     *
+     * @param name the tag name
+     * @throws IOException if the stream can not be written
+     */
+    public void writeEmptyList( String name ) throws IOException {
+        writeHeader( TAG_LIST, name );
+        this.out.writeByte( TAG_COMPOUND );
+        this.out.writeInt( 0 );
+    }
+
+    /**
+     * Start a byte array of the given length. Exactly {@code length} bytes have to be written
+     * with {@link #writeRawByte(int)} or {@link #writeVarInt(int)} afterwards.
+     *
+     * @param name   the tag name
+     * @param length the number of bytes in the array
+     * @throws IOException if the stream can not be written
+     */
+    public void beginByteArray( String name, int length ) throws IOException {
+        writeHeader( TAG_BYTE_ARRAY, name );
+        this.out.writeInt( length );
+    }
+
+    public void writeRawByte( int value ) throws IOException {
+        this.out.writeByte( value );
+    }
+
+    public void writeVarInt( int value ) throws IOException {
+        while ( ( value & ~0x7F ) != 0 ) {
+            this.out.writeByte( ( value & 0x7F ) | 0x80 );
+            value >>>= 7;
+        }
+        this.out.writeByte( value );
+    }
+
+    /**
+     * Get the number of bytes {@link #writeVarInt(int)} needs for the given value.
+     *
+     * @param value the value
+     * @return the encoded size in bytes
+     */
+    public static int varIntSize( int value ) {
+        int size = 1;
+        while ( ( value & ~0x7F ) != 0 ) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.out.close();
+    }
+
+}
@@ -0,0 +1,339 @@
+package de.theamychan.schematic.format;
+
+import de.theamychan.schematic.clipboard.BlockPalette;
+import de.theamychan.schematic.clipboard.Clipboard;
+import de.theamychan.schematic.clipboard.PlacementPlan;
+import de.theamychan.schematic.jfr.SchematicEvents;
+import de.theamychan.schematic.util.Region;
+import lombok.Getter;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.Arrays;
+
+/**
+ * Reader for the plugin's own tiled format. The file starts with a small header (magic, version,
+ * dimensions, offset, palette and since version 2 the {@link PlacementPlan}), followed by an index holding the position and length of every
+ * 16x16x16 tile and then the tiles themselves as runs of palette ids. Because every tile can be
+ * found through the index, an area of a schematic can be read without touching the rest of the
+ * file. The header is parsed through a buffered stream and the index entries of a tile row are
+ * fetched with a single read, so opening a file and locating its tiles costs a handful of reads
+ * instead of one per value.
+ */
+public class TiledSchematicReader implements Closeable {
+
+    public static final byte[] MAGIC = { 'S', 'C', 'H', 'T' };
+    public static final int VERSION = 2;
+    public static final int TILE_SIZE = 16;
+    static final int INDEX_ENTRY_SIZE = 12;
+    private static final int HEADER_BUFFER_SIZE = 8192;
+
+    private final RandomAccessFile file;
+    private final String name;
+    @Getter
+    private final int width, height, length;
+    @Getter
+    private final int offsetX, offsetY, offsetZ;
+    @Getter
+    private final BlockPalette palette;
+    private final long planStart;
+    private PlacementPlan plan;
+    private final int tilesX, tilesY, tilesZ;
+    private final long indexStart;
+
+    /**
+     * Open a tiled schematic and read its header. The placement plan is only skipped here, it is
+     * decoded when it is asked for, so sizing a file never pays for its plan.
+     *
+     * @param file the schematic file
+     * @throws IOException if the file can not be read or is not a tiled schematic
+     */
+    public TiledSchematicReader( File file ) throws IOException {
+        this.file = new RandomAccessFile( file, "r" );
+        this.name = file.getName();
+        try {
+            // Not closed, closing it would close the file's channel as well
+            CountingInputStream counter = new CountingInputStream( new BufferedInputStream(
+                    Channels.newInputStream( this.file.getChannel().position( 0 ) ), HEADER_BUFFER_SIZE ) );
+            DataInputStream header = new DataInputStream( counter );
+            byte[] magic = new byte[MAGIC.length];
+            header.readFully( magic );
+            if ( !Arrays.equals( magic, MAGIC ) ) {
+                throw new IOException( "Not a tiled schematic: " + file );
+            }
+            int version = header.readInt();
+            if ( version < 1 || version > VERSION ) {
+                throw new IOException( "Unsupported tiled schematic version " + version );
+            }
+
+            this.width = header.readInt();
+            this.height = header.readInt();
+            this.length = header.readInt();
+            this.offsetX = header.readInt();
+            this.offsetY = header.readInt();
+            this.offsetZ = header.readInt();
+
+            this.palette = new BlockPalette();
+            int paletteSize = header.readInt();
+            for (int id = 0; id < paletteSize; id++) {
+                this.palette.getOrAdd( header.readUTF() );
+            }
+            this.tilesX = TiledSchematicWriter.tiles( this.width );
+            this.tilesY = TiledSchematicWriter.tiles( this.height );
+            this.tilesZ = TiledSchematicWriter.tiles( this.length );
+            if ( version >= 2 ) {
+                this.planStart = counter.count;
+                skipPlan( header, this.palette.size() );
+            } else {
+                this.planStart = -1;
+            }
+
+            this.indexStart = counter.count;
+        } catch ( IOException e ) {
+            this.file.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Check if a stream starts with the tiled format's magic. The stream has to support mark and
+     * reset and is left at its current position.
+     *
+     * @param input the stream to check
+     * @return true if the stream contains a tiled schematic
+     * @throws IOException if the stream can not be read
+     */
+    public static boolean isTiled( InputStream input ) throws IOException {
+        input.mark( MAGIC.length );
+        try {
+            for (byte expected : MAGIC) {
+                if ( input.read() != expected ) {
+                    return false;
+                }
+            }
+            return true;
+        } finally {
+            input.reset();
+        }
+    }
+
+    private void skipPlan( DataInputStream header, int paletteSize ) throws IOException {
+        int entries = header.readInt();
+        if ( entries < 0 || entries > (long) this.tilesX * this.tilesY * this.tilesZ ) {
+            throw new IOException( "Corrupted placement plan" );
+        }
+        long remaining = entries * 5L + paletteSize;
+        while ( remaining > 0 ) {
+            int skipped = header.skipBytes( (int) Math.min( remaining, Integer.MAX_VALUE ) );
+            if ( skipped <= 0 ) {
+                throw new IOException( "Corrupted placement plan" );
+            }
+            remaining -= skipped;
+        }
+    }
+
+    /**
+     * Get the placement plan stored with the schematic, reading it on first use.
+     *
+     * @return the plan or null if the file was written before plans were stored
+     * @throws IOException if the plan can not be read
+     */
+    public synchronized PlacementPlan getPlan() throws IOException {
+        if ( this.plan == null && this.planStart >= 0 ) {
+            this.file.seek( this.planStart );
+            DataInputStream input = new DataInputStream( new BufferedInputStream(
+                    Channels.newInputStream( this.file.getChannel() ), HEADER_BUFFER_SIZE ) );
+            this.plan = PlacementPlan.read( input, this.width, this.height, this.length, this.palette );
+        }
+        return this.plan;
+    }
+
+    /**
+     * Get the area covered by the schematic, relative to the paste origin.
+     *
+     * @return the covered area
+     */
+    public Region getRegion() {
+        return new Region( this.offsetX, this.offsetY, this.offsetZ,
+                this.offsetX + this.width - 1, this.offsetY + this.height - 1, this.offsetZ + this.length - 1 );
+    }
+
+    /**
+     * Read the whole schematic together with its placement plan, if the file has one.
+     *
+     * @return the decoded clipboard
+     * @throws IOException if the file can not be read
+     */
+    public Clipboard read() throws IOException {
+        Clipboard clipboard = read( getRegion() );
+        PlacementPlan plan = clipboard == null ? null : getPlan();
+        if ( plan != null ) {
+            clipboard.setPlan( plan );
+        }
+        return clipboard;
+    }
+
+    /**
+     * Read only the part of the schematic inside the given area. Only the tiles overlapping the
+     * area are read and decoded.
+     *
+     * @param region the area to read, relative to the paste origin
+     * @return a clipboard covering the overlap or null if the area does not overlap the schematic
+     * @throws IOException if the file can not be read
+     */
+    public Clipboard read( Region region ) throws IOException {
+        Region kept = getRegion().intersection( region );
+        if ( kept == null ) {
+            return null;
+        }
+        Object readEvent = SchematicEvents.beginFileRead();
+        long bytes = this.indexStart;
+
+        Clipboard clipboard = new Clipboard( kept.getSizeX(), kept.getSizeY(), kept.getSizeZ(),
+                kept.getMinX(), kept.getMinY(), kept.getMinZ() );
+        for (int id = 0; id < this.palette.size(); id++) {
+            clipboard.getPalette().getOrAdd( this.palette.getName( id ) );
+        }
+
+        // Positions of the kept area inside the schematic
+        int minX = kept.getMinX() - this.offsetX, maxX = kept.getMaxX() - this.offsetX;
+        int minY = kept.getMinY() - this.offsetY, maxY = kept.getMaxY() - this.offsetY;
+        int minZ = kept.getMinZ() - this.offsetZ, maxZ = kept.getMaxZ() - this.offsetZ;
+
+        byte[] data = new byte[256];
+        int[] ids = new int[TILE_SIZE * TILE_SIZE * TILE_SIZE];
+        int minTileX = minX / TILE_SIZE, maxTileX = maxX / TILE_SIZE;
+        ByteBuffer index = ByteBuffer.allocate( ( maxTileX - minTileX + 1 ) * INDEX_ENTRY_SIZE );
+        for (int ty = minY / TILE_SIZE; ty <= maxY / TILE_SIZE; ty++) {
+            for (int tz = minZ / TILE_SIZE; tz <= maxZ / TILE_SIZE; tz++) {
+                // The index entries of the tiles in this row are adjacent
+                this.file.seek( this.indexStart + (long) ( ( ty * this.tilesZ + tz ) * this.tilesX + minTileX ) * INDEX_ENTRY_SIZE );
+                this.file.readFully( index.array() );
+                index.clear();
+                bytes += index.capacity();
+                for (int tx = minTileX; tx <= maxTileX; tx++) {
+                    long offset = index.getLong();
+                    int size = index.getInt();
+                    if ( size == 0 ) {
+                        continue;
+                    }
+
+                    if ( data.length < size ) {
+                        data = new byte[size];
+                    }
+                    Object decodeEvent = SchematicEvents.beginSegmentDecode();
+                    this.file.seek( offset );
+                    this.file.readFully( data, 0, size );
+                    bytes += size;
+
+                    int fromX = tx * TILE_SIZE, toX = Math.min( this.width, fromX + TILE_SIZE );
+                    int fromY = ty * TILE_SIZE, toY = Math.min( this.height, fromY + TILE_SIZE );
+                    int fromZ = tz * TILE_SIZE, toZ = Math.min( this.length, fromZ + TILE_SIZE );
+                    decodeTile( data, size, ids, ( toX - fromX ) * ( toY - fromY ) * ( toZ - fromZ ) );
+
+                    int tileIndex = 0;
+                    for (int y = fromY; y < toY; y++) {
+                        for (int z = fromZ; z < toZ; z++) {
+                            for (int x = fromX; x < toX; x++, tileIndex++) {
+                                if ( x >= minX && x <= maxX && y >= minY && y <= maxY && z >= minZ && z <= maxZ ) {
+                                    clipboard.setBlock( x - minX, y - minY, z - minZ, ids[tileIndex] );
+                                }
+                            }
+                        }
+                    }
+
+                    if ( SchematicEvents.shouldCommit( decodeEvent ) ) {
+                        SchematicEvents.commitSegment( decodeEvent, this.name, ( ty * this.tilesZ + tz ) * this.tilesX + tx, size, tileIndex );
+                    }
+                }
+            }
+        }
+
+        if ( SchematicEvents.shouldCommit( readEvent ) ) {
+            SchematicEvents.commitFile( readEvent, this.name, "tiled", bytes, kept.getVolume() );
+        }
+        return clipboard;
+    }
+
+    private void decodeTile( byte[] data, int size, int[] ids, int cells ) throws IOException {
+        int position = 0, cell = 0;
+        while ( position < size ) {
+            int runLength = 0, id = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = data[position++];
+                runLength |= ( b & 0x7F ) << shift;
+                if ( b >= 0 ) {
+                    break;
+                }
+            }
+            for (int shift = 0; ; shift += 7) {
+                byte b = data[position++];
+                id |= ( b & 0x7F ) << shift;
+                if ( b >= 0 ) {
+                    break;
+                }
+            }
+            if ( cell + runLength > cells || id > this.palette.size() ) {
+                throw new IOException( "Corrupted tile data" );
+            }
+            Arrays.fill( ids, cell, cell + runLength, id - 1 );
+            cell += runLength;
+        }
+        if ( cell != cells ) {
+            throw new IOException( "Corrupted tile data" );
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.file.close();
+    }
+
+    /**
+     * Counts the bytes taken from a buffered stream, which tells where the header ends although
+     * the buffer has already read ahead.
+     */
+    private static final class CountingInputStream extends FilterInputStream {
+
+        private long count;
+
+        private CountingInputStream( InputStream in ) {
+            super( in );
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if ( b >= 0 ) {
+                this.count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read( byte[] b, int off, int len ) throws IOException {
+            int read = super.read( b, off, len );
+            if ( read > 0 ) {
+                this.count += read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip( long n ) throws IOException {
+            long skipped = super.skip( n );
+            this.count += skipped;
+            return skipped;
+        }
+
+    }
+
+}
@@ -0,0 +1,152 @@
+package de.theamychan.schematic.format;
+
+import de.theamychan.schematic.clipboard.BlockPalette;
+import de.theamychan.schematic.clipboard.Clipboard;
+import de.theamychan.schematic.clipboard.PlacementPlan;
+import de.theamychan.schematic.jfr.SchematicEvents;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+/**
+ * Writes the plugin's own tiled format, see {@link TiledSchematicReader} for the layout. Tiles
+ * are encoded one at a time, so only a single tile is buffered besides the tile index.
+ */
+public final class TiledSchematicWriter {
+
+    private TiledSchematicWriter() {
+    }
+
+    /**
+     * Write the clipboard into the given file, replacing its content. The placement plan is
+     * computed here, so pasting the schematic later does not have to.
+     *
+     * @param clipboard the clipboard to write
+     * @param file      the target file
+     * @throws IOException if the file can not be written
+     */
+    public static void write( Clipboard clipboard, File file ) throws IOException {
+        int tileSize = TiledSchematicReader.TILE_SIZE;
+        int tilesX = tiles( clipboard.getWidth() );
+        int tilesY = tiles( clipboard.getHeight() );
+        int tilesZ = tiles( clipboard.getLength() );
+        int tiles = tilesX * tilesY * tilesZ;
+        Object writeEvent = SchematicEvents.beginFileWrite();
+
+        try ( RandomAccessFile output = new RandomAccessFile( file, "rw" ) ) {
+            output.setLength( 0 );
+
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream( 8192 );
+            DataOutputStream header = new DataOutputStream( buffer );
+            header.write( TiledSchematicReader.MAGIC );
+            header.writeInt( TiledSchematicReader.VERSION );
+            header.writeInt( clipboard.getWidth() );
+            header.writeInt( clipboard.getHeight() );
+            header.writeInt( clipboard.getLength() );
+            header.writeInt( clipboard.getOffsetX() );
+            header.writeInt( clipboard.getOffsetY() );
+            header.writeInt( clipboard.getOffsetZ() );
+            BlockPalette palette = clipboard.getPalette();
+            header.writeInt( palette.size() );
+            for (int id = 0; id < palette.size(); id++) {
+                header.writeUTF( palette.getName( id ) );
+            }
+            PlacementPlan.compute( clipboard ).write( header );
+            output.write( buffer.toByteArray() );
+
+            long indexStart = output.getFilePointer();
+            long[] offsets = new long[tiles];
+            int[] lengths = new int[tiles];
+            output.seek( indexStart + (long) tiles * TiledSchematicReader.INDEX_ENTRY_SIZE );
+
+            for (int ty = 0; ty < tilesY; ty++) {
+                for (int tz = 0; tz < tilesZ; tz++) {
+                    for (int tx = 0; tx < tilesX; tx++) {
+                        Object encodeEvent = SchematicEvents.beginSegmentEncode();
+                        buffer.reset();
+                        int tile = ( ty * tilesZ + tz ) * tilesX + tx;
+                        if ( encodeTile( clipboard, tx * tileSize, ty * tileSize, tz * tileSize, buffer ) ) {
+                            offsets[tile] = output.getFilePointer();
+                            lengths[tile] = buffer.size();
+                            output.write( buffer.toByteArray() );
+                        }
+                        if ( SchematicEvents.shouldCommit( encodeEvent ) ) {
+                            SchematicEvents.commitSegment( encodeEvent, file.getName(), tile, lengths[tile],
+                                    (long) ( Math.min( clipboard.getWidth(), ( tx + 1 ) * tileSize ) - tx * tileSize )
+                                            * ( Math.min( clipboard.getHeight(), ( ty + 1 ) * tileSize ) - ty * tileSize )
+                                            * ( Math.min( clipboard.getLength(), ( tz + 1 ) * tileSize ) - tz * tileSize ) );
+                        }
+                    }
+                }
+            }
+
+            buffer.reset();
+            DataOutputStream index = new DataOutputStream( buffer );
+            for (int tile = 0; tile < tiles; tile++) {
+                index.writeLong( offsets[tile] );
+                index.writeInt( lengths[tile] );
+            }
+            output.seek( indexStart );
+            output.write( buffer.toByteArray() );
+
+            if ( SchematicEvents.shouldCommit( writeEvent ) ) {
+                SchematicEvents.commitFile( writeEvent, file.getName(), "tiled", output.length(), clipboard.getVolume() );
+            }
+        }
+    }
+
+    static int tiles( int size ) {
+        return ( size + TiledSchematicReader.TILE_SIZE - 1 ) / TiledSchematicReader.TILE_SIZE;
+    }
+
+    /**
+     * Encode one tile as runs of equal palette ids.
+     *
+     * @return false if the tile only contains empty positions and does not need to be stored
+     */
+    private static boolean encodeTile( Clipboard clipboard, int fromX, int fromY, int fromZ, ByteArrayOutputStream output ) {
+        int toX = Math.min( clipboard.getWidth(), fromX + TiledSchematicReader.TILE_SIZE );
+        int toY = Math.min( clipboard.getHeight(), fromY + TiledSchematicReader.TILE_SIZE );
+        int toZ = Math.min( clipboard.getLength(), fromZ + TiledSchematicReader.TILE_SIZE );
+
+        boolean empty = true;
+        int runId = 0, runLength = 0;
+        for (int y = fromY; y < toY; y++) {
+            for (int z = fromZ; z < toZ; z++) {
+                int index = clipboard.getIndex( fromX, y, z );
+                for (int x = fromX; x < toX; x++, index++) {
+                    int id = clipboard.getBlock( index ) + 1;
+                    empty &= id == 0;
+                    if ( id == runId ) {
+                        runLength++;
+                    } else {
+                        if ( runLength > 0 ) {
+                            writeVarInt( output, runLength );
+                            writeVarInt( output, runId );
+                        }
+                        runId = id;
+                        runLength = 1;
+                    }
+                }
+            }
+        }
+        if ( empty ) {
+            return false;
+        }
+        writeVarInt( output, runLength );
+        writeVarInt( output, runId );
+        return true;
+    }
+
+    private static void writeVarInt( ByteArrayOutputStream output, int value ) {
+        while ( ( value & ~0x7F ) != 0 ) {
+            output.write( ( value & 0x7F ) | 0x80 );
+            value >>>= 7;
+        }
+        output.write( value );
+    }
+
+}
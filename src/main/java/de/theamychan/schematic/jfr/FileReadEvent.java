@@ -0,0 +1,33 @@
+package de.theamychan.schematic.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A whole schematic file being read, including decoding its blocks.
+ */
+@Name( "de.theamychan.schematic.FileRead" )
+@Label( "Schematic File Read" )
+@Category( { "SchematicSystem", "I/O" } )
+@Description( "A schematic file being read and decoded" )
+@StackTrace( false )
+public class FileReadEvent extends jdk.jfr.Event {
+
+    @Label( "Schematic" )
+    public String schematic;
+
+    @Label( "Format" )
+    public String format;
+
+    @Label( "Bytes" )
+    @DataAmount
+    public long bytes;
+
+    @Label( "Positions" )
+    public long positions;
+
+}
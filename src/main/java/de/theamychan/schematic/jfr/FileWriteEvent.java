@@ -0,0 +1,33 @@
+package de.theamychan.schematic.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A whole schematic file being written, including encoding its blocks.
+ */
+@Name( "de.theamychan.schematic.FileWrite" )
+@Label( "Schematic File Write" )
+@Category( { "SchematicSystem", "I/O" } )
+@Description( "A schematic file being encoded and written" )
+@StackTrace( false )
+public class FileWriteEvent extends jdk.jfr.Event {
+
+    @Label( "Schematic" )
+    public String schematic;
+
+    @Label( "Format" )
+    public String format;
+
+    @Label( "Bytes" )
+    @DataAmount
+    public long bytes;
+
+    @Label( "Positions" )
+    public long positions;
+
+}
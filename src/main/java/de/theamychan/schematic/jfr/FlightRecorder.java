@@ -0,0 +1,104 @@
+package de.theamychan.schematic.jfr;
+
+import jdk.jfr.Event;
+
+/**
+ * Fills in and commits the events handed out by {@link SchematicEvents}. This class names the
+ * jdk.jfr API, so it is only loaded once {@link SchematicEvents} knows the API is there. Its
+ * signatures only use Object, which keeps the verifier of the facade from loading an event class.
+ */
+final class FlightRecorder {
+
+    private FlightRecorder() {
+    }
+
+    static Object beginJob() {
+        return begin( new JobEvent() );
+    }
+
+    static Object beginPlacementBatch() {
+        return begin( new PlacementBatchEvent() );
+    }
+
+    static Object beginFileRead() {
+        return begin( new FileReadEvent() );
+    }
+
+    static Object beginFileWrite() {
+        return begin( new FileWriteEvent() );
+    }
+
+    static Object beginSegmentDecode() {
+        return begin( new SegmentDecodeEvent() );
+    }
+
+    static Object beginSegmentEncode() {
+        return begin( new SegmentEncodeEvent() );
+    }
+
+    private static Object begin( Event event ) {
+        event.begin();
+        return event;
+    }
+
+    static boolean shouldCommit( Object event ) {
+        return ( (Event) event ).shouldCommit();
+    }
+
+    static void commitJob( Object event, String schematic, String world, boolean destroy, long positions, long blocksWritten ) {
+        JobEvent job = (JobEvent) event;
+        job.schematic = schematic;
+        job.world = world;
+        job.destroy = destroy;
+        job.positions = positions;
+        job.blocksWritten = blocksWritten;
+        job.commit();
+    }
+
+    static void commitPlacementBatch( Object event, String schematic, String world, int budget, int blocksRead, int blocksWritten ) {
+        PlacementBatchEvent batch = (PlacementBatchEvent) event;
+        batch.schematic = schematic;
+        batch.world = world;
+        batch.budget = budget;
+        batch.blocksRead = blocksRead;
+        batch.blocksWritten = blocksWritten;
+        batch.commit();
+    }
+
+    static void commitFile( Object event, String schematic, String format, long bytes, long positions ) {
+        if ( event instanceof FileReadEvent ) {
+            FileReadEvent read = (FileReadEvent) event;
+            read.schematic = schematic;
+            read.format = format;
+            read.bytes = bytes;
+            read.positions = positions;
+            read.commit();
+        } else {
+            FileWriteEvent write = (FileWriteEvent) event;
+            write.schematic = schematic;
+            write.format = format;
+            write.bytes = bytes;
+            write.positions = positions;
+            write.commit();
+        }
+    }
+
+    static void commitSegment( Object event, String schematic, int segment, long bytes, long positions ) {
+        if ( event instanceof SegmentDecodeEvent ) {
+            SegmentDecodeEvent decode = (SegmentDecodeEvent) event;
+            decode.schematic = schematic;
+            decode.segment = segment;
+            decode.bytes = bytes;
+            decode.positions = positions;
+            decode.commit();
+        } else {
+            SegmentEncodeEvent encode = (SegmentEncodeEvent) event;
+            encode.schematic = schematic;
+            encode.segment = segment;
+            encode.bytes = bytes;
+            encode.positions = positions;
+            encode.commit();
+        }
+    }
+
+}
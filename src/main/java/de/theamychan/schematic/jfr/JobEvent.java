@@ -0,0 +1,35 @@
+package de.theamychan.schematic.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Spans a paste or destroy job from the moment it is started until its last block is placed.
+ */
+@Name( "de.theamychan.schematic.Job" )
+@Label( "Schematic Job" )
+@Category( "SchematicSystem" )
+@Description( "A paste or destroy job from start to completion" )
+@StackTrace( false )
+public class JobEvent extends jdk.jfr.Event {
+
+    @Label( "Schematic" )
+    public String schematic;
+
+    @Label( "World" )
+    public String world;
+
+    @Label( "Destroy" )
+    public boolean destroy;
+
+    @Label( "Positions" )
+    @Description( "Number of positions of the pasted clipboard" )
+    public long positions;
+
+    @Label( "Blocks Written" )
+    public long blocksWritten;
+
+}
@@ -0,0 +1,35 @@
+package de.theamychan.schematic.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One slice of a job placed on the main thread during a tick.
+ */
+@Name( "de.theamychan.schematic.PlacementBatch" )
+@Label( "Schematic Placement Batch" )
+@Category( "SchematicSystem" )
+@Description( "Blocks of one job placed on the main thread during a single tick" )
+@StackTrace( false )
+public class PlacementBatchEvent extends jdk.jfr.Event {
+
+    @Label( "Schematic" )
+    public String schematic;
+
+    @Label( "World" )
+    public String world;
+
+    @Label( "Budget" )
+    public int budget;
+
+    @Label( "Blocks Read" )
+    @Description( "Positions whose current block was read to decide if it has to change" )
+    public int blocksRead;
+
+    @Label( "Blocks Written" )
+    public int blocksWritten;
+
+}
@@ -0,0 +1,114 @@
+package de.theamychan.schematic.jfr;
+
+/**
+ * The only way the rest of the plugin emits flight recorder events. The jdk.jfr API only exists
+ * on JDK 11 and 8u262 or later, so whether it is there is checked once; without it every method
+ * does nothing and the event classes of this package are never loaded. Events are passed around
+ * as plain Objects for the same reason, a caller never names an event class.
+ * <p>
+ * Commit methods have to be guarded with {@link #shouldCommit(Object)}, which keeps the values of
+ * a disabled event from being computed at all.
+ */
+public final class SchematicEvents {
+
+    private static final boolean AVAILABLE = isAvailable();
+
+    private SchematicEvents() {
+    }
+
+    private static boolean isAvailable() {
+        try {
+            Class.forName( "jdk.jfr.Event", false, SchematicEvents.class.getClassLoader() );
+            return true;
+        } catch ( ClassNotFoundException | LinkageError e ) {
+            return false;
+        }
+    }
+
+    /**
+     * Start timing a paste or destroy job.
+     *
+     * @return the event or null if the flight recorder is not available
+     */
+    public static Object beginJob() {
+        return AVAILABLE ? FlightRecorder.beginJob() : null;
+    }
+
+    /**
+     * Start timing one slice of a job placed during a tick.
+     *
+     * @return the event or null if the flight recorder is not available
+     */
+    public static Object beginPlacementBatch() {
+        return AVAILABLE ? FlightRecorder.beginPlacementBatch() : null;
+    }
+
+    /**
+     * Start timing a schematic file being read.
+     *
+     * @return the event or null if the flight recorder is not available
+     */
+    public static Object beginFileRead() {
+        return AVAILABLE ? FlightRecorder.beginFileRead() : null;
+    }
+
+    /**
+     * Start timing a schematic file being written.
+     *
+     * @return the event or null if the flight recorder is not available
+     */
+    public static Object beginFileWrite() {
+        return AVAILABLE ? FlightRecorder.beginFileWrite() : null;
+    }
+
+    /**
+     * Start timing one tile being decoded.
+     *
+     * @return the event or null if the flight recorder is not available
+     */
+    public static Object beginSegmentDecode() {
+        return AVAILABLE ? FlightRecorder.beginSegmentDecode() : null;
+    }
+
+    /**
+     * Start timing one tile or chunk column being encoded.
+     *
+     * @return the event or null if the flight recorder is not available
+     */
+    public static Object beginSegmentEncode() {
+        return AVAILABLE ? FlightRecorder.beginSegmentEncode() : null;
+    }
+
+    /**
+     * Check if an event is recorded and its values should be filled in.
+     *
+     * @param event the event returned by one of the begin methods
+     * @return false if the event is disabled or the flight recorder is not available
+     */
+    public static boolean shouldCommit( Object event ) {
+        return event != null && FlightRecorder.shouldCommit( event );
+    }
+
+    public static void commitJob( Object event, String schematic, String world, boolean destroy, long positions, long blocksWritten ) {
+        FlightRecorder.commitJob( event, schematic, world, destroy, positions, blocksWritten );
+    }
+
+    public static void commitPlacementBatch( Object event, String schematic, String world, int budget, int blocksRead, int blocksWritten ) {
+        FlightRecorder.commitPlacementBatch( event, schematic, world, budget, blocksRead, blocksWritten );
+    }
+
+    /**
+     * Commit a file read or file write event.
+     */
+    public static void commitFile( Object event, String schematic, String format, long bytes, long positions ) {
+        FlightRecorder.commitFile( event, schematic, format, bytes, positions );
+    }
+
+    /**
+     * Commit a segment decode or segment encode event.
+     */
+    public static void commitSegment( Object event, String schematic, int segment, long bytes, long positions ) {
+        FlightRecorder.commitSegment( event, schematic, segment, bytes, positions );
+    }
+
+}
@@ -0,0 +1,34 @@
+package de.theamychan.schematic.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One tile of a tiled schematic being decoded into a clipboard.
+ */
+@Name( "de.theamychan.schematic.SegmentDecode" )
+@Label( "Schematic Segment Decode" )
+@Category( "SchematicSystem" )
+@Description( "A tile of a schematic being decoded" )
+@StackTrace( false )
+public class SegmentDecodeEvent extends jdk.jfr.Event {
+
+    @Label( "Schematic" )
+    public String schematic;
+
+    @Label( "Segment" )
+    @Description( "Index of the tile or chunk column" )
+    public int segment;
+
+    @Label( "Bytes" )
+    @DataAmount
+    public long bytes;
+
+    @Label( "Positions" )
+    public long positions;
+
+}
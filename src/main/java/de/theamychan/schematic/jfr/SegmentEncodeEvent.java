@@ -0,0 +1,35 @@
+package de.theamychan.schematic.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One tile of a clipboard being encoded for the tiled format, or one chunk column of a capture
+ * being encoded into a clipboard.
+ */
+@Name( "de.theamychan.schematic.SegmentEncode" )
+@Label( "Schematic Segment Encode" )
+@Category( "SchematicSystem" )
+@Description( "A tile or chunk column being encoded" )
+@StackTrace( false )
+public class SegmentEncodeEvent extends jdk.jfr.Event {
+
+    @Label( "Schematic" )
+    public String schematic;
+
+    @Label( "Segment" )
+    @Description( "Index of the tile or chunk column" )
+    public int segment;
+
+    @Label( "Bytes" )
+    @DataAmount
+    public long bytes;
+
+    @Label( "Positions" )
+    public long positions;
+
+}
@@ -0,0 +1,21 @@
+package de.theamychan.schematic.listener;
+
+import de.theamychan.schematic.manager.SchematicManager;
+import io.gomint.event.EventHandler;
+import io.gomint.event.EventListener;
+import io.gomint.event.player.PlayerQuitEvent;
+
+public class PlayerQuitListener implements EventListener {
+
+    private final SchematicManager manager;
+
+    public PlayerQuitListener( SchematicManager manager ) {
+        this.manager = manager;
+    }
+
+    @EventHandler
+    public void onQuit( PlayerQuitEvent event ) {
+        manager.unload( event.getPlayer() );
+    }
+
+}
@@ -0,0 +1,229 @@
+package de.theamychan.schematic.manager;
+
+import lombok.Getter;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Decides whether a capture, load or paste may start. Every admitted job reserves its estimated
+ * memory (see {@link JobCost}) until it releases its {@link Ticket}. A job is refused outright if
+ * it could never fit into the per player or global quota, and queued if it only has to wait for
+ * other jobs to release their memory or for the heap to get enough headroom.
+ */
+public class AdmissionControl {
+
+    public enum Admission {
+        /**
+         * The job has been started.
+         */
+        STARTED,
+        /**
+         * The job waits until enough memory has been released and is started on the main thread.
+         */
+        QUEUED,
+        /**
+         * The job is larger than the quota and will never be started.
+         */
+        TOO_LARGE,
+        /**
+         * The heap is too full and there is no running job whose memory could be waited for, or
+         * the queue is full.
+         */
+        BUSY
+    }
+
+    /**
+     * Jobs estimated to run longer than this are refused.
+     */
+    private static final long MAX_JOB_MILLIS = 30 * 60 * 1000;
+    private static final int MAX_QUEUED = 16;
+
+    private final TickScheduler scheduler;
+    @Getter
+    private final long playerQuota;
+    @Getter
+    private final long globalQuota;
+    private final long minFreeHeap;
+    private final LongSupplier freeHeap;
+
+    private final Map<Object, Long> reserved = new HashMap<>();
+    private final Deque<Request> queue = new ArrayDeque<>();
+    private long totalReserved;
+
+    /**
+     * Construct an admission control sized after the maximum heap: a single player may reserve an
+     * eighth of it, all jobs together a third, and a tenth always has to stay free.
+     *
+     * @param scheduler the scheduler queued jobs are started with
+     */
+    public AdmissionControl( TickScheduler scheduler ) {
+        this( scheduler, Runtime.getRuntime().maxMemory() / 8, Runtime.getRuntime().maxMemory() / 3,
+                Runtime.getRuntime().maxMemory() / 10, AdmissionControl::getFreeHeap );
+    }
+
+    /**
+     * Construct an admission control with explicit limits.
+     *
+     * @param scheduler   the scheduler queued jobs are started with
+     * @param playerQuota the memory a single owner may reserve at once, in bytes
+     * @param globalQuota the memory all jobs together may reserve at once, in bytes
+     * @param minFreeHeap the heap which has to stay free after a job has been admitted, in bytes
+     * @param freeHeap    supplies the currently free heap in bytes
+     */
+    public AdmissionControl( TickScheduler scheduler, long playerQuota, long globalQuota, long minFreeHeap, LongSupplier freeHeap ) {
+        this.scheduler = scheduler;
+        this.playerQuota = playerQuota;
+        this.globalQuota = globalQuota;
+        this.minFreeHeap = minFreeHeap;
+        this.freeHeap = freeHeap;
+    }
+
+    private static long getFreeHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.maxMemory() - ( runtime.totalMemory() - runtime.freeMemory() );
+    }
+
+    /**
+     * Start a job now or as soon as its memory is available.
+     *
+     * @param owner     the owner the memory is accounted to, usually the player, or null to only
+     *                  account it to the global quota
+     * @param cost      the estimated cost of the job
+     * @param task      runs the job, either right away on the calling thread or later on the main
+     *                  thread. The job has to release the ticket when it has finished
+     * @param cancelled called on the main thread if a queued job can not be started after all
+     * @return what happened to the job
+     */
+    public Admission submit( Object owner, JobCost cost, Consumer<Ticket> task, Runnable cancelled ) {
+        Ticket ticket;
+        synchronized ( this ) {
+            if ( cost.getBytes() > this.globalQuota || ( owner != null && cost.getBytes() > this.playerQuota )
+                    || cost.getMillis() > MAX_JOB_MILLIS ) {
+                return Admission.TOO_LARGE;
+            }
+
+            if ( !this.queue.isEmpty() || !fits( owner, cost.getBytes() ) ) {
+                if ( this.totalReserved == 0 || this.queue.size() >= MAX_QUEUED ) {
+                    return Admission.BUSY;
+                }
+                this.queue.add( new Request( owner, cost.getBytes(), task, cancelled ) );
+                return Admission.QUEUED;
+            }
+            ticket = reserve( owner, cost.getBytes() );
+        }
+        task.accept( ticket );
+        return Admission.STARTED;
+    }
+
+    /**
+     * Get the memory currently reserved by the given owner.
+     *
+     * @param owner the owner
+     * @return the reserved memory in bytes
+     */
+    public synchronized long getReserved( Object owner ) {
+        return this.reserved.getOrDefault( owner, 0L );
+    }
+
+    public synchronized long getTotalReserved() {
+        return this.totalReserved;
+    }
+
+    public synchronized int getQueued() {
+        return this.queue.size();
+    }
+
+    private boolean fits( Object owner, long bytes ) {
+        if ( this.totalReserved + bytes > this.globalQuota ) {
+            return false;
+        }
+        if ( owner != null && getReserved( owner ) + bytes > this.playerQuota ) {
+            return false;
+        }
+        return this.freeHeap.getAsLong() - bytes >= this.minFreeHeap;
+    }
+
+    private Ticket reserve( Object owner, long bytes ) {
+        if ( owner != null ) {
+            this.reserved.merge( owner, bytes, Long::sum );
+        }
+        this.totalReserved += bytes;
+        return new Ticket( owner, bytes );
+    }
+
+    private void release( Ticket ticket ) {
+        synchronized ( this ) {
+            if ( ticket.owner != null ) {
+                this.reserved.computeIfPresent( ticket.owner, ( owner, bytes ) -> bytes <= ticket.bytes ? null : bytes - ticket.bytes );
+            }
+            this.totalReserved -= ticket.bytes;
+
+            // Start waiting jobs in order, a job from an owner over its quota does not hold up the others
+            Iterator<Request> iterator = this.queue.iterator();
+            while ( iterator.hasNext() ) {
+                Request request = iterator.next();
+                if ( fits( request.owner, request.bytes ) ) {
+                    iterator.remove();
+                    Ticket next = reserve( request.owner, request.bytes );
+                    this.scheduler.execute( () -> request.task.accept( next ) );
+                } else if ( this.totalReserved == 0 ) {
+                    iterator.remove();
+                    this.scheduler.execute( request.cancelled );
+                }
+            }
+        }
+    }
+
+    private static final class Request {
+
+        private final Object owner;
+        private final long bytes;
+        private final Consumer<Ticket> task;
+        private final Runnable cancelled;
+
+        private Request( Object owner, long bytes, Consumer<Ticket> task, Runnable cancelled ) {
+            this.owner = owner;
+            this.bytes = bytes;
+            this.task = task;
+            this.cancelled = cancelled;
+        }
+
+    }
+
+    /**
+     * The memory reserved by an admitted job.
+     */
+    public final class Ticket {
+
+        private final Object owner;
+        private final long bytes;
+        private boolean released;
+
+        private Ticket( Object owner, long bytes ) {
+            this.owner = owner;
+            this.bytes = bytes;
+        }
+
+        /**
+         * Give the reserved memory back and start queued jobs which fit now. Further calls do
+         * nothing.
+         */
+        public void release() {
+            synchronized ( AdmissionControl.this ) {
+                if ( this.released ) {
+                    return;
+                }
+                this.released = true;
+            }
+            AdmissionControl.this.release( this );
+        }
+
+    }
+
+}
@@ -0,0 +1,35 @@
+package de.theamychan.schematic.manager;
+
+import io.gomint.scheduler.Scheduler;
+import io.gomint.scheduler.Task;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link TickScheduler} backed by the scheduler of a GoMint plugin.
+ */
+public class GoMintTickScheduler implements TickScheduler {
+
+    private final Scheduler scheduler;
+
+    public GoMintTickScheduler( Scheduler scheduler ) {
+        this.scheduler = scheduler;
+    }
+
+    @Override
+    public void execute( Runnable runnable ) {
+        scheduler.execute( runnable );
+    }
+
+    @Override
+    public void executeAsync( Runnable runnable ) {
+        scheduler.executeAsync( runnable );
+    }
+
+    @Override
+    public Handle scheduleRepeating( Runnable runnable, long period, TimeUnit unit ) {
+        Task task = scheduler.schedule( runnable, 0, period, unit );
+        return task::cancel;
+    }
+
+}
@@ -0,0 +1,89 @@
+package de.theamychan.schematic.manager;
+
+import de.theamychan.schematic.util.RegionIndex;
+import io.gomint.server.world.WorldAdapter;
+import io.gomint.world.Chunk;
+import io.gomint.world.World;
+import io.gomint.world.block.Block;
+import lombok.Getter;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link WorldAccess} backed by a GoMint world. Pinned chunks are loaded (and generated if
+ * needed) by the server's asynchronous chunk loader through {@link WorldAdapter#getOrLoadChunk},
+ * so the main thread never waits for chunk I/O, and kept referenced until they are unpinned.
+ */
+public class GoMintWorldAccess implements WorldAccess {
+
+    @Getter
+    private final World world;
+    private final Map<Class<?>, String> names = new ConcurrentHashMap<>();
+    private final Map<Long, Chunk> pinned = new HashMap<>();
+    private final Map<Long, Integer> pins = new HashMap<>();
+
+    public GoMintWorldAccess( World world ) {
+        this.world = world;
+    }
+
+    @Override
+    public String getName() {
+        return world.getWorldName();
+    }
+
+    @Override
+    public String getBlockName( int x, int y, int z ) {
+        return nameOf( world.getBlockAt( x, y, z ) );
+    }
+
+    @Override
+    public ChunkView getChunk( int chunkX, int chunkZ ) {
+        Chunk chunk = world.getChunk( chunkX, chunkZ );
+        return ( x, y, z ) -> nameOf( chunk.getBlockAt( x, y, z ) );
+    }
+
+    private String nameOf( Block block ) {
+        return names.computeIfAbsent( block.getClass(), Class::getSimpleName );
+    }
+
+    @Override
+    public void setBlock( int x, int y, int z, Class<? extends Block> type ) {
+        world.getBlockAt( x, y, z ).setType( type );
+    }
+
+    @Override
+    public void pinChunk( int chunkX, int chunkZ, Runnable loaded ) {
+        long key = RegionIndex.chunkKey( chunkX, chunkZ );
+        synchronized ( this ) {
+            Integer count = pins.get( key );
+            pins.put( key, count == null ? 1 : count + 1 );
+        }
+        // Answered right away for chunks which are in memory already, otherwise from the loader thread
+        ( (WorldAdapter) world ).getOrLoadChunk( chunkX, chunkZ, true, chunk -> {
+            synchronized ( this ) {
+                if ( pins.containsKey( key ) ) {
+                    pinned.put( key, chunk );
+                }
+            }
+            loaded.run();
+        } );
+    }
+
+    @Override
+    public synchronized void unpinChunk( int chunkX, int chunkZ ) {
+        long key = RegionIndex.chunkKey( chunkX, chunkZ );
+        Integer count = pins.get( key );
+        if ( count == null ) {
+            return;
+        }
+        if ( count <= 1 ) {
+            pins.remove( key );
+            pinned.remove( key );
+        } else {
+            pins.put( key, count - 1 );
+        }
+    }
+
+}
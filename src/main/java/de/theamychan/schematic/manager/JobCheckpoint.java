@@ -0,0 +1,210 @@
+package de.theamychan.schematic.manager;
+
+import de.theamychan.schematic.util.Region;
+import lombok.Getter;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.UUID;
+
+/**
+ * Progress of a paste or destroy job stored in the data folder, so the job can be resumed after
+ * the server was stopped before it finished. The checkpoint names the schematic file together
+ * with its size and modification time, which allows to refuse resuming a schematic which has been
+ * changed in the meantime. The cursor counts the steps of the job's placement plan; checkpoints
+ * written for another step order start over, which only costs reads since placed blocks are
+ * skipped.
+ */
+public class JobCheckpoint {
+
+    private static final String EXTENSION = ".job";
+    private static final String ORDER = "columns";
+
+    private final File file;
+    @Getter
+    private final String id;
+    @Getter
+    private final String schematic;
+    @Getter
+    private final long schematicSize, schematicModified;
+    @Getter
+    private final String worldName;
+    @Getter
+    private final int originX, originY, originZ;
+    @Getter
+    private final Region region;
+    @Getter
+    private final boolean destroy;
+    @Getter
+    private final PasteMask mask;
+    private volatile long cursor;
+    private volatile long written;
+    private boolean finished;
+
+    private JobCheckpoint( File file, String id, String schematic, long schematicSize, long schematicModified, String worldName,
+                           int originX, int originY, int originZ, Region region, boolean destroy, PasteMask mask, long cursor, long written ) {
+        this.file = file;
+        this.id = id;
+        this.schematic = schematic;
+        this.schematicSize = schematicSize;
+        this.schematicModified = schematicModified;
+        this.worldName = worldName;
+        this.originX = originX;
+        this.originY = originY;
+        this.originZ = originZ;
+        this.region = region;
+        this.destroy = destroy;
+        this.mask = mask;
+        this.cursor = cursor;
+        this.written = written;
+    }
+
+    /**
+     * Create a checkpoint for a new job. Nothing is written until {@link #save(long, long)} is called.
+     *
+     * @param folder         the folder holding the checkpoints
+     * @param schematic      the name of the schematic without extension
+     * @param schematicFile  the file the schematic is read from
+     * @param worldName      the name of the target world
+     * @param originX        X co-ordinate of the paste origin
+     * @param originY        Y co-ordinate of the paste origin
+     * @param originZ        Z co-ordinate of the paste origin
+     * @param region         the pasted area relative to the origin, or null for the whole schematic
+     * @param destroy        whether the job replaces the schematic with air
+     * @param mask           the mask the job pastes with
+     * @return the new checkpoint
+     */
+    public static JobCheckpoint create( File folder, String schematic, File schematicFile, String worldName,
+                                        int originX, int originY, int originZ, Region region, boolean destroy, PasteMask mask ) {
+        String id = UUID.randomUUID().toString().substring( 0, 8 );
+        return new JobCheckpoint( new File( folder, id + EXTENSION ), id, schematic, schematicFile.length(), schematicFile.lastModified(),
+                worldName, originX, originY, originZ, region, destroy, mask, 0, 0 );
+    }
+
+    /**
+     * Read all checkpoints in the given folder. Unreadable files are skipped.
+     *
+     * @param folder the folder holding the checkpoints
+     * @return the stored checkpoints
+     */
+    public static List<JobCheckpoint> loadAll( File folder ) {
+        List<JobCheckpoint> checkpoints = new ArrayList<>();
+        File[] files = folder.listFiles( ( dir, name ) -> name.endsWith( EXTENSION ) );
+        if ( files == null ) {
+            return checkpoints;
+        }
+
+        for (File file : files) {
+            Properties properties = new Properties();
+            try ( InputStream input = new FileInputStream( file ) ) {
+                properties.load( input );
+                String id = file.getName().substring( 0, file.getName().length() - EXTENSION.length() );
+                String region = properties.getProperty( "region" );
+                String exclude = properties.getProperty( "exclude", "" );
+                boolean planned = ORDER.equals( properties.getProperty( "order" ) );
+                checkpoints.add( new JobCheckpoint( file, id,
+                        properties.getProperty( "schematic" ),
+                        Long.parseLong( properties.getProperty( "schematicSize" ) ),
+                        Long.parseLong( properties.getProperty( "schematicModified" ) ),
+                        properties.getProperty( "world" ),
+                        Integer.parseInt( properties.getProperty( "x" ) ),
+                        Integer.parseInt( properties.getProperty( "y" ) ),
+                        Integer.parseInt( properties.getProperty( "z" ) ),
+                        region == null ? null : parseRegion( region ),
+                        Boolean.parseBoolean( properties.getProperty( "destroy" ) ),
+                        new PasteMask( Boolean.parseBoolean( properties.getProperty( "onlyAir" ) ),
+                                exclude.isEmpty() ? Collections.emptyList() : Arrays.asList( exclude.split( "," ) ) ),
+                        planned ? Long.parseLong( properties.getProperty( "cursor" ) ) : 0,
+                        Long.parseLong( properties.getProperty( "written", "0" ) ) ) );
+            } catch ( IOException | RuntimeException e ) {
+                e.printStackTrace();
+            }
+        }
+        return checkpoints;
+    }
+
+    private static Region parseRegion( String region ) {
+        String[] data = region.split( "," );
+        return new Region( Integer.parseInt( data[0] ), Integer.parseInt( data[1] ), Integer.parseInt( data[2] ),
+                Integer.parseInt( data[3] ), Integer.parseInt( data[4] ), Integer.parseInt( data[5] ) );
+    }
+
+    public long getCursor() {
+        return this.cursor;
+    }
+
+    public long getWritten() {
+        return this.written;
+    }
+
+    /**
+     * Check if the given file is still the schematic this checkpoint was made for.
+     *
+     * @param schematicFile the current schematic file
+     * @return true if size and modification time are unchanged
+     */
+    public boolean matches( File schematicFile ) {
+        return schematicFile != null && schematicFile.length() == this.schematicSize && schematicFile.lastModified() == this.schematicModified;
+    }
+
+    /**
+     * Write the checkpoint with the given progress. The file is replaced atomically, so a crash
+     * while writing leaves the previous checkpoint intact. Does nothing once the checkpoint has
+     * been deleted.
+     *
+     * @param cursor  the number of placement plan steps which have been processed
+     * @param written the number of blocks which have been placed so far
+     */
+    public synchronized void save( long cursor, long written ) {
+        if ( this.finished ) {
+            return;
+        }
+        this.cursor = cursor;
+        this.written = written;
+
+        Properties properties = new Properties();
+        properties.setProperty( "schematic", this.schematic );
+        properties.setProperty( "schematicSize", String.valueOf( this.schematicSize ) );
+        properties.setProperty( "schematicModified", String.valueOf( this.schematicModified ) );
+        properties.setProperty( "world", this.worldName );
+        properties.setProperty( "x", String.valueOf( this.originX ) );
+        properties.setProperty( "y", String.valueOf( this.originY ) );
+        properties.setProperty( "z", String.valueOf( this.originZ ) );
+        if ( this.region != null ) {
+            properties.setProperty( "region", this.region.getMinX() + "," + this.region.getMinY() + "," + this.region.getMinZ() + ","
+                    + this.region.getMaxX() + "," + this.region.getMaxY() + "," + this.region.getMaxZ() );
+        }
+        properties.setProperty( "destroy", String.valueOf( this.destroy ) );
+        properties.setProperty( "onlyAir", String.valueOf( this.mask.isOnlyAir() ) );
+        properties.setProperty( "exclude", String.join( ",", this.mask.getExcluded() ) );
+        properties.setProperty( "order", ORDER );
+        properties.setProperty( "cursor", String.valueOf( cursor ) );
+        properties.setProperty( "written", String.valueOf( written ) );
+
+        File temp = new File( this.file.getParentFile(), this.file.getName() + ".tmp" );
+        try {
+            this.file.getParentFile().mkdirs();
+            try ( OutputStream output = new FileOutputStream( temp ) ) {
+                properties.store( output, null );
+            }
+            Files.move( temp.toPath(), this.file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+        } catch ( IOException e ) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Remove the checkpoint once its job has finished or is abandoned.
+     */
+    public synchronized void delete() {
+        this.finished = true;
+        this.file.delete();
+    }
+
+}
@@ -0,0 +1,166 @@
+package de.theamychan.schematic.manager;
+
+import de.theamychan.schematic.clipboard.ClipboardCapture;
+import de.theamychan.schematic.clipboard.PlacementPlan;
+import de.theamychan.schematic.util.Region;
+import lombok.Getter;
+
+/**
+ * Estimated memory and time a job needs, computed from the volume of a selection or from the
+ * header of a schematic file before any block is touched. The figures are deliberately rough,
+ * they only have to be good enough to tell a job which fits from one which would exhaust the
+ * heap.
+ */
+public final class JobCost {
+
+    /**
+     * A clipboard stores one int per position.
+     */
+    public static final long BYTES_PER_BLOCK = 4;
+
+    /**
+     * A chunk copy stores one short per position, see {@link WorldAccess#snapshotChunk}.
+     */
+    public static final long SNAPSHOT_BYTES_PER_BLOCK = 2;
+
+    /**
+     * Rough heap of a loaded chunk column, mostly the block storage of its sections.
+     */
+    public static final long PINNED_COLUMN_BYTES = 64 * 1024;
+    private static final long PLAN_BYTES_PER_TILE = 5;
+
+    private static final long CAPTURE_BLOCKS_PER_MILLI = 5000;
+    private static final long DECODE_BLOCKS_PER_MILLI = 3000;
+    private static final long PLACE_BLOCKS_PER_MILLI = PlacementEngine.BLOCKS_PER_TICK / 50;
+
+    /**
+     * Every line of the text format becomes a String in a list before it is parsed.
+     */
+    private static final long TEXT_BYTES_PER_LINE = 64;
+    private static final long TEXT_MIN_LINE_LENGTH = 10;
+
+    public static final JobCost NONE = new JobCost( 0, 0, 0 );
+
+    @Getter
+    private final long volume;
+    @Getter
+    private final long bytes;
+    @Getter
+    private final long millis;
+
+    public JobCost( long volume, long bytes, long millis ) {
+        this.volume = volume;
+        this.bytes = bytes;
+        this.millis = millis;
+    }
+
+    /**
+     * Cost of copying an area of a world into a clipboard. Besides the clipboard itself the
+     * chunk column copies waiting for encoding are held, at most
+     * {@link ClipboardCapture#MAX_PENDING_POSITIONS} plus one tick's worth and one column at a time.
+     *
+     * @param region the area to copy
+     * @return the estimated cost
+     */
+    public static JobCost capture( Region region ) {
+        long volume = region.getVolume();
+        long columns = (long) ( ( region.getMaxX() >> 4 ) - ( region.getMinX() >> 4 ) + 1 ) * ( ( region.getMaxZ() >> 4 ) - ( region.getMinZ() >> 4 ) + 1 );
+        long snapshots = Math.min( columns * 256 * region.getSizeY(),
+                ClipboardCapture.MAX_PENDING_POSITIONS + ClipboardCapture.SNAPSHOT_POSITIONS_PER_TICK + 256L * region.getSizeY() );
+        return new JobCost( volume, volume * BYTES_PER_BLOCK + snapshots * SNAPSHOT_BYTES_PER_BLOCK, volume / CAPTURE_BLOCKS_PER_MILLI );
+    }
+
+    /**
+     * Cost of placing a clipboard which is already in memory, whose dimensions are not known.
+     * The footprint is estimated as a cube of the same volume.
+     *
+     * @param volume the number of positions of the clipboard
+     * @return the estimated cost
+     */
+    public static JobCost paste( long volume ) {
+        long side = (long) Math.ceil( Math.cbrt( volume ) );
+        long columns = ( ( side + 15 ) / 16 + 1 ) * ( ( side + 15 ) / 16 + 1 );
+        return paste( volume, columns, false );
+    }
+
+    /**
+     * Cost of placing a clipboard which is already in memory.
+     *
+     * @param region  the area covered by the clipboard
+     * @param cropped whether only a part of the clipboard is pasted, which copies that part first
+     * @return the estimated cost
+     */
+    public static JobCost paste( Region region, boolean cropped ) {
+        long columns = (long) ( ( region.getMaxX() >> 4 ) - ( region.getMinX() >> 4 ) + 2 ) * ( ( region.getMaxZ() >> 4 ) - ( region.getMinZ() >> 4 ) + 2 );
+        return paste( region.getVolume(), columns, cropped );
+    }
+
+    /**
+     * The job holds a placement plan (an int and a byte per 16x16x16 tile) and keeps every chunk
+     * column of its footprint pinned; the footprint may start anywhere inside a chunk, so one
+     * extra column is counted along each axis.
+     */
+    private static JobCost paste( long volume, long columns, boolean cropped ) {
+        long tiles = ( volume + PlacementPlan.CELLS - 1 ) / PlacementPlan.CELLS;
+        long bytes = tiles * PLAN_BYTES_PER_TILE + columns * PINNED_COLUMN_BYTES + ( cropped ? volume * BYTES_PER_BLOCK : 0 );
+        return new JobCost( volume, bytes, volume / PLACE_BLOCKS_PER_MILLI );
+    }
+
+    /**
+     * Cost of reading a schematic in the tiled format, whose dimensions are known from its header.
+     *
+     * @param volume the number of positions of the schematic
+     * @return the estimated cost
+     */
+    public static JobCost loadTiled( long volume ) {
+        return new JobCost( volume, volume * BYTES_PER_BLOCK, volume / DECODE_BLOCKS_PER_MILLI );
+    }
+
+    /**
+     * Cost of importing a Sponge or MCEdit schematic. Both store at least one byte per position,
+     * so the uncompressed size of the file bounds the volume, and the decoded arrays are held
+     * next to the clipboard while it is built.
+     *
+     * @param uncompressedSize the uncompressed size of the file in bytes
+     * @return the estimated cost
+     */
+    public static JobCost loadNBT( long uncompressedSize ) {
+        return new JobCost( uncompressedSize, uncompressedSize * ( 1 + BYTES_PER_BLOCK ), uncompressedSize / DECODE_BLOCKS_PER_MILLI );
+    }
+
+    /**
+     * Cost of reading a schematic in the old text format, which stores one line per position.
+     *
+     * @param fileSize the size of the file in bytes
+     * @return the estimated cost
+     */
+    public static JobCost loadText( long fileSize ) {
+        long volume = fileSize / TEXT_MIN_LINE_LENGTH;
+        return new JobCost( volume, volume * ( BYTES_PER_BLOCK + TEXT_BYTES_PER_LINE ) + fileSize * 2, volume / DECODE_BLOCKS_PER_MILLI );
+    }
+
+    /**
+     * Cost of merging two schematics. Both are held while the result is built over the whole
+     * bounds of the merge, which can be far larger than both schematics together when they are
+     * apart.
+     *
+     * @param first  the cost of reading the first schematic
+     * @param second the cost of reading the second schematic
+     * @param bounds the area of the result, or null if the result is empty
+     * @return the estimated cost
+     */
+    public static JobCost merge( JobCost first, JobCost second, Region bounds ) {
+        long volume = bounds == null ? 0 : bounds.getVolume();
+        return first.plus( second ).plus( new JobCost( volume, volume * BYTES_PER_BLOCK, 0 ) );
+    }
+
+    public JobCost plus( JobCost other ) {
+        return new JobCost( Math.max( this.volume, other.volume ), this.bytes + other.bytes, this.millis + other.millis );
+    }
+
+    @Override
+    public String toString() {
+        return "JobCost: " + this.volume + " blocks, " + ( this.bytes >> 20 ) + " MB, " + this.millis + " ms";
+    }
+
+}
@@ -0,0 +1,314 @@
+package de.theamychan.schematic.manager;
+
+import de.theamychan.schematic.clipboard.BlockPalette;
+import de.theamychan.schematic.clipboard.Clipboard;
+import de.theamychan.schematic.clipboard.PlacementPlan;
+import de.theamychan.schematic.jfr.SchematicEvents;
+import de.theamychan.schematic.util.Cuboid;
+import de.theamychan.schematic.util.Region;
+import io.gomint.world.block.Block;
+import io.gomint.world.block.BlockAir;
+import lombok.Getter;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * A single paste or destroy operation. The chunks of the target area are pinned first, which has
+ * the server load them off the main thread, and the job is only handed to the
+ * {@link PlacementEngine} once every one of them has arrived, so the placement ticks never wait
+ * for chunk I/O.
+ * Before a block is written the job looks at the block which is already there and skips every
+ * position that would not change, so re-pasting or replacing only issues the real changes.
+ * Blocks are placed in the order of the clipboard's {@link PlacementPlan}: column by column, and
+ * within a column support blocks before the blocks attached to them and fluids last. A destroy job
+ * walks the phases of a column the other way round, so nothing drops because its support was
+ * removed first.
+ */
+public class PasteJob {
+
+    private static final long CHECKPOINT_INTERVAL = 5000;
+    private static final String AIR = "Air";
+
+    /**
+     * Unchanged positions still have to be read, this bounds how many of them a single tick may
+     * look at per block of its budget.
+     */
+    private static final int READS_PER_BLOCK = 4;
+
+    /**
+     * Steps of the plan which are skipped without a read (empty positions, blocks of another
+     * phase) are cheap but not free, this bounds how many a single tick may walk over.
+     */
+    private static final int STEPS_PER_BLOCK = 64;
+
+    private final TickScheduler scheduler;
+    private final PlacementEngine engine;
+    @Getter
+    private final WorldAccess world;
+    private final int baseX, baseY, baseZ;
+    private final Clipboard clipboard;
+    private final Class<? extends Block>[] types;
+    private final String[] names;
+    private final String required;
+    private final Consumer<Boolean> consumer;
+    @Getter
+    private final Cuboid footprint;
+    private final boolean destroy;
+    private Object event;
+    @Getter
+    private String schematic;
+    private long written;
+
+    private boolean pinned;
+    private PlacementPlan plan;
+    private long cursor;
+    @Getter
+    private JobCheckpoint checkpoint;
+    private long lastCheckpoint;
+    private WorldAccess.ChunkView chunk;
+    private int chunkX, chunkZ;
+
+    @SuppressWarnings( "unchecked" )
+    PasteJob( TickScheduler scheduler, PlacementEngine engine, WorldAccess world, int originX, int originY, int originZ,
+              Clipboard clipboard, boolean destroy, PasteMask mask, Consumer<Boolean> consumer ) {
+        this.scheduler = scheduler;
+        this.engine = engine;
+        this.world = world;
+        this.baseX = originX + clipboard.getOffsetX();
+        this.baseY = originY + clipboard.getOffsetY();
+        this.baseZ = originZ + clipboard.getOffsetZ();
+        this.clipboard = clipboard;
+        this.consumer = consumer;
+        this.destroy = destroy;
+        this.required = mask.isOnlyAir() ? AIR : mask.getReplaced();
+
+        BlockPalette palette = clipboard.getPalette();
+        this.names = new String[palette.size()];
+        if ( destroy ) {
+            this.types = new Class[palette.size()];
+            Arrays.fill( this.types, BlockAir.class );
+            Arrays.fill( this.names, AIR );
+        } else {
+            this.types = palette.resolveTypes();
+            for (int id = 0; id < this.names.length; id++) {
+                this.names[id] = palette.getName( id );
+            }
+        }
+        for (int id = 0; id < this.types.length; id++) {
+            if ( mask.isExcluded( palette.getName( id ) ) ) {
+                this.types[id] = null;
+            }
+        }
+
+        this.footprint = new Cuboid( world.getName(), this.baseX, this.baseY, this.baseZ,
+                this.baseX + Math.max( 0, clipboard.getWidth() - 1 ),
+                this.baseY + Math.max( 0, clipboard.getHeight() - 1 ),
+                this.baseZ + Math.max( 0, clipboard.getLength() - 1 ) );
+    }
+
+    /**
+     * Persist the progress of this job through the given checkpoint while it runs. The job
+     * continues at the checkpoint's cursor, so a resumed job skips everything it already placed.
+     *
+     * @param checkpoint the checkpoint to update
+     */
+    void setCheckpoint( JobCheckpoint checkpoint ) {
+        this.checkpoint = checkpoint;
+        this.cursor = checkpoint.getCursor();
+        this.written = checkpoint.getWritten();
+    }
+
+    /**
+     * Name the schematic this job places, it shows up in the job's flight recorder events.
+     *
+     * @param schematic the name of the schematic
+     */
+    void setSchematic( String schematic ) {
+        this.schematic = schematic;
+    }
+
+    /**
+     * Get the number of steps of the placement plan this job has processed.
+     *
+     * @return the current step
+     */
+    public long getCursor() {
+        return this.cursor;
+    }
+
+    /**
+     * Write the current progress to the checkpoint, if the job has one.
+     *
+     * @param async whether the file should be written on an async thread
+     */
+    void saveCheckpoint( boolean async ) {
+        JobCheckpoint checkpoint = this.checkpoint;
+        if ( checkpoint == null ) {
+            return;
+        }
+        long cursor = this.cursor;
+        long written = this.written;
+        this.lastCheckpoint = System.currentTimeMillis();
+        if ( async ) {
+            this.scheduler.executeAsync( () -> checkpoint.save( cursor, written ) );
+        } else {
+            checkpoint.save( cursor, written );
+        }
+    }
+
+    /**
+     * Compute the plan on an async thread if the clipboard has none stored, then pin the chunks
+     * of the footprint and hand the job to the engine once the last of them has been loaded.
+     */
+    void start() {
+        this.event = SchematicEvents.beginJob();
+        this.scheduler.executeAsync( () -> {
+            PlacementPlan plan = this.clipboard.getPlan();
+            this.plan = plan != null ? plan : PlacementPlan.compute( this.clipboard );
+            if ( this.checkpoint != null ) {
+                this.checkpoint.save( this.cursor, this.written );
+                this.lastCheckpoint = System.currentTimeMillis();
+            }
+            this.scheduler.execute( this::pinChunks );
+        } );
+    }
+
+    private void pinChunks() {
+        Region region = this.footprint.getRegion();
+        int minX = region.getMinX() >> 4, maxX = region.getMaxX() >> 4;
+        int minZ = region.getMinZ() >> 4, maxZ = region.getMaxZ() >> 4;
+        // Counts one extra so chunks answering right away can not make the job ready before all are requested
+        AtomicInteger missing = new AtomicInteger( ( maxX - minX + 1 ) * ( maxZ - minZ + 1 ) + 1 );
+        Runnable loaded = () -> {
+            if ( missing.decrementAndGet() == 0 ) {
+                this.scheduler.execute( () -> this.engine.ready( this ) );
+            }
+        };
+        this.pinned = true;
+        for (int cx = minX; cx <= maxX; cx++) {
+            for (int cz = minZ; cz <= maxZ; cz++) {
+                this.world.pinChunk( cx, cz, loaded );
+            }
+        }
+        loaded.run();
+    }
+
+    private void unpinChunks() {
+        Region region = this.footprint.getRegion();
+        for (int cx = region.getMinX() >> 4; cx <= region.getMaxX() >> 4; cx++) {
+            for (int cz = region.getMinZ() >> 4; cz <= region.getMaxZ() >> 4; cz++) {
+                this.world.unpinChunk( cx, cz );
+            }
+        }
+        this.pinned = false;
+    }
+
+    /**
+     * Place the next blocks of this job. Has to be called on the main thread.
+     *
+     * @param budget the maximum number of blocks to place
+     * @return true if the job has placed all of its blocks
+     */
+    boolean place( int budget ) {
+        PlacementPlan plan = this.plan;
+        long steps = plan.getSteps();
+        int width = this.clipboard.getWidth(), height = this.clipboard.getHeight(), length = this.clipboard.getLength();
+        Object batchEvent = SchematicEvents.beginPlacementBatch();
+        int placed = 0, reads = 0, maxReads = budget * READS_PER_BLOCK, walked = 0, maxSteps = budget * STEPS_PER_BLOCK;
+        this.chunk = null;
+        while ( this.cursor < steps && placed < budget && reads < maxReads && walked < maxSteps ) {
+            long tile = this.cursor / PlacementPlan.CELLS;
+            int cell = (int) ( this.cursor - tile * PlacementPlan.CELLS );
+            int entry = plan.getEntryOfTile( tile );
+            int phase = plan.getPhaseOfTile( tile );
+            if ( this.destroy ) {
+                phase = PlacementPlan.PHASES - 1 - phase;
+            }
+            if ( !plan.hasPhase( entry, phase ) ) {
+                this.cursor = ( tile + 1 ) * PlacementPlan.CELLS;
+                continue;
+            }
+
+            int tileX = plan.getTileX( entry ), tileY = plan.getTileY( entry ), tileZ = plan.getTileZ( entry );
+            while ( cell < PlacementPlan.CELLS && placed < budget && reads < maxReads && walked++ < maxSteps ) {
+                int x = tileX + ( cell & 15 );
+                int z = tileZ + ( ( cell >> 4 ) & 15 );
+                int y = tileY + ( cell >> 8 );
+                if ( y >= height ) {
+                    cell = PlacementPlan.CELLS;
+                    continue;
+                }
+                if ( z >= length ) {
+                    cell = ( cell | 255 ) + 1;
+                    continue;
+                }
+                if ( x >= width ) {
+                    cell = ( cell | 15 ) + 1;
+                    continue;
+                }
+                cell++;
+
+                int id = this.clipboard.getBlock( x, y, z );
+                if ( id == Clipboard.EMPTY || this.types[id] == null || plan.getPhaseOfBlock( id ) != phase ) {
+                    continue;
+                }
+
+                x += this.baseX;
+                y += this.baseY;
+                z += this.baseZ;
+                reads++;
+                String current = getBlockName( x, y, z );
+                if ( current.equals( this.names[id] ) || ( this.required != null && !this.required.equals( current ) ) ) {
+                    continue;
+                }
+                this.world.setBlock( x, y, z, this.types[id] );
+                placed++;
+            }
+            this.cursor = tile * PlacementPlan.CELLS + cell;
+        }
+        this.chunk = null;
+        this.written += placed;
+
+        if ( SchematicEvents.shouldCommit( batchEvent ) ) {
+            SchematicEvents.commitPlacementBatch( batchEvent, this.schematic, this.world.getName(), budget, reads, placed );
+        }
+
+        if ( this.cursor < steps && this.checkpoint != null && System.currentTimeMillis() - this.lastCheckpoint >= CHECKPOINT_INTERVAL ) {
+            saveCheckpoint( true );
+        }
+        return this.cursor >= steps;
+    }
+
+    /**
+     * Read a block of the target area. The cells of a tile run along X, so the chunk is only
+     * looked up again when a row crosses a chunk border.
+     */
+    private String getBlockName( int x, int y, int z ) {
+        if ( this.chunk == null || x >> 4 != this.chunkX || z >> 4 != this.chunkZ ) {
+            this.chunkX = x >> 4;
+            this.chunkZ = z >> 4;
+            this.chunk = this.world.getChunk( this.chunkX, this.chunkZ );
+        }
+        return this.chunk.getBlockName( x & 15, y, z & 15 );
+    }
+
+    /**
+     * Release the chunks of this job and notify the consumer.
+     */
+    void complete() {
+        if ( this.pinned ) {
+            unpinChunks();
+        }
+        if ( this.checkpoint != null ) {
+            JobCheckpoint checkpoint = this.checkpoint;
+            this.scheduler.executeAsync( checkpoint::delete );
+        }
+        if ( SchematicEvents.shouldCommit( this.event ) ) {
+            SchematicEvents.commitJob( this.event, this.schematic, this.world.getName(), this.destroy, this.clipboard.getVolume(), this.written );
+        }
+        this.consumer.accept( true );
+    }
+
+}
@@ -0,0 +1,66 @@
+package de.theamychan.schematic.manager;
+
+import lombok.Getter;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Restricts which blocks of a paste are written. Excluded types are removed from the clipboard's
+ * palette before the job starts, so they cost nothing while placing. The only-air and replacing
+ * masks need the current blocks of the world, which the job reads chunk by chunk while it places.
+ */
+public final class PasteMask {
+
+    public static final PasteMask NONE = new PasteMask( false, Collections.emptySet() );
+
+    @Getter
+    private final boolean onlyAir;
+    @Getter
+    private final Set<String> excluded;
+    @Getter
+    private final String replaced;
+
+    /**
+     * Construct a mask.
+     *
+     * @param onlyAir  whether blocks may only be placed where the world currently has air
+     * @param excluded block names of the clipboard which should not be placed, e.g. "Air"
+     */
+    public PasteMask( boolean onlyAir, Collection<String> excluded ) {
+        this( onlyAir, excluded, null );
+    }
+
+    private PasteMask( boolean onlyAir, Collection<String> excluded, String replaced ) {
+        this.onlyAir = onlyAir;
+        this.excluded = Collections.unmodifiableSet( new LinkedHashSet<>( excluded ) );
+        this.replaced = replaced;
+    }
+
+    /**
+     * Get a mask which only writes where the world still holds the given block when the position
+     * is placed, so blocks changed after the area was copied are left alone.
+     *
+     * @param replaced the block name which may be overwritten, e.g. "Wool"
+     * @return the mask
+     */
+    public static PasteMask replacing( String replaced ) {
+        return new PasteMask( false, Collections.emptySet(), replaced );
+    }
+
+    public boolean isEmpty() {
+        return !this.onlyAir && this.excluded.isEmpty() && this.replaced == null;
+    }
+
+    public boolean isExcluded( String name ) {
+        return this.excluded.contains( name );
+    }
+
+    @Override
+    public String toString() {
+        return "PasteMask: onlyAir=" + this.onlyAir + ", excluded=" + this.excluded + ", replaced=" + this.replaced;
+    }
+
+}
@@ -0,0 +1,78 @@
+package de.theamychan.schematic.manager;
+
+import de.theamychan.schematic.util.BlockPositions;
+import de.theamychan.schematic.util.Region;
+import io.gomint.entity.EntityPlayer;
+import io.gomint.math.Vector;
+import io.gomint.world.Particle;
+import io.gomint.world.World;
+import lombok.Getter;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shows where a paste would land by drawing the outline of its area with particles for a few
+ * seconds. Particles only exist on the clients, so nothing is written to the world and no chunk
+ * is touched. The particles are only sent to the player who asked for the preview, other players
+ * do not see the outline.
+ */
+public class PastePreview {
+
+    private static final int MAX_PARTICLES = 600;
+    private static final long INTERVAL = 500;
+    private static final int REPEATS = 20;
+
+    private final EntityPlayer player;
+    private final World world;
+    @Getter
+    private final Region region;
+    private final long[] outline;
+    private TickScheduler.Handle handle;
+    private int shown;
+
+    /**
+     * Construct a preview of the given area.
+     *
+     * @param player the player to show the preview to
+     * @param world  the world the area is in
+     * @param region the area in world co-ordinates
+     */
+    public PastePreview( EntityPlayer player, World world, Region region ) {
+        this.player = player;
+        this.world = world;
+        this.region = region;
+        this.outline = region.getOutline( MAX_PARTICLES );
+    }
+
+    /**
+     * Start drawing the outline. Has to be called on the main thread.
+     *
+     * @param scheduler the scheduler to draw with
+     */
+    void show( TickScheduler scheduler ) {
+        this.handle = scheduler.scheduleRepeating( this::draw, INTERVAL, TimeUnit.MILLISECONDS );
+    }
+
+    private void draw() {
+        // The outline would show up at the same co-ordinates in the other world
+        if ( this.shown++ >= REPEATS || this.player.getWorld() != this.world ) {
+            cancel();
+            return;
+        }
+        for (long point : this.outline) {
+            this.world.sendParticle( this.player, new Vector( BlockPositions.unpackX( point ), BlockPositions.unpackY( point ),
+                    BlockPositions.unpackZ( point ) ), Particle.VILLAGER_HAPPY );
+        }
+    }
+
+    /**
+     * Stop drawing the outline.
+     */
+    void cancel() {
+        if ( this.handle != null ) {
+            this.handle.cancel();
+            this.handle = null;
+        }
+    }
+
+}
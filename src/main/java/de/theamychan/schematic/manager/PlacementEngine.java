@@ -0,0 +1,205 @@
+package de.theamychan.schematic.manager;
+
+import de.theamychan.schematic.util.Cuboid;
+import de.theamychan.schematic.util.RegionIndex;
+import io.gomint.math.Location;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs paste jobs. All worlds are placed on the one main thread, so there is a single block
+ * budget per tick for all of them. It is split evenly between the lanes of the worlds with
+ * running jobs, so a busy world can not starve another one, and every lane splits its share
+ * evenly between its jobs; the shares never add up to more than the budget. Jobs in the same
+ * world whose footprints are disjoint progress side by side, a job overlapping earlier jobs
+ * waits until all of them have finished so overlapping jobs are applied in the order they were
+ * submitted.
+ */
+public class PlacementEngine {
+
+    static final int BLOCKS_PER_TICK = 8192;
+
+    private final TickScheduler scheduler;
+    private final RegionIndex<PasteJob> index = new RegionIndex<>();
+    private final Map<PasteJob, Integer> blockers = new HashMap<>();
+    private final Map<PasteJob, List<PasteJob>> dependents = new HashMap<>();
+    private final Map<String, Lane> lanes = new LinkedHashMap<>();
+    private TickScheduler.Handle task;
+    private int rotation;
+
+    public PlacementEngine( TickScheduler scheduler ) {
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Submit a job. It starts right away unless it overlaps a job which was submitted earlier and
+     * has not finished yet.
+     *
+     * @param job the job to run
+     */
+    public synchronized void submit( PasteJob job ) {
+        List<PasteJob> overlapping = index.query( job.getFootprint() );
+        index.add( job.getFootprint(), job );
+
+        if ( overlapping.isEmpty() ) {
+            job.start();
+            return;
+        }
+        blockers.put( job, overlapping.size() );
+        for (PasteJob blocker : overlapping) {
+            dependents.computeIfAbsent( blocker, j -> new ArrayList<>() ).add( job );
+        }
+    }
+
+    /**
+     * Called by a job once all of its chunks are loaded and it is ready to place blocks.
+     *
+     * @param job the job which is ready
+     */
+    synchronized void ready( PasteJob job ) {
+        lanes.computeIfAbsent( job.getWorld().getName(), name -> new Lane() ).running.add( job );
+        if ( task == null ) {
+            task = scheduler.scheduleRepeating( this::tick, 50, TimeUnit.MILLISECONDS );
+        }
+    }
+
+    /**
+     * Place the next blocks of every running job, {@link #BLOCKS_PER_TICK} at most in total.
+     */
+    private void tick() {
+        List<Lane> active = new ArrayList<>();
+        List<List<PasteJob>> jobs = new ArrayList<>();
+        synchronized ( this ) {
+            lanes.values().removeIf( lane -> lane.running.isEmpty() );
+            if ( lanes.isEmpty() ) {
+                task.cancel();
+                task = null;
+                return;
+            }
+            for (Lane lane : lanes.values()) {
+                active.add( lane );
+                jobs.add( new ArrayList<>( lane.running ) );
+            }
+        }
+
+        int offset = rotation++;
+        int[] laneShares = split( BLOCKS_PER_TICK, active.size(), offset );
+        for (int i = 0; i < active.size(); i++) {
+            List<PasteJob> running = jobs.get( i );
+            int[] shares = split( laneShares[i], running.size(), offset );
+            for (int j = 0; j < running.size(); j++) {
+                if ( running.get( j ).place( shares[j] ) ) {
+                    finish( active.get( i ), running.get( j ) );
+                }
+            }
+        }
+    }
+
+    /**
+     * Split a budget into parts which differ by at most one and add up to exactly the budget.
+     * Which parts get the remainder moves with the offset, so no part is always the short one.
+     *
+     * @param budget the budget to split
+     * @param parts  the number of parts
+     * @param offset rotates the parts which get the remainder
+     * @return the parts
+     */
+    static int[] split( int budget, int parts, int offset ) {
+        int[] shares = new int[parts];
+        int base = budget / parts, remainder = budget % parts;
+        for (int i = 0; i < parts; i++) {
+            shares[i] = base + ( Math.floorMod( i - offset, parts ) < remainder ? 1 : 0 );
+        }
+        return shares;
+    }
+
+    private void finish( Lane lane, PasteJob job ) {
+        List<PasteJob> unblocked = new ArrayList<>();
+        synchronized ( this ) {
+            lane.running.remove( job );
+            index.remove( job );
+            List<PasteJob> waiting = dependents.remove( job );
+            if ( waiting != null ) {
+                for (PasteJob dependent : waiting) {
+                    int remaining = blockers.get( dependent ) - 1;
+                    if ( remaining == 0 ) {
+                        blockers.remove( dependent );
+                        unblocked.add( dependent );
+                    } else {
+                        blockers.put( dependent, remaining );
+                    }
+                }
+            }
+        }
+
+        job.complete();
+        unblocked.forEach( PasteJob::start );
+    }
+
+    /**
+     * Get all running or waiting jobs which will write to the given location.
+     *
+     * @param location the location to check
+     * @return the jobs touching the location, in submission order
+     */
+    public List<PasteJob> getJobsAt( Location location ) {
+        return getJobsAt( location.getWorld().getWorldName(),
+                (int) Math.floor( location.getX() ), (int) Math.floor( location.getY() ), (int) Math.floor( location.getZ() ) );
+    }
+
+    /**
+     * Get all running or waiting jobs which will write to the given block.
+     *
+     * @param worldName the name of the world
+     * @param x         the X co-ordinate
+     * @param y         the Y co-ordinate
+     * @param z         the Z co-ordinate
+     * @return the jobs touching the block, in submission order
+     */
+    public synchronized List<PasteJob> getJobsAt( String worldName, int x, int y, int z ) {
+        return index.query( worldName, x, y, z );
+    }
+
+    /**
+     * Get all running or waiting jobs whose footprint overlaps the given area.
+     *
+     * @param cuboid the area to check
+     * @return the overlapping jobs, in submission order
+     */
+    public synchronized List<PasteJob> getJobsIn( Cuboid cuboid ) {
+        return index.query( cuboid );
+    }
+
+    public synchronized boolean isWaiting( PasteJob job ) {
+        return blockers.containsKey( job );
+    }
+
+    /**
+     * Get all running and waiting jobs.
+     *
+     * @return the jobs, in submission order
+     */
+    public synchronized List<PasteJob> getJobs() {
+        return index.values();
+    }
+
+    /**
+     * Get the names of all worlds which currently have jobs placing blocks.
+     *
+     * @return the world names
+     */
+    public synchronized Set<String> getActiveWorlds() {
+        return new HashSet<>( lanes.keySet() );
+    }
+
+    /**
+     * The running jobs of one world, which share the lane's part of the tick budget.
+     */
+    private static class Lane {
+
+        private final List<PasteJob> running = new ArrayList<>();
+
+    }
+
+}
@@ -0,0 +1,74 @@
+package de.theamychan.schematic.manager;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Header information of every schematic in the schematics folder. The folder is listed once,
+ * afterwards single entries are refreshed whenever a file changes, so the catalog never needs a
+ * full rescan.
+ */
+public class SchematicCatalog {
+
+    private final Map<String, SchematicInfo> entries = new ConcurrentHashMap<>();
+    private final Function<File, JobCost> estimator;
+
+    /**
+     * Construct an empty catalog.
+     *
+     * @param estimator reads the cost of a schematic from its file, returns null if the file can
+     *                  not be read
+     */
+    public SchematicCatalog( Function<File, JobCost> estimator ) {
+        this.estimator = estimator;
+    }
+
+    /**
+     * Read the information of every schematic file in the given folder.
+     *
+     * @param folder the schematics folder
+     */
+    public void scan( File folder ) {
+        File[] files = folder.listFiles( File::isFile );
+        if ( files == null ) {
+            return;
+        }
+        for (File file : files) {
+            String name = SchematicWatcher.getSchematicName( file.getName() );
+            if ( name != null ) {
+                refresh( name, file );
+            }
+        }
+    }
+
+    /**
+     * Read the information of one schematic again.
+     *
+     * @param name the name of the schematic without extension
+     * @param file the current file of the schematic, or null if it has been deleted
+     * @return the new information or null if the schematic is gone or can not be read
+     */
+    public SchematicInfo refresh( String name, File file ) {
+        JobCost cost = file == null ? null : this.estimator.apply( file );
+        if ( cost == null ) {
+            this.entries.remove( name );
+            return null;
+        }
+        SchematicInfo info = new SchematicInfo( name, file, cost );
+        this.entries.put( name, info );
+        return info;
+    }
+
+    public SchematicInfo get( String name ) {
+        return this.entries.get( name );
+    }
+
+    public Collection<SchematicInfo> getAll() {
+        return Collections.unmodifiableCollection( this.entries.values() );
+    }
+
+}
@@ -0,0 +1,44 @@
+package de.theamychan.schematic.manager;
+
+import lombok.Getter;
+
+import java.io.File;
+
+/**
+ * What is known about a stored schematic without reading its blocks.
+ */
+public final class SchematicInfo {
+
+    @Getter
+    private final String name;
+    @Getter
+    private final File file;
+    @Getter
+    private final long size, lastModified;
+    @Getter
+    private final JobCost cost;
+
+    public SchematicInfo( String name, File file, JobCost cost ) {
+        this.name = name;
+        this.file = file;
+        this.size = file.length();
+        this.lastModified = file.lastModified();
+        this.cost = cost;
+    }
+
+    /**
+     * Check if the given file is still the version this information was read from.
+     *
+     * @param file the current schematic file
+     * @return true if path, size and modification time are unchanged
+     */
+    public boolean matches( File file ) {
+        return file != null && file.equals( this.file ) && file.length() == this.size && file.lastModified() == this.lastModified;
+    }
+
+    @Override
+    public String toString() {
+        return "SchematicInfo: " + this.name + " (" + this.cost + ")";
+    }
+
+}
@@ -1,60 +1,217 @@
 package de.theamychan.schematic.manager;
 
 import de.theamychan.schematic.SchematicSystem;
+import de.theamychan.schematic.clipboard.Clipboard;
+import de.theamychan.schematic.clipboard.ClipboardCache;
+import de.theamychan.schematic.clipboard.ClipboardHolder;
+import de.theamychan.schematic.clipboard.ClipboardMerge;
+import de.theamychan.schematic.clipboard.ClipboardCapture;
+import de.theamychan.schematic.clipboard.CuboidSnapshot;
+import de.theamychan.schematic.format.NBTSchematicReader;
+import de.theamychan.schematic.format.NBTSchematicWriter;
+import de.theamychan.schematic.format.NBTStreamReader;
+import de.theamychan.schematic.format.TiledSchematicReader;
+import de.theamychan.schematic.format.TiledSchematicWriter;
+import de.theamychan.schematic.jfr.SchematicEvents;
 import de.theamychan.schematic.util.Cuboid;
+import de.theamychan.schematic.util.Region;
+import io.gomint.GoMint;
 import io.gomint.entity.EntityPlayer;
 import io.gomint.math.Location;
+import io.gomint.world.World;
 import io.gomint.world.block.Block;
-import io.gomint.world.block.BlockAir;
 import lombok.Getter;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
 
 public class SchematicManager {
 
-    private SchematicSystem plugin;
-    private Map<EntityPlayer, List<String>> schematics;
+    /**
+     * Jobs with fewer positions than this are not checkpointed, restarting them is cheap.
+     */
+    private static final int CHECKPOINT_MIN_VOLUME = 65536;
+
+    private File folder;
+    private File jobFolder;
+    private TickScheduler scheduler;
+    private Map<EntityPlayer, ClipboardHolder> schematics;
+    private Map<EntityPlayer, PastePreview> previews;
+    @Getter
+    private ClipboardCache clipboardCache;
+    private Map<String, WorldAccess> worlds;
     @Getter
     private Map<EntityPlayer, Location> loc1;
     @Getter
     private Map<EntityPlayer, Location> loc2;
     @Getter
     private Map<String, LinkedList<Backup>> backup;
+    @Getter
+    private PlacementEngine placementEngine;
+    @Getter
+    private AdmissionControl admissionControl;
+    @Getter
+    private SchematicCatalog catalog;
+    private SchematicWatcher watcher;
+    private boolean preload;
+    private final Set<String> claimed = ConcurrentHashMap.newKeySet();
 
     public SchematicManager( SchematicSystem plugin ) {
-        this.plugin = plugin;
+        this( plugin.getDataFolder(), new GoMintTickScheduler( plugin.getScheduler() ) );
+    }
+
+    /**
+     * Construct a manager which is not bound to a running plugin.
+     *
+     * @param dataFolder the folder containing the schematics folder
+     * @param scheduler  the scheduler used for async and main thread work
+     */
+    public SchematicManager( File dataFolder, TickScheduler scheduler ) {
+        this.folder = new File( dataFolder.getAbsolutePath() + "/schematics" );
+        this.jobFolder = new File( dataFolder.getAbsolutePath() + "/jobs" );
+        this.scheduler = scheduler;
         this.schematics = new HashMap<>();
+        this.previews = new HashMap<>();
+        this.clipboardCache = new ClipboardCache();
+        this.worlds = new ConcurrentHashMap<>();
         this.loc1 = new HashMap<>();
         this.loc2 = new HashMap<>();
         this.backup = new LinkedHashMap<>();
+        this.placementEngine = new PlacementEngine( scheduler );
+        this.admissionControl = new AdmissionControl( scheduler );
+
+        if ( !folder.exists() ) {
+            folder.mkdirs();
+        }
+        this.catalog = new SchematicCatalog( this::estimateLoad );
+        this.catalog.scan( folder );
+    }
 
-        File file = new File( plugin.getDataFolder().getAbsolutePath() + "/schematics" );
-        if ( !file.exists() ) {
-            file.mkdirs();
+    /**
+     * Watch the schematics folder, so files which are replaced while the server runs, e.g. by
+     * rsync, are picked up on their own. Their catalog entry is refreshed and cached clipboards
+     * of the old version are no longer handed out.
+     *
+     * @param preload whether a changed schematic which was loaded by somebody should be decoded
+     *                again in the background right away
+     */
+    public void startWatching( boolean preload ) {
+        if ( this.watcher != null ) {
+            return;
+        }
+        this.preload = preload;
+        try {
+            this.watcher = new SchematicWatcher( folder, this::schematicChanged );
+        } catch ( IOException e ) {
+            e.printStackTrace();
         }
     }
 
+    private void schematicChanged( String filename ) {
+        boolean resident = false;
+        for (String extension : new String[]{ ".schematic", ".schem" }) {
+            resident |= clipboardCache.invalidate( new File( folder, filename + extension ) );
+        }
+
+        File file = getSchematicFile( filename );
+        if ( preload && resident && file != null ) {
+            this.scheduler.executeAsync( () -> clipboardCache.preload( file, () -> getClipboardFromFile( filename ) ) );
+        }
+        catalog.refresh( filename, file );
+    }
+
+    /**
+     * Get the {@link WorldAccess} of a GoMint world.
+     *
+     * @param world the world
+     * @return the access of the world
+     */
+    public WorldAccess getWorldAccess( World world ) {
+        return worlds.computeIfAbsent( world.getWorldName(), name -> new GoMintWorldAccess( world ) );
+    }
+
 
     public boolean load( String filename, EntityPlayer player ) {
-        File file = new File( plugin.getDataFolder().getAbsolutePath() + "/schematics/", filename + ".schematic" );
-        if ( file.exists() ) {
-            List<String> list = getStringlistFromFile( filename );
-            if ( list != null && list.size() > 0 ) {
-                schematics.put( player, list );
-                return true;
-            } else {
-                System.out.println( 2 );
-            }
-        } else {
-            System.out.println( 1 );
+        ClipboardHolder holder = load( filename );
+        if ( holder == null ) {
+            return false;
         }
-        return false;
+        ClipboardHolder previous = schematics.put( player, holder );
+        if ( previous != null ) {
+            previous.release();
+        }
+        return true;
+    }
+
+    /**
+     * Load a schematic for a player on an async thread. The player's clipboard is replaced on the
+     * main thread once the file has been read.
+     *
+     * @param filename the name of the schematic without extension
+     * @param player   the player
+     * @param consumer called on the main thread with false if the schematic does not exist, could
+     *                 not be read or is empty
+     */
+    public void loadAsync( String filename, EntityPlayer player, Consumer<Boolean> consumer ) {
+        this.scheduler.executeAsync( () -> {
+            ClipboardHolder holder = load( filename );
+            this.scheduler.execute( () -> {
+                if ( holder == null ) {
+                    consumer.accept( false );
+                    return;
+                }
+                ClipboardHolder previous = schematics.put( player, holder );
+                if ( previous != null ) {
+                    previous.release();
+                }
+                consumer.accept( true );
+            } );
+        } );
+    }
+
+    /**
+     * Load a schematic as a shared clipboard. Players loading the same version of a file share a
+     * single frozen clipboard, which is only read from disk when it is not resident yet.
+     *
+     * @param filename the name of the schematic without extension
+     * @return a holder which has to be released when it is no longer needed, or null if the
+     * schematic does not exist, could not be read or is empty
+     */
+    public ClipboardHolder load( String filename ) {
+        File file = getSchematicFile( filename );
+        if ( file == null ) {
+            return null;
+        }
+        ClipboardHolder holder = clipboardCache.acquire( file, () -> getClipboardFromFile( filename ) );
+        if ( holder != null && holder.get().getVolume() == 0 ) {
+            holder.release();
+            return null;
+        }
+        return holder;
+    }
+
+    /**
+     * Forget everything stored for a player and release the player's clipboard.
+     *
+     * @param player the player
+     */
+    public void unload( EntityPlayer player ) {
+        ClipboardHolder holder = schematics.remove( player );
+        if ( holder != null ) {
+            holder.release();
+        }
+        PastePreview preview = previews.remove( player );
+        if ( preview != null ) {
+            preview.cancel();
+        }
+        loc1.remove( player );
+        loc2.remove( player );
     }
 
     public List<String> getStringlistFromFile( String filename ) {
-        File file = new File( plugin.getDataFolder().getAbsolutePath() + "/schematics/", filename + ".schematic" );
+        File file = new File( folder, filename + ".schematic" );
         try {
             FileReader reader = new FileReader( file );
 
@@ -78,9 +235,301 @@ public class SchematicManager {
         return null;
     }
 
+    /**
+     * Get the file of the schematic with the given name. Files in the plugin's own format and
+     * MCEdit files use the .schematic extension, Sponge files use .schem.
+     *
+     * @param filename the name of the schematic without extension
+     * @return the existing schematic file or null if there is none
+     */
+    public File getSchematicFile( String filename ) {
+        for (String extension : new String[]{ ".schematic", ".schem" }) {
+            File file = new File( folder, filename + extension );
+            if ( file.exists() ) {
+                return file;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Read a schematic in any supported format. Gzip compressed files are imported as Sponge or
+     * MCEdit schematics, files starting with the tiled magic are read as the plugin's own tiled
+     * format and everything else is read as the plugin's old text format.
+     *
+     * @param filename the name of the schematic without extension
+     * @return the decoded clipboard or null if the schematic could not be read
+     */
+    public Clipboard getClipboardFromFile( String filename ) {
+        return getClipboardFromFile( filename, null );
+    }
+
+    /**
+     * Read the part of a schematic inside the given area. Tiled schematics only decode the tiles
+     * overlapping the area, other formats are read completely and cropped.
+     *
+     * @param filename the name of the schematic without extension
+     * @param region   the area to read relative to the paste origin, or null for the whole schematic
+     * @return the decoded clipboard or null if the schematic could not be read or does not overlap the area
+     */
+    public Clipboard getClipboardFromFile( String filename, Region region ) {
+        File file = getSchematicFile( filename );
+        if ( file == null ) {
+            return null;
+        }
+
+        Object event = SchematicEvents.beginFileRead();
+        String format = "nbt";
+        Clipboard clipboard;
+        try ( InputStream input = new BufferedInputStream( new FileInputStream( file ) ) ) {
+            if ( NBTStreamReader.isGzip( input ) ) {
+                clipboard = NBTSchematicReader.read( input );
+            } else if ( TiledSchematicReader.isTiled( input ) ) {
+                try ( TiledSchematicReader reader = new TiledSchematicReader( file ) ) {
+                    return region == null ? reader.read() : reader.read( region );
+                }
+            } else {
+                clipboard = null;
+            }
+        } catch ( IOException e ) {
+            e.printStackTrace();
+            return null;
+        }
+
+        if ( clipboard == null ) {
+            List<String> list = getStringlistFromFile( filename );
+            if ( list == null ) {
+                return null;
+            }
+            clipboard = Clipboard.fromStringlist( list );
+            format = "text";
+        }
+
+        if ( SchematicEvents.shouldCommit( event ) ) {
+            SchematicEvents.commitFile( event, file.getName(), format, file.length(), clipboard.getVolume() );
+        }
+        return region == null ? clipboard : clipboard.crop( region );
+    }
+
+    /**
+     * Estimate what reading a schematic costs without reading its blocks. The tiled format is
+     * sized from its header, gzip compressed files from their uncompressed size and the text
+     * format from its file size. The estimate is kept in the {@link SchematicCatalog} until the
+     * file changes.
+     *
+     * @param filename the name of the schematic without extension
+     * @return the estimated cost or null if the schematic does not exist or can not be read
+     */
+    public JobCost estimateLoad( String filename ) {
+        File file = getSchematicFile( filename );
+        SchematicInfo info = catalog.get( filename );
+        if ( info != null && info.matches( file ) ) {
+            return info.getCost();
+        }
+        info = catalog.refresh( filename, file );
+        return info == null ? null : info.getCost();
+    }
+
+    private JobCost estimateLoad( File file ) {
+        try ( InputStream input = new BufferedInputStream( new FileInputStream( file ) ) ) {
+            if ( NBTStreamReader.isGzip( input ) ) {
+                return JobCost.loadNBT( NBTStreamReader.getUncompressedSize( file ) );
+            }
+            if ( TiledSchematicReader.isTiled( input ) ) {
+                try ( TiledSchematicReader reader = new TiledSchematicReader( file ) ) {
+                    return JobCost.loadTiled( reader.getRegion().getVolume() );
+                }
+            }
+            return JobCost.loadText( file.length() );
+        } catch ( IOException e ) {
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+    /**
+     * Estimate what {@link #getBounds(String)} costs: nothing for the tiled format, which is
+     * sized from its header, otherwise reading the whole schematic.
+     *
+     * @param filename the name of the schematic without extension
+     * @return the estimated cost or null if the schematic does not exist or can not be read
+     */
+    public JobCost estimateBounds( String filename ) {
+        File file = getSchematicFile( filename );
+        if ( file == null ) {
+            return null;
+        }
+        try ( InputStream input = new BufferedInputStream( new FileInputStream( file ) ) ) {
+            if ( TiledSchematicReader.isTiled( input ) ) {
+                return JobCost.NONE;
+            }
+        } catch ( IOException e ) {
+            e.printStackTrace();
+            return null;
+        }
+        return estimateLoad( filename );
+    }
+
+    /**
+     * Get the area a stored schematic covers relative to its paste origin. The tiled format only
+     * needs its header for this, other formats have to be read completely.
+     *
+     * @param filename the name of the schematic without extension
+     * @return the covered area or null if the schematic does not exist, can not be read or is empty
+     */
+    public Region getBounds( String filename ) {
+        File file = getSchematicFile( filename );
+        if ( file == null ) {
+            return null;
+        }
+        try ( InputStream input = new BufferedInputStream( new FileInputStream( file ) ) ) {
+            if ( TiledSchematicReader.isTiled( input ) ) {
+                try ( TiledSchematicReader reader = new TiledSchematicReader( file ) ) {
+                    if ( reader.getWidth() == 0 || reader.getHeight() == 0 || reader.getLength() == 0 ) {
+                        return null;
+                    }
+                    return reader.getRegion();
+                }
+            }
+        } catch ( IOException e ) {
+            e.printStackTrace();
+            return null;
+        }
+
+        ClipboardHolder holder = load( filename );
+        if ( holder == null ) {
+            return null;
+        }
+        try {
+            return holder.get().getRegion();
+        } finally {
+            holder.release();
+        }
+    }
+
+    /**
+     * Get the area a stored schematic covers relative to its paste origin without decoding its
+     * blocks. The tiled format is sized from its header, the other formats are streamed once
+     * while their block data is skipped, so nothing the size of the schematic is allocated.
+     *
+     * @param filename the name of the schematic without extension
+     * @return the covered area or null if the schematic does not exist, can not be read or is empty
+     */
+    public Region getHeaderBounds( String filename ) {
+        File file = getSchematicFile( filename );
+        if ( file == null ) {
+            return null;
+        }
+        try ( InputStream input = new BufferedInputStream( new FileInputStream( file ) ) ) {
+            if ( NBTStreamReader.isGzip( input ) ) {
+                return NBTSchematicReader.readRegion( input );
+            }
+            if ( TiledSchematicReader.isTiled( input ) ) {
+                try ( TiledSchematicReader reader = new TiledSchematicReader( file ) ) {
+                    if ( reader.getWidth() == 0 || reader.getHeight() == 0 || reader.getLength() == 0 ) {
+                        return null;
+                    }
+                    return reader.getRegion();
+                }
+            }
+        } catch ( IOException e ) {
+            e.printStackTrace();
+            return null;
+        }
+
+        // The text format has no header, its lines are x~y~z~Name
+        try ( BufferedReader reader = new BufferedReader( new FileReader( file ) ) ) {
+            int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE, minZ = Integer.MAX_VALUE;
+            int maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE, maxZ = Integer.MIN_VALUE;
+            String line;
+            while ( ( line = reader.readLine() ) != null ) {
+                String[] data = line.split( "~" );
+                int x = Integer.parseInt( data[0] ), y = Integer.parseInt( data[1] ), z = Integer.parseInt( data[2] );
+                minX = Math.min( minX, x );
+                minY = Math.min( minY, y );
+                minZ = Math.min( minZ, z );
+                maxX = Math.max( maxX, x );
+                maxY = Math.max( maxY, y );
+                maxZ = Math.max( maxZ, z );
+            }
+            return minX > maxX ? null : new Region( minX, minY, minZ, maxX, maxY, maxZ );
+        } catch ( IOException | RuntimeException e ) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Estimate what {@link #merge} costs on an async thread: reading both schematics plus the
+     * result, which is allocated as a whole over the bounds of the merge. Only the headers of the
+     * schematics are read, see {@link #getHeaderBounds(String)}.
+     *
+     * @param first     the name of the first schematic
+     * @param second    the name of the second schematic
+     * @param offsetX   X offset of the second schematic relative to the first one's paste origin
+     * @param offsetY   Y offset of the second schematic relative to the first one's paste origin
+     * @param offsetZ   Z offset of the second schematic relative to the first one's paste origin
+     * @param operation how the schematics are combined
+     * @param consumer  called on the main thread with the estimated cost, or with null if a
+     *                  schematic does not exist or can not be read
+     */
+    public void estimateMerge( String first, String second, int offsetX, int offsetY, int offsetZ, ClipboardMerge.Operation operation,
+                               Consumer<JobCost> consumer ) {
+        this.scheduler.executeAsync( () -> {
+            JobCost costA = estimateLoad( first );
+            JobCost costB = estimateLoad( second );
+            Region a = getHeaderBounds( first );
+            Region b = getHeaderBounds( second );
+            JobCost cost = costA == null || costB == null || a == null || b == null ? null
+                    : JobCost.merge( costA, costB, ClipboardMerge.getBounds( a, b.shift( offsetX, offsetY, offsetZ ), operation ) );
+            this.scheduler.execute( () -> consumer.accept( cost ) );
+        } );
+    }
+
+    /**
+     * Export a stored schematic into the export folder in one of the community formats.
+     *
+     * @param filename the name of the schematic without extension
+     * @param format   either "sponge" (.schem) or "mcedit" (.schematic)
+     * @return true if the schematic was exported
+     */
+    public boolean export( String filename, String format ) {
+        Clipboard clipboard = getClipboardFromFile( filename );
+        if ( clipboard == null ) {
+            return false;
+        }
+
+        boolean sponge = format.equalsIgnoreCase( "sponge" );
+        if ( !sponge && !format.equalsIgnoreCase( "mcedit" ) ) {
+            return false;
+        }
+
+        File exportFolder = new File( folder, "export" );
+        if ( !exportFolder.exists() ) {
+            exportFolder.mkdirs();
+        }
+        File file = new File( exportFolder, filename + ( sponge ? ".schem" : ".schematic" ) );
+        Object event = SchematicEvents.beginFileWrite();
+        try ( OutputStream output = new FileOutputStream( file ) ) {
+            if ( sponge ) {
+                NBTSchematicWriter.writeSponge( clipboard, output );
+            } else {
+                NBTSchematicWriter.writeMCEdit( clipboard, output );
+            }
+        } catch ( IOException e ) {
+            e.printStackTrace();
+            return false;
+        }
+
+        if ( SchematicEvents.shouldCommit( event ) ) {
+            SchematicEvents.commitFile( event, file.getName(), sponge ? "sponge" : "mcedit", file.length(), clipboard.getVolume() );
+        }
+        return true;
+    }
+
     public boolean delete( String filename ) {
-        File file = new File( plugin.getDataFolder().getAbsolutePath() + "/schematics/", filename + ".schematic" );
-        if ( file.exists() ) {
+        File file = getSchematicFile( filename );
+        if ( file != null ) {
             file.delete();
             return true;
         }
@@ -89,7 +538,7 @@ public class SchematicManager {
 
     public boolean save( String filename, List<String> list ) {
 
-        File file = new File( plugin.getDataFolder().getAbsolutePath() + "/schematics/", filename + ".schematic" );
+        File file = new File( folder, filename + ".schematic" );
         String newLine = System.getProperty( "line.separator" );
         if ( file.exists() ) {
             return false;
@@ -99,6 +548,7 @@ public class SchematicManager {
         } catch ( IOException e ) {
             e.printStackTrace();
         }
+        Object event = SchematicEvents.beginFileWrite();
         try {
             BufferedWriter writer = new BufferedWriter( new FileWriter( file ) );
             for (String s : list) {
@@ -106,6 +556,10 @@ public class SchematicManager {
                 writer.write( newLine );
             }
             writer.close();
+
+            if ( SchematicEvents.shouldCommit( event ) ) {
+                SchematicEvents.commitFile( event, file.getName(), "text", file.length(), list.size() );
+            }
             return true;
         } catch ( IOException e ) {
             e.printStackTrace();
@@ -113,6 +567,141 @@ public class SchematicManager {
         return false;
     }
 
+    /**
+     * Save a clipboard in the plugin's own tiled format.
+     *
+     * @param filename  the name of the schematic without extension
+     * @param clipboard the clipboard to save
+     * @return true if the schematic was saved, false if it already exists or could not be written
+     */
+    public boolean save( String filename, Clipboard clipboard ) {
+        File file = new File( folder, filename + ".schematic" );
+        if ( file.exists() ) {
+            return false;
+        }
+        try {
+            TiledSchematicWriter.write( clipboard, file );
+            return true;
+        } catch ( IOException e ) {
+            e.printStackTrace();
+            file.delete();
+        }
+        return false;
+    }
+
+    /**
+     * Combine two stored schematics into a new one on an async thread. No world is involved.
+     *
+     * @param first     the name of the first schematic
+     * @param second    the name of the second schematic
+     * @param offsetX   X offset of the second schematic relative to the first one's paste origin
+     * @param offsetY   Y offset of the second schematic relative to the first one's paste origin
+     * @param offsetZ   Z offset of the second schematic relative to the first one's paste origin
+     * @param operation how the schematics are combined
+     * @param target    the name of the new schematic
+     * @param consumer  called with false if a schematic could not be read, the result is empty or
+     *                  the new schematic could not be saved
+     */
+    public void merge( String first, String second, int offsetX, int offsetY, int offsetZ, ClipboardMerge.Operation operation,
+                       String target, Consumer<Boolean> consumer ) {
+        this.scheduler.executeAsync( () -> {
+            Clipboard a = getClipboardFromFile( first );
+            Clipboard b = getClipboardFromFile( second );
+            if ( a == null || b == null ) {
+                consumer.accept( false );
+                return;
+            }
+            Clipboard result;
+            try {
+                result = ClipboardMerge.merge( a, b, offsetX, offsetY, offsetZ, operation );
+            } catch ( RuntimeException e ) {
+                // The caller holds an admission ticket until the consumer is called
+                e.printStackTrace();
+                consumer.accept( false );
+                return;
+            }
+            consumer.accept( result != null && save( target, result ) );
+        } );
+    }
+
+    /**
+     * Capture the blocks of the given area into a clipboard.
+     *
+     * @param world   the world to read from
+     * @param cuboid  the area to capture
+     * @param originX X co-ordinate the clipboard is relative to
+     * @param originY Y co-ordinate the clipboard is relative to
+     * @param originZ Z co-ordinate the clipboard is relative to
+     * @return the captured clipboard
+     */
+    public Clipboard capture( WorldAccess world, Cuboid cuboid, int originX, int originY, int originZ ) {
+        return ClipboardCapture.capture( world, cuboid.getRegion(), originX, originY, originZ );
+    }
+
+    /**
+     * Capture the blocks between two locations relative to a third one.
+     *
+     * @param loc1   one corner of the area
+     * @param loc2   the other corner of the area
+     * @param origin the location the clipboard is relative to
+     * @return the captured clipboard
+     */
+    public Clipboard capture( Location loc1, Location loc2, Location origin ) {
+        return capture( getWorldAccess( loc1.getWorld() ), new Cuboid( loc1, loc2 ),
+                blockCoordinate( origin.getX() ), blockCoordinate( origin.getY() ), blockCoordinate( origin.getZ() ) );
+    }
+
+    /**
+     * Capture the blocks of the given area on all cores. The chunks of the area are copied on the
+     * calling thread, which has to be the main thread, and encoded on the async threads.
+     *
+     * @param world    the world to read from
+     * @param cuboid   the area to capture
+     * @param originX  X co-ordinate the clipboard is relative to
+     * @param originY  Y co-ordinate the clipboard is relative to
+     * @param originZ  Z co-ordinate the clipboard is relative to
+     * @param consumer called on the main thread with the captured clipboard
+     */
+    public void captureAsync( WorldAccess world, Cuboid cuboid, int originX, int originY, int originZ, Consumer<Clipboard> consumer ) {
+        ClipboardCapture.captureAsync( world, cuboid.getRegion(), originX, originY, originZ, scheduler, consumer );
+    }
+
+    public void captureAsync( Location loc1, Location loc2, Location origin, Consumer<Clipboard> consumer ) {
+        captureAsync( getWorldAccess( loc1.getWorld() ), new Cuboid( loc1, loc2 ),
+                blockCoordinate( origin.getX() ), blockCoordinate( origin.getY() ), blockCoordinate( origin.getZ() ), consumer );
+    }
+
+    /**
+     * Save a clipboard on an async thread.
+     *
+     * @param filename  the name of the schematic without extension
+     * @param clipboard the clipboard to save
+     * @param consumer  called with the result of {@link #save(String, Clipboard)}
+     */
+    public void saveAsync( String filename, Clipboard clipboard, Consumer<Boolean> consumer ) {
+        this.scheduler.executeAsync( () -> consumer.accept( save( filename, clipboard ) ) );
+    }
+
+    /**
+     * Count the block types of an area. The area is copied in bounded batches per tick like
+     * {@link #captureAsync(WorldAccess, Cuboid, int, int, int, Consumer)} and then counted on all
+     * cores. Has to be called on the main thread.
+     *
+     * @param world    the world to read from
+     * @param cuboid   the area to analyze
+     * @param consumer called on the main thread with the block names and their amount, most frequent first
+     */
+    public void analyze( WorldAccess world, Cuboid cuboid, Consumer<Map<String, Long>> consumer ) {
+        CuboidSnapshot.takeAsync( world, cuboid, this.scheduler, snapshot -> this.scheduler.executeAsync( () -> {
+            Map<String, Long> counts = snapshot.countAll();
+            this.scheduler.execute( () -> consumer.accept( counts ) );
+        } ) );
+    }
+
+    public void analyze( Location loc1, Location loc2, Consumer<Map<String, Long>> consumer ) {
+        analyze( getWorldAccess( loc1.getWorld() ), new Cuboid( loc1, loc2 ), consumer );
+    }
+
     public List<String> fromBlocklistToStringlist( List<Block> blocks, Location location ) {
         List<String> list = new ArrayList<>();
         blocks.forEach( b -> list.add( blockToString( b, location ) ) );
@@ -123,65 +712,373 @@ public class SchematicManager {
         return new Cuboid( loc1, loc2 ).getBlocks();
     }
 
-    public Map<EntityPlayer, List<String>> getSchematics() {
+    public Map<EntityPlayer, ClipboardHolder> getSchematics() {
         return schematics;
     }
 
     public void paste( Location location, String filename, Consumer<Boolean> consumer ) {
-        this.plugin.getScheduler().executeAsync( () -> {
-            List<String> list = getStringlistFromFile( filename );
-            for (String string : list) {
-                String[] data = string.split( "~" );
-                int x = Integer.parseInt( data[0] );
-                int y = Integer.parseInt( data[1] );
-                int z = Integer.parseInt( data[2] );
-                Class<? extends Block> clazz = getClass( data[3] );
-
-                plugin.getScheduler().execute( () -> {
-                    Block block = location.add( x, y, z ).getBlock().setType( clazz );
-                } );
-            }
-            consumer.accept( true );
-        } );
+        paste( getWorldAccess( location.getWorld() ), blockCoordinate( location.getX() ), blockCoordinate( location.getY() ), blockCoordinate( location.getZ() ), filename, consumer );
+    }
+
+    public void paste( Location location, String filename, Region region, Consumer<Boolean> consumer ) {
+        paste( location, filename, region, PasteMask.NONE, consumer );
+    }
+
+    public void paste( Location location, String filename, Region region, PasteMask mask, Consumer<Boolean> consumer ) {
+        paste( location, filename, region, mask, null, consumer );
+    }
+
+    /**
+     * Paste a schematic at a location and report blocks which can not be placed.
+     *
+     * @param location   the paste origin
+     * @param filename   the name of the schematic without extension
+     * @param region     the area to paste in world co-ordinates, or null for the whole schematic
+     * @param mask       the mask deciding which blocks are written
+     * @param unresolved called on the main thread with the block names which have no GoMint block,
+     *                   only if there are any; may be null
+     * @param consumer   called on completion
+     */
+    public void paste( Location location, String filename, Region region, PasteMask mask, Consumer<List<String>> unresolved, Consumer<Boolean> consumer ) {
+        int x = blockCoordinate( location.getX() ), y = blockCoordinate( location.getY() ), z = blockCoordinate( location.getZ() );
+        submitFromFile( getWorldAccess( location.getWorld() ), x, y, z, filename, region == null ? null : region.shift( -x, -y, -z ), false, mask, unresolved, consumer );
+    }
+
+    public void paste( WorldAccess world, int x, int y, int z, String filename, Consumer<Boolean> consumer ) {
+        submitFromFile( world, x, y, z, filename, null, false, PasteMask.NONE, null, consumer );
+    }
+
+    /**
+     * Paste only the part of a schematic inside the given area. For tiled schematics only the
+     * tiles overlapping the area are read from disk.
+     *
+     * @param world    the world to paste in
+     * @param x        X co-ordinate of the paste origin
+     * @param y        Y co-ordinate of the paste origin
+     * @param z        Z co-ordinate of the paste origin
+     * @param filename the name of the schematic without extension
+     * @param region   the area to paste, in world co-ordinates
+     * @param consumer called with false if the schematic could not be read or does not overlap the area
+     */
+    public void paste( WorldAccess world, int x, int y, int z, String filename, Region region, Consumer<Boolean> consumer ) {
+        paste( world, x, y, z, filename, region, PasteMask.NONE, consumer );
+    }
+
+    /**
+     * Paste a schematic through a mask.
+     *
+     * @param world    the world to paste in
+     * @param x        X co-ordinate of the paste origin
+     * @param y        Y co-ordinate of the paste origin
+     * @param z        Z co-ordinate of the paste origin
+     * @param filename the name of the schematic without extension
+     * @param region   the area to paste in world co-ordinates, or null for the whole schematic
+     * @param mask     the mask deciding which blocks are written
+     * @param consumer called with false if the schematic could not be read or does not overlap the area
+     */
+    public void paste( WorldAccess world, int x, int y, int z, String filename, Region region, PasteMask mask, Consumer<Boolean> consumer ) {
+        submitFromFile( world, x, y, z, filename, region == null ? null : region.shift( -x, -y, -z ), false, mask, null, consumer );
     }
 
     public void paste( EntityPlayer player, Consumer<Boolean> consumer ) {
-        this.plugin.getScheduler().executeAsync( () -> {
-            if ( schematics.containsKey( player ) ) {
-                List<String> list = schematics.get( player );
-                Location location = player.getLocation();
-                for (String string : list) {
-                    String[] data = string.split( "~" );
-                    int x = Integer.parseInt( data[0] );
-                    int y = Integer.parseInt( data[1] );
-                    int z = Integer.parseInt( data[2] );
-                    Class<? extends Block> clazz = getClass( data[3] );
-
-                    plugin.getScheduler().execute( () -> location.add( x, y, z ).getBlock().setType( clazz ) );
-                }
-                consumer.accept( true );
-            }
+        paste( player, null, PasteMask.NONE, consumer );
+    }
+
+    public void paste( EntityPlayer player, Region region, Consumer<Boolean> consumer ) {
+        paste( player, region, PasteMask.NONE, consumer );
+    }
+
+    /**
+     * Paste the clipboard the player has loaded at the player's location.
+     *
+     * @param player   the player
+     * @param region   the area to paste in world co-ordinates, or null for everything
+     * @param mask     the mask deciding which blocks are written
+     * @param consumer called on completion
+     */
+    public void paste( EntityPlayer player, Region region, PasteMask mask, Consumer<Boolean> consumer ) {
+        ClipboardHolder holder = schematics.get( player );
+        if ( holder == null ) {
             consumer.accept( false );
+            return;
+        }
+        Clipboard clipboard = holder.get();
+        Location location = player.getLocation();
+        int x = blockCoordinate( location.getX() ), y = blockCoordinate( location.getY() ), z = blockCoordinate( location.getZ() );
+        if ( region != null ) {
+            clipboard = clipboard.crop( region.shift( -x, -y, -z ) );
+            if ( clipboard == null ) {
+                consumer.accept( false );
+                return;
+            }
+        }
+        placementEngine.submit( createJob( getWorldAccess( location.getWorld() ), x, y, z, clipboard, false, mask, consumer ) );
+    }
+
+    /**
+     * Show the player where a paste from the player's current location would land, without
+     * writing anything to the world. A stored schematic is only sized from its header on an
+     * async thread, without a filename the clipboard the player has loaded is used. A new
+     * preview replaces the player's previous one.
+     *
+     * @param player   the player
+     * @param filename the name of the schematic without extension, or null for the loaded clipboard
+     * @param consumer called on the main thread with the previewed area in world co-ordinates, or
+     *                 with null if there is nothing to preview
+     */
+    public void preview( EntityPlayer player, String filename, Consumer<Region> consumer ) {
+        Location location = player.getLocation();
+        int x = blockCoordinate( location.getX() ), y = blockCoordinate( location.getY() ), z = blockCoordinate( location.getZ() );
+        if ( filename == null ) {
+            ClipboardHolder holder = schematics.get( player );
+            showPreview( player, location.getWorld(), holder == null ? null : holder.get().getRegion().shift( x, y, z ), consumer );
+            return;
+        }
+        scheduler.executeAsync( () -> {
+            Region bounds = getBounds( filename );
+            scheduler.execute( () -> showPreview( player, location.getWorld(), bounds == null ? null : bounds.shift( x, y, z ), consumer ) );
         } );
     }
 
+    private void showPreview( EntityPlayer player, World world, Region region, Consumer<Region> consumer ) {
+        PastePreview previous = previews.remove( player );
+        if ( previous != null ) {
+            previous.cancel();
+        }
+        if ( region != null ) {
+            PastePreview preview = new PastePreview( player, world, region );
+            previews.put( player, preview );
+            preview.show( scheduler );
+        }
+        consumer.accept( region );
+    }
+
+    /**
+     * Replace every block of one type inside an area with another type. The area is copied in
+     * bounded batches per tick like {@link #captureAsync(WorldAccess, Cuboid, int, int, int, Consumer)}
+     * and the matches are turned into a clipboard on an async thread: the palette id of the old
+     * type becomes the new type and everything else becomes empty. Only matching positions are
+     * handed to the {@link PlacementEngine}, which skips every position that no longer holds the
+     * old type when it is placed.
+     *
+     * @param world    the world to edit
+     * @param cuboid   the area to edit
+     * @param from     the block name to replace, e.g. "Wool"
+     * @param to       the block name to place instead, has to differ from the old type
+     * @param matches  called on the main thread with the number of blocks which will be replaced
+     * @param consumer called on the main thread once every block has been replaced, or with false
+     *                 if both types are the same or the area does not contain the old type
+     */
+    public void replace( WorldAccess world, Cuboid cuboid, String from, String to, Consumer<Long> matches, Consumer<Boolean> consumer ) {
+        if ( from.equals( to ) ) {
+            matches.accept( 0L );
+            consumer.accept( false );
+            return;
+        }
+        Region region = cuboid.getRegion();
+        int x = region.getMinX(), y = region.getMinY(), z = region.getMinZ();
+        ClipboardCapture.captureAsync( world, region, x, y, z, this.scheduler, clipboard -> this.scheduler.executeAsync( () -> {
+            long count = 0;
+            int fromId = clipboard.getPalette().getId( from );
+            if ( fromId != -1 ) {
+                int toId = clipboard.getPalette().getOrAdd( to );
+                for (int index = 0; index < clipboard.getVolume(); index++) {
+                    if ( clipboard.getBlock( index ) == fromId ) {
+                        clipboard.setBlock( index, toId );
+                        count++;
+                    } else {
+                        clipboard.setBlock( index, Clipboard.EMPTY );
+                    }
+                }
+            }
+
+            long replaced = count;
+            this.scheduler.execute( () -> {
+                matches.accept( replaced );
+                if ( replaced == 0 ) {
+                    consumer.accept( false );
+                    return;
+                }
+                placementEngine.submit( createJob( world, x, y, z, clipboard, false, PasteMask.replacing( from ), consumer ) );
+            } );
+        } ) );
+    }
+
+    public void replace( Location loc1, Location loc2, String from, String to, Consumer<Long> matches, Consumer<Boolean> consumer ) {
+        replace( getWorldAccess( loc1.getWorld() ), new Cuboid( loc1, loc2 ), from, to, matches, consumer );
+    }
+
     public void destroy( Location location, String filename, Consumer<Boolean> consumer ) {
+        destroy( getWorldAccess( location.getWorld() ), blockCoordinate( location.getX() ), blockCoordinate( location.getY() ), blockCoordinate( location.getZ() ), filename, consumer );
+    }
 
-        this.plugin.getScheduler().executeAsync( () -> {
-            List<String> list = getStringlistFromFile( filename );
-            for (String string : list) {
-                String[] data = string.split( "~" );
-                int x = Integer.parseInt( data[0] );
-                int y = Integer.parseInt( data[1] );
-                int z = Integer.parseInt( data[2] );
+    public void destroy( WorldAccess world, int x, int y, int z, String filename, Consumer<Boolean> consumer ) {
+        submitFromFile( world, x, y, z, filename, null, true, PasteMask.NONE, null, consumer );
+    }
 
-                plugin.getScheduler().execute( () -> {
-                    Block block = location.add( x, y, z ).getBlock().setType( BlockAir.class );
-                } );
+    private void submitFromFile( WorldAccess world, int x, int y, int z, String filename, Region region, boolean destroy, PasteMask mask,
+                                 Consumer<List<String>> unresolved, Consumer<Boolean> consumer ) {
+        this.scheduler.executeAsync( () -> {
+            File file = getSchematicFile( filename );
+            Clipboard clipboard = getClipboardFromFile( filename, region );
+            if ( file == null || clipboard == null ) {
+                consumer.accept( false );
+                return;
+            }
+            if ( unresolved != null ) {
+                List<String> names = clipboard.getPalette().getUnresolved();
+                if ( !names.isEmpty() ) {
+                    this.scheduler.execute( () -> unresolved.accept( names ) );
+                }
+            }
+            PasteJob job = createJob( world, x, y, z, clipboard, destroy, mask, consumer );
+            job.setSchematic( filename );
+            if ( clipboard.getVolume() >= CHECKPOINT_MIN_VOLUME ) {
+                job.setCheckpoint( JobCheckpoint.create( jobFolder, filename, file, world.getName(), x, y, z, region, destroy, mask ) );
             }
-            consumer.accept( true );
+            placementEngine.submit( job );
         } );
+    }
+
+    /**
+     * Get the jobs which were still running when the server stopped. Jobs which are being resumed
+     * are left out.
+     *
+     * @return the checkpoints of the unfinished jobs
+     */
+    public List<JobCheckpoint> getUnfinishedJobs() {
+        Set<String> active = new HashSet<>();
+        for (PasteJob job : placementEngine.getJobs()) {
+            if ( job.getCheckpoint() != null ) {
+                active.add( job.getCheckpoint().getId() );
+            }
+        }
+
+        List<JobCheckpoint> unfinished = new ArrayList<>();
+        for (JobCheckpoint checkpoint : JobCheckpoint.loadAll( jobFolder )) {
+            if ( !active.contains( checkpoint.getId() ) && !claimed.contains( checkpoint.getId() ) ) {
+                unfinished.add( checkpoint );
+            }
+        }
+        return unfinished;
+    }
+
+    /**
+     * Claim an unfinished job for resuming. Claimed jobs are no longer returned by
+     * {@link #getUnfinishedJobs()}, so a job can only be resumed once even if the resume itself
+     * has to wait, e.g. for admission.
+     *
+     * @param checkpoint the checkpoint of the job
+     * @return false if the job has already been claimed
+     */
+    public boolean claim( JobCheckpoint checkpoint ) {
+        return this.claimed.add( checkpoint.getId() );
+    }
+
+    /**
+     * Give up the claim on a job which is not going to be resumed after all.
+     *
+     * @param checkpoint the checkpoint of the job
+     */
+    public void unclaim( JobCheckpoint checkpoint ) {
+        this.claimed.remove( checkpoint.getId() );
+    }
+
+    /**
+     * Continue an unfinished job where its checkpoint left off. Positions before the checkpoint's
+     * cursor are not placed again. Callers which may race should {@link #claim(JobCheckpoint)}
+     * the job first, the claim is released again if the job can not be resumed.
+     *
+     * @param checkpoint the checkpoint of the job
+     * @param consumer   called with false if the world of the job is not loaded, or if the
+     *                   schematic is gone or has changed since the job was started, the
+     *                   checkpoint is discarded in the latter case
+     */
+    public void resume( JobCheckpoint checkpoint, Consumer<Boolean> consumer ) {
+        World world = GoMint.instance().getWorld( checkpoint.getWorldName() );
+        resume( checkpoint, world == null ? null : getWorldAccess( world ), consumer );
+    }
+
+    /**
+     * Continue an unfinished job in the given world, see {@link #resume(JobCheckpoint, Consumer)}.
+     *
+     * @param checkpoint the checkpoint of the job
+     * @param world      the world of the job, or null if it is not loaded
+     * @param consumer   called with false if the job could not be resumed
+     */
+    public void resume( JobCheckpoint checkpoint, WorldAccess world, Consumer<Boolean> consumer ) {
+        claim( checkpoint );
+        // A finished job has deleted its checkpoint, only a failed one may be resumed again
+        Consumer<Boolean> release = success -> {
+            if ( !success ) {
+                unclaim( checkpoint );
+            }
+            consumer.accept( success );
+        };
+        if ( world == null ) {
+            release.accept( false );
+            return;
+        }
+        this.scheduler.executeAsync( () -> {
+            File file = getSchematicFile( checkpoint.getSchematic() );
+            if ( !checkpoint.matches( file ) ) {
+                checkpoint.delete();
+                release.accept( false );
+                return;
+            }
+            Clipboard clipboard = getClipboardFromFile( checkpoint.getSchematic(), checkpoint.getRegion() );
+            if ( clipboard == null ) {
+                release.accept( false );
+                return;
+            }
+            PasteJob job = createJob( world, checkpoint.getOriginX(), checkpoint.getOriginY(), checkpoint.getOriginZ(),
+                    clipboard, checkpoint.isDestroy(), checkpoint.getMask(), release );
+            job.setCheckpoint( checkpoint );
+            job.setSchematic( checkpoint.getSchematic() );
+            placementEngine.submit( job );
+        } );
+    }
+
+    /**
+     * Store the progress of every job which has not finished yet, so it can be resumed after the
+     * next start.
+     */
+    public void shutdown() {
+        if ( this.watcher != null ) {
+            try {
+                this.watcher.close();
+            } catch ( IOException e ) {
+                e.printStackTrace();
+            }
+            this.watcher = null;
+        }
+        for (PasteJob job : placementEngine.getJobs()) {
+            job.saveCheckpoint( false );
+        }
+    }
+
+    private static int blockCoordinate( float coordinate ) {
+        return (int) Math.floor( coordinate );
+    }
+
+    /**
+     * Create a job which places the given clipboard relative to the given origin.
+     *
+     * @param world     the world to place the blocks in
+     * @param x         X co-ordinate of the paste origin
+     * @param y         Y co-ordinate of the paste origin
+     * @param z         Z co-ordinate of the paste origin
+     * @param clipboard the blocks to place
+     * @param destroy   whether every block should be replaced with air instead of its saved type
+     * @param consumer  called on the main thread once the job has finished
+     * @return the job, ready to be submitted to the {@link PlacementEngine}
+     */
+    public PasteJob createJob( WorldAccess world, int x, int y, int z, Clipboard clipboard, boolean destroy, Consumer<Boolean> consumer ) {
+        return createJob( world, x, y, z, clipboard, destroy, PasteMask.NONE, consumer );
+    }
 
+    public PasteJob createJob( WorldAccess world, int x, int y, int z, Clipboard clipboard, boolean destroy, PasteMask mask, Consumer<Boolean> consumer ) {
+        return new PasteJob( scheduler, placementEngine, world, x, y, z, clipboard, destroy, mask, consumer );
     }
 
     public String blockToString( Block block, Location location ) {
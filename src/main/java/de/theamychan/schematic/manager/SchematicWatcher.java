@@ -0,0 +1,126 @@
+package de.theamychan.schematic.manager;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Watches the schematics folder and reports every schematic whose file was created, changed or
+ * deleted. A file is only reported once it has not changed for a short while, so a file which is
+ * still being written is reported once. Hidden files are ignored, which covers the temporary files
+ * rsync writes before renaming them to their final name.
+ */
+public class SchematicWatcher implements Runnable, Closeable {
+
+    private static final long QUIET_MILLIS = 200;
+    private static final long POLL_MILLIS = 50;
+
+    private final File folder;
+    private final WatchService service;
+    private final Consumer<String> listener;
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    /**
+     * Start watching a folder.
+     *
+     * @param folder   the schematics folder
+     * @param listener called on the watcher thread with the name of every changed schematic
+     * @throws IOException if the folder can not be watched
+     */
+    public SchematicWatcher( File folder, Consumer<String> listener ) throws IOException {
+        this.folder = folder;
+        this.listener = listener;
+        this.service = FileSystems.getDefault().newWatchService();
+        folder.toPath().register( this.service, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE );
+
+        this.thread = new Thread( this, "Schematic Watcher" );
+        this.thread.setDaemon( true );
+        this.thread.start();
+    }
+
+    /**
+     * Get the schematic name of a file in the schematics folder.
+     *
+     * @param fileName the name of the file
+     * @return the name without extension or null if the file is hidden or not a schematic
+     */
+    public static String getSchematicName( String fileName ) {
+        if ( fileName.startsWith( "." ) ) {
+            return null;
+        }
+        for (String extension : new String[]{ ".schematic", ".schem" }) {
+            if ( fileName.endsWith( extension ) && fileName.length() > extension.length() ) {
+                return fileName.substring( 0, fileName.length() - extension.length() );
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void run() {
+        Map<String, Long> pending = new HashMap<>();
+        try {
+            while ( this.running ) {
+                WatchKey key = this.service.poll( POLL_MILLIS, TimeUnit.MILLISECONDS );
+                if ( key != null ) {
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if ( event.kind() == StandardWatchEventKinds.OVERFLOW ) {
+                            // Events were lost, report everything in the folder
+                            String[] files = this.folder.list();
+                            for (String file : files == null ? new String[0] : files) {
+                                changed( pending, file );
+                            }
+                        } else {
+                            changed( pending, ( (Path) event.context() ).getFileName().toString() );
+                        }
+                    }
+                    key.reset();
+                }
+
+                long now = System.currentTimeMillis();
+                Iterator<Map.Entry<String, Long>> iterator = pending.entrySet().iterator();
+                while ( iterator.hasNext() ) {
+                    Map.Entry<String, Long> entry = iterator.next();
+                    if ( now - entry.getValue() >= QUIET_MILLIS ) {
+                        iterator.remove();
+                        try {
+                            this.listener.accept( entry.getKey() );
+                        } catch ( RuntimeException e ) {
+                            e.printStackTrace();
+                        }
+                    }
+                }
+            }
+        } catch ( InterruptedException | ClosedWatchServiceException e ) {
+            // Closed
+        }
+    }
+
+    private static void changed( Map<String, Long> pending, String fileName ) {
+        String name = getSchematicName( fileName );
+        if ( name != null ) {
+            pending.put( name, System.currentTimeMillis() );
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.running = false;
+        this.service.close();
+    }
+
+}
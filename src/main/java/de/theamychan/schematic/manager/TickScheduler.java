@@ -0,0 +1,40 @@
+package de.theamychan.schematic.manager;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The parts of the server scheduler the schematic code depends on.
+ */
+public interface TickScheduler {
+
+    /**
+     * Run the given task on the main thread.
+     *
+     * @param runnable the task
+     */
+    void execute( Runnable runnable );
+
+    /**
+     * Run the given task on a worker thread.
+     *
+     * @param runnable the task
+     */
+    void executeAsync( Runnable runnable );
+
+    /**
+     * Run the given task on the main thread repeatedly until it is cancelled.
+     *
+     * @param runnable the task
+     * @param period   the time between two runs
+     * @param unit     the unit of the period
+     * @return a handle to cancel the task
+     */
+    Handle scheduleRepeating( Runnable runnable, long period, TimeUnit unit );
+
+    interface Handle {
+
+        void cancel();
+
+    }
+
+}
@@ -0,0 +1,128 @@
+package de.theamychan.schematic.manager;
+
+import io.gomint.world.block.Block;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The block level view of a world the schematic code reads from and writes to. Keeping it this
+ * narrow lets capture and paste run against something other than a live GoMint world.
+ */
+public interface WorldAccess {
+
+    /**
+     * Get the name of the world.
+     *
+     * @return the world name
+     */
+    String getName();
+
+    /**
+     * Get the schematic name of the block at the given position, e.g. "Stone".
+     *
+     * @param x the X co-ordinate
+     * @param y the Y co-ordinate
+     * @param z the Z co-ordinate
+     * @return the block name
+     */
+    String getBlockName( int x, int y, int z );
+
+    /**
+     * Get a view of one chunk column to read many blocks of it without looking up the chunk for
+     * every block.
+     *
+     * @param chunkX the chunk X co-ordinate
+     * @param chunkZ the chunk Z co-ordinate
+     * @return the view of the chunk
+     */
+    ChunkView getChunk( int chunkX, int chunkZ );
+
+    /**
+     * Copy the blocks of one chunk column between two heights. The copy does not change when the
+     * world changes and can be read from any thread. Blocks are kept as ids into a small table of
+     * the names found in the chunk, so a copy costs two bytes per block. Has to be called on the
+     * main thread.
+     *
+     * @param chunkX the chunk X co-ordinate
+     * @param chunkZ the chunk Z co-ordinate
+     * @param minY   the lowest Y co-ordinate to copy
+     * @param maxY   the highest Y co-ordinate to copy
+     * @return a view of the copy, which may only be read between minY and maxY
+     */
+    default ChunkView snapshotChunk( int chunkX, int chunkZ, int minY, int maxY ) {
+        ChunkView chunk = getChunk( chunkX, chunkZ );
+        short[] ids = new short[( maxY - minY + 1 ) << 8];
+        Map<String, Integer> table = new IdentityHashMap<>();
+        List<String> names = new ArrayList<>();
+        String lastName = null;
+        int lastId = 0, index = 0;
+        for (int y = minY; y <= maxY; y++) {
+            for (int z = 0; z < 16; z++) {
+                for (int x = 0; x < 16; x++) {
+                    String name = chunk.getBlockName( x, y, z );
+                    if ( name != lastName ) {
+                        lastName = name;
+                        lastId = table.computeIfAbsent( name, key -> {
+                            names.add( key );
+                            return names.size() - 1;
+                        } );
+                    }
+                    ids[index++] = (short) lastId;
+                }
+            }
+        }
+        String[] palette = names.toArray( new String[0] );
+        return ( x, y, z ) -> palette[ids[( ( y - minY ) << 8 ) | ( z << 4 ) | x]];
+    }
+
+    /**
+     * Change the type of the block at the given position. Has to be called on the main thread.
+     *
+     * @param x    the X co-ordinate
+     * @param y    the Y co-ordinate
+     * @param z    the Z co-ordinate
+     * @param type the new block type
+     */
+    void setBlock( int x, int y, int z, Class<? extends Block> type );
+
+    /**
+     * Keep the given chunk referenced until it is unpinned as often as it was pinned. A chunk
+     * which is not in memory yet is loaded, or generated, off the main thread. Has to be called
+     * on the main thread.
+     *
+     * @param chunkX the chunk X co-ordinate
+     * @param chunkZ the chunk Z co-ordinate
+     * @param loaded called once the chunk is available, right away or later on any thread
+     */
+    void pinChunk( int chunkX, int chunkZ, Runnable loaded );
+
+    /**
+     * Release a chunk pinned with {@link #pinChunk(int, int, Runnable)}.
+     *
+     * @param chunkX the chunk X co-ordinate
+     * @param chunkZ the chunk Z co-ordinate
+     */
+    void unpinChunk( int chunkX, int chunkZ );
+
+    /**
+     * Read access to a single chunk column.
+     */
+    interface ChunkView {
+
+        /**
+         * Get the schematic name of a block in this chunk. Equal names are returned as the same
+         * String instance, so callers may compare them by reference.
+         *
+         * @param x the X co-ordinate inside the chunk (0-15)
+         * @param y the Y co-ordinate
+         * @param z the Z co-ordinate inside the chunk (0-15)
+         * @return the block name
+         */
+        String getBlockName( int x, int y, int z );
+
+    }
+
+}
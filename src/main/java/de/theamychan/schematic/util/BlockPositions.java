@@ -0,0 +1,28 @@
+package de.theamychan.schematic.util;
+
+/**
+ * Packs block co-ordinates into a single long so they can be streamed without boxing. X and Z
+ * use 26 bits, Y uses 12 bits.
+ */
+public final class BlockPositions {
+
+    private BlockPositions() {
+    }
+
+    public static long pack( int x, int y, int z ) {
+        return ( (long) ( x & 0x3FFFFFF ) << 38 ) | ( (long) ( z & 0x3FFFFFF ) << 12 ) | ( y & 0xFFF );
+    }
+
+    public static int unpackX( long position ) {
+        return (int) ( position >> 38 );
+    }
+
+    public static int unpackY( long position ) {
+        return (int) ( position << 52 >> 52 );
+    }
+
+    public static int unpackZ( long position ) {
+        return (int) ( position << 26 >> 38 );
+    }
+
+}
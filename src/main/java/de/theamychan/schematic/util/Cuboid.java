@@ -1,19 +1,28 @@
 package de.theamychan.schematic.util;
 
+import de.theamychan.schematic.manager.GoMintWorldAccess;
+import de.theamychan.schematic.manager.WorldAccess;
 import io.gomint.GoMint;
 import io.gomint.math.Location;
 import io.gomint.world.Chunk;
 import io.gomint.world.World;
 import io.gomint.world.block.Block;
-import io.gomint.world.block.BlockAir;
+import lombok.Getter;
 
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class Cuboid implements Iterable<Block>, Cloneable {
 
-    public String worldName;
-    public int x1, y1, z1;
-    public int x2, y2, z2;
+    private static final String AIR = "Air";
+
+    @Getter
+    private final String worldName;
+    @Getter
+    private final Region region;
 
     /**
      * Construct a Cuboid given two Location objects which represent any two corners
@@ -27,12 +36,9 @@ public class Cuboid implements Iterable<Block>, Cloneable {
             throw new IllegalArgumentException("locations must be on the same world");
         }
         worldName = l1.getWorld().getWorldName();
-        x1 = Math.min((int)l1.getBlock().getLocation().getX(), (int) l2.getBlock().getLocation().getX());
-        y1 = Math.min((int)l1.getBlock().getLocation().getY(), (int) l2.getBlock().getLocation().getY());
-        z1 = Math.min((int)l1.getBlock().getLocation().getZ(), (int) l2.getBlock().getLocation().getZ());
-        x2 = Math.max((int)l1.getBlock().getLocation().getX(), (int) l2.getBlock().getLocation().getX());
-        y2 = Math.max((int)l1.getBlock().getLocation().getY(), (int) l2.getBlock().getLocation().getY());
-        z2 = Math.max((int)l1.getBlock().getLocation().getZ(), (int) l2.getBlock().getLocation().getZ());
+        Location b1 = l1.getBlock().getLocation();
+        Location b2 = l2.getBlock().getLocation();
+        region = new Region((int) b1.getX(), (int) b1.getY(), (int) b1.getZ(), (int) b2.getX(), (int) b2.getY(), (int) b2.getZ());
     }
 
     /**
@@ -50,7 +56,7 @@ public class Cuboid implements Iterable<Block>, Cloneable {
      * @param other the Cuboid to copy
      */
     public Cuboid(Cuboid other) {
-        this(other.getWorld(), other.x1, other.y1, other.z1, other.x2, other.y2, other.z2);
+        this(other.worldName, other.region);
     }
 
     /**
@@ -65,13 +71,7 @@ public class Cuboid implements Iterable<Block>, Cloneable {
      * @param z2 Z co-ordinate of corner 2
      */
     public Cuboid( World world, int x1, int y1, int z1, int x2, int y2, int z2) {
-        this.worldName = world.getWorldName();
-        this.x1 = Math.min(x1, x2);
-        this.x2 = Math.max(x1, x2);
-        this.y1 = Math.min(y1, y2);
-        this.y2 = Math.max(y1, y2);
-        this.z1 = Math.min(z1, z2);
-        this.z2 = Math.max(z1, z2);
+        this(world.getWorldName(), x1, y1, z1, x2, y2, z2);
     }
 
     /**
@@ -85,35 +85,36 @@ public class Cuboid implements Iterable<Block>, Cloneable {
      * @param y2 Y co-ordinate of corner 2
      * @param z2 Z co-ordinate of corner 2
      */
-    private Cuboid(String worldName, int x1, int y1, int z1, int x2, int y2, int z2) {
+    public Cuboid(String worldName, int x1, int y1, int z1, int x2, int y2, int z2) {
+        this(worldName, new Region(x1, y1, z1, x2, y2, z2));
+    }
+
+    /**
+     * Construct a Cuboid covering the given Region in the given world name.
+     *
+     * @param worldName the Cuboid's world name
+     * @param region the blocks of the Cuboid
+     */
+    public Cuboid(String worldName, Region region) {
         this.worldName = worldName;
-        this.x1 = Math.min(x1, x2);
-        this.x2 = Math.max(x1, x2);
-        this.y1 = Math.min(y1, y2);
-        this.y2 = Math.max(y1, y2);
-        this.z1 = Math.min(z1, z2);
-        this.z2 = Math.max(z1, z2);
+        this.region = region;
     }
 
     public Cuboid(Map<String,Object> map) {
-        worldName = (String)map.get("worldName");
-        x1 = (Integer) map.get("x1");
-        x2 = (Integer) map.get("x2");
-        y1 = (Integer) map.get("y1");
-        y2 = (Integer) map.get("y2");
-        z1 = (Integer) map.get("z1");
-        z2 = (Integer) map.get("z2");
+        this((String) map.get("worldName"),
+                (Integer) map.get("x1"), (Integer) map.get("y1"), (Integer) map.get("z1"),
+                (Integer) map.get("x2"), (Integer) map.get("y2"), (Integer) map.get("z2"));
     }
 
     public Map<String, Object> serialize() {
         Map<String,Object> map = new HashMap<String, Object>();
         map.put("worldName", worldName);
-        map.put("x1", x1);
-        map.put("y1", y1);
-        map.put("z1", z1);
-        map.put("x2", x2);
-        map.put("y2", y2);
-        map.put("z2", z2);
+        map.put("x1", getMinX());
+        map.put("y1", getMinY());
+        map.put("z1", getMinZ());
+        map.put("x2", getMaxX());
+        map.put("y2", getMaxY());
+        map.put("z2", getMaxZ());
         return map;
     }
 
@@ -124,7 +125,7 @@ public class Cuboid implements Iterable<Block>, Cloneable {
      * @return Location of the lower northeast corner
      */
     public Location getLowerNE() {
-        return new Location(getWorld(), x1, y1, z1);
+        return new Location(getWorld(), getMinX(), getMinY(), getMinZ());
     }
 
     /**
@@ -134,7 +135,7 @@ public class Cuboid implements Iterable<Block>, Cloneable {
      * @return Location of the upper southwest corner
      */
     public Location getUpperSW() {
-        return new Location(getWorld(), x2, y2, z2);
+        return new Location(getWorld(), getMaxX(), getMaxY(), getMaxZ());
     }
 
     /**
@@ -187,7 +188,7 @@ public class Cuboid implements Iterable<Block>, Cloneable {
      * @return	Size of Cuboid along the X axis
      */
     public float getSizeX() {
-        return (x2 - x1) + 1;
+        return region.getSizeX();
     }
 
     /**
@@ -196,7 +197,7 @@ public class Cuboid implements Iterable<Block>, Cloneable {
      * @return	Size of Cuboid along the Y axis
      */
     public float getSizeY() {
-        return (y2 - y1) + 1;
+        return region.getSizeY();
     }
 
     /**
@@ -205,7 +206,7 @@ public class Cuboid implements Iterable<Block>, Cloneable {
      * @return	Size of Cuboid along the Z axis
      */
     public float getSizeZ() {
-        return (z2 - z1) + 1;
+        return region.getSizeZ();
     }
 
     /**
@@ -214,7 +215,7 @@ public class Cuboid implements Iterable<Block>, Cloneable {
      * @return	the minimum X co-ordinate
      */
     public float getLowerX() {
-        return x1;
+        return region.getMinX();
     }
 
     /**
@@ -223,7 +224,7 @@ public class Cuboid implements Iterable<Block>, Cloneable {
      * @return	the minimum Y co-ordinate
      */
     public float getLowerY() {
-        return y1;
+        return region.getMinY();
     }
 
     /**
@@ -232,7 +233,7 @@ public class Cuboid implements Iterable<Block>, Cloneable {
      * @return	the minimum Z co-ordinate
      */
     public float getLowerZ() {
-        return z1;
+        return region.getMinZ();
     }
 
     /**
@@ -241,7 +242,7 @@ public class Cuboid implements Iterable<Block>, Cloneable {
      * @return	the maximum X co-ordinate
      */
     public float getUpperX() {
-        return x2;
+        return region.getMaxX();
     }
 
     /**
@@ -250,7 +251,7 @@ public class Cuboid implements Iterable<Block>, Cloneable {
      * @return	the maximum Y co-ordinate
      */
     public float getUpperY() {
-        return y2;
+        return region.getMaxY();
     }
 
     /**
@@ -259,7 +260,31 @@ public class Cuboid implements Iterable<Block>, Cloneable {
      * @return	the maximum Z co-ordinate
      */
     public float getUpperZ() {
-        return z2;
+        return region.getMaxZ();
+    }
+
+    public int getMinX() {
+        return region.getMinX();
+    }
+
+    public int getMinY() {
+        return region.getMinY();
+    }
+
+    public int getMinZ() {
+        return region.getMinZ();
+    }
+
+    public int getMaxX() {
+        return region.getMaxX();
+    }
+
+    public int getMaxY() {
+        return region.getMaxY();
+    }
+
+    public int getMaxZ() {
+        return region.getMaxZ();
     }
 
     /**
@@ -270,6 +295,8 @@ public class Cuboid implements Iterable<Block>, Cloneable {
     public Block[] corners() {
         Block[] res = new Block[8];
         World w = getWorld();
+        int x1 = getMinX(), y1 = getMinY(), z1 = getMinZ();
+        int x2 = getMaxX(), y2 = getMaxY(), z2 = getMaxZ();
         res[0] = w.getBlockAt(x1, y1, z1);
         res[1] = w.getBlockAt(x1, y1, z2);
         res[2] = w.getBlockAt(x1, y2, z1);
@@ -293,17 +320,17 @@ public class Cuboid implements Iterable<Block>, Cloneable {
     public Cuboid expand(CuboidDirection dir, int amount) {
         switch (dir) {
             case North:
-                return new Cuboid(worldName, x1 - amount, y1, z1, x2, y2, z2);
+                return new Cuboid(worldName, region.expand(amount, 0, 0, 0, 0, 0));
             case South:
-                return new Cuboid(worldName, x1, y1, z1, x2 + amount, y2, z2);
+                return new Cuboid(worldName, region.expand(0, 0, 0, amount, 0, 0));
             case East:
-                return new Cuboid(worldName, x1, y1, z1 - amount, x2, y2, z2);
+                return new Cuboid(worldName, region.expand(0, 0, amount, 0, 0, 0));
             case West:
-                return new Cuboid(worldName, x1, y1, z1, x2, y2, z2 + amount);
+                return new Cuboid(worldName, region.expand(0, 0, 0, 0, 0, amount));
             case Down:
-                return new Cuboid(worldName, x1, y1 - amount, z1, x2, y2, z2);
+                return new Cuboid(worldName, region.expand(0, amount, 0, 0, 0, 0));
             case Up:
-                return new Cuboid(worldName, x1, y1, z1, x2, y2 + amount, z2);
+                return new Cuboid(worldName, region.expand(0, 0, 0, 0, amount, 0));
             default:
                 throw new IllegalArgumentException("invalid direction " + dir);
         }
@@ -366,7 +393,7 @@ public class Cuboid implements Iterable<Block>, Cloneable {
      * @return	true if the given point is within this Cuboid, false otherwise
      */
     public boolean contains(int x, int y, int z) {
-        return x >= x1 && x <= x2 && y >= y1 && y <= y2 && z >= z1 && z <= z2;
+        return region.contains(x, y, z);
     }
 
     /**
@@ -389,13 +416,32 @@ public class Cuboid implements Iterable<Block>, Cloneable {
         return worldName.equals(l.getWorld().getWorldName()) && contains((int)l.getBlock().getLocation().getX(), (int)l.getBlock().getLocation().getY(),(int) l.getBlock().getLocation().getZ());
     }
 
+    /**
+     * Check if this Cuboid and the given one share at least one block.
+     *
+     * @param other the other Cuboid
+     * @return	true if both Cuboids are in the same world and overlap, false otherwise
+     */
+    public boolean intersects(Cuboid other) {
+        return worldName.equals(other.worldName) && region.intersects(other.region);
+    }
+
     /**
      * Get the volume of this Cuboid.
      *
      * @return	the Cuboid volume, in blocks
      */
     public float volume() {
-        return getSizeX() * getSizeY() * getSizeZ();
+        return region.getVolume();
+    }
+
+    /**
+     * Get the exact volume of this Cuboid.
+     *
+     * @return	the Cuboid volume, in blocks
+     */
+    public long getVolume() {
+        return region.getVolume();
     }
 
     /**
@@ -405,13 +451,23 @@ public class Cuboid implements Iterable<Block>, Cloneable {
      * @return a new Cuboid with no external air blocks
      */
     public Cuboid contract() {
+        return contract(new GoMintWorldAccess(getWorld()));
+    }
+
+    /**
+     * Contract the Cuboid by reading the blocks through the given world access.
+     *
+     * @param world	the world this Cuboid lies in
+     * @return a new Cuboid with no external air blocks
+     */
+    public Cuboid contract(WorldAccess world) {
         return this.
-                contract(CuboidDirection.Down).
-                contract(CuboidDirection.South).
-                contract(CuboidDirection.East).
-                contract(CuboidDirection.Up).
-                contract(CuboidDirection.North).
-                contract(CuboidDirection.West);
+                contract(CuboidDirection.Down, world).
+                contract(CuboidDirection.South, world).
+                contract(CuboidDirection.East, world).
+                contract(CuboidDirection.Up, world).
+                contract(CuboidDirection.North, world).
+                contract(CuboidDirection.West, world);
     }
 
     /**
@@ -422,41 +478,78 @@ public class Cuboid implements Iterable<Block>, Cloneable {
      * @return	a new Cuboid contracted in the given direction
      */
     public Cuboid contract(CuboidDirection dir) {
-        Cuboid face = getFace(dir.opposite());
+        return contract(dir, new GoMintWorldAccess(getWorld()));
+    }
+
+    /**
+     * Contract the Cuboid in the given direction by reading the blocks through the given world access.
+     *
+     * @param dir	the direction in which to contract
+     * @param w	the world this Cuboid lies in
+     * @return	a new Cuboid contracted in the given direction
+     */
+    public Cuboid contract(CuboidDirection dir, WorldAccess w) {
+        int x1 = getMinX(), y1 = getMinY(), z1 = getMinZ();
+        int x2 = getMaxX(), y2 = getMaxY(), z2 = getMaxZ();
         switch (dir) {
             case Down:
-                while (face.containsOnly(GoMint.instance().createBlock( BlockAir.class )) && face.getLowerY() > this.getLowerY()) {
-                    face = face.shift(CuboidDirection.Down, 1);
+                while (y2 > y1 && isAir(w, x1, y2, z1, x2, y2, z2)) {
+                    y2--;
                 }
-                return new Cuboid(worldName, x1, y1, z1, x2, (int) face.getUpperY(), z2);
+                break;
             case Up:
-                while (face.containsOnly(GoMint.instance().createBlock( BlockAir.class )) && face.getUpperY() < this.getUpperY()) {
-                    face = face.shift(CuboidDirection.Up, 1);
+                while (y1 < y2 && isAir(w, x1, y1, z1, x2, y1, z2)) {
+                    y1++;
                 }
-                return new Cuboid(worldName, x1, (int) face.getLowerY(), z1, x2, y2, z2);
+                break;
             case North:
-                while (face.containsOnly(GoMint.instance().createBlock( BlockAir.class )) && face.getLowerX() > this.getLowerX()) {
-                    face = face.shift(CuboidDirection.North, 1);
+                while (x2 > x1 && isAir(w, x2, y1, z1, x2, y2, z2)) {
+                    x2--;
                 }
-                return new Cuboid(worldName, x1, y1, z1, (int) face.getUpperX(), y2, z2);
+                break;
             case South:
-                while (face.containsOnly(GoMint.instance().createBlock( BlockAir.class )) && face.getUpperX() < this.getUpperX()) {
-                    face = face.shift(CuboidDirection.South, 1);
+                while (x1 < x2 && isAir(w, x1, y1, z1, x1, y2, z2)) {
+                    x1++;
                 }
-                return new Cuboid(worldName, (int) face.getLowerX(), y1, z1, x2, y2, z2);
+                break;
             case East:
-                while (face.containsOnly(GoMint.instance().createBlock( BlockAir.class )) && face.getLowerZ() > this.getLowerZ()) {
-                    face = face.shift(CuboidDirection.East, 1);
+                while (z2 > z1 && isAir(w, x1, y1, z2, x2, y2, z2)) {
+                    z2--;
                 }
-                return new Cuboid(worldName, x1, y1, z1, x2, y2,(int) face.getUpperZ());
+                break;
             case West:
-                while (face.containsOnly(GoMint.instance().createBlock( BlockAir.class )) && face.getUpperZ() < this.getUpperZ()) {
-                    face = face.shift(CuboidDirection.West, 1);
+                while (z1 < z2 && isAir(w, x1, y1, z1, x2, y2, z1)) {
+                    z1++;
                 }
-                return new Cuboid(worldName, x1, y1, (int) face.getLowerZ(), x2, y2, z2);
+                break;
             default:
                 throw new IllegalArgumentException("Invalid direction " + dir);
         }
+        return new Cuboid(worldName, x1, y1, z1, x2, y2, z2);
+    }
+
+    /**
+     * Check a slice for air chunk by chunk, so every chunk is looked up once per slice instead of
+     * once per block.
+     */
+    private static boolean isAir(WorldAccess w, int x1, int y1, int z1, int x2, int y2, int z2) {
+        for (int cx = x1 >> 4; cx <= x2 >> 4; cx++) {
+            for (int cz = z1 >> 4; cz <= z2 >> 4; cz++) {
+                WorldAccess.ChunkView chunk = w.getChunk(cx, cz);
+                int fromX = Math.max(x1, cx << 4) & 15, toX = Math.min(x2, (cx << 4) + 15) & 15;
+                int fromZ = Math.max(z1, cz << 4) & 15, toZ = Math.min(z2, (cz << 4) + 15) & 15;
+                for (int y = y1; y <= y2; y++) {
+                    for (int z = fromZ; z <= toZ; z++) {
+                        for (int x = fromX; x <= toX; x++) {
+                            if (!AIR.equals(chunk.getBlockName(x, y, z))) {
+                                return false;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return true;
     }
 
     /**
@@ -467,6 +560,8 @@ public class Cuboid implements Iterable<Block>, Cloneable {
      * @return	the Cuboid representing this Cuboid's requested face
      */
     public Cuboid getFace(CuboidDirection dir	) {
+        int x1 = getMinX(), y1 = getMinY(), z1 = getMinZ();
+        int x2 = getMaxX(), y2 = getMaxY(), z2 = getMaxZ();
         switch (dir) {
             case Down:
                 return new Cuboid(worldName, x1, y1, z1, x2, y1, z2);
@@ -492,12 +587,8 @@ public class Cuboid implements Iterable<Block>, Cloneable {
      * @return true if this Cuboid contains only blocks of the given type
      */
     public boolean containsOnly(Block block) {
-        for (Block b : this) {
-            if (b != block) {
-                return false;
-            }
-        }
-        return true;
+        Class<?> type = block.getClass();
+        return stream().allMatch(b -> b.getClass() == type);
     }
 
     /**
@@ -511,14 +602,7 @@ public class Cuboid implements Iterable<Block>, Cloneable {
             return this;
         }
 
-        int xMin = Math.min((int)getLowerX(),(int) other.getLowerX());
-        int yMin = Math.min((int)getLowerY(),(int) other.getLowerY());
-        int zMin = Math.min((int)getLowerZ(),(int) other.getLowerZ());
-        int xMax = Math.max((int)getUpperX(),(int) other.getUpperX());
-        int yMax = Math.max((int)getUpperY(),(int) other.getUpperY());
-        int zMax = Math.max((int)getUpperZ(),(int) other.getUpperZ());
-
-        return new Cuboid(worldName, xMin, yMin, zMin, xMax, yMax, zMax);
+        return new Cuboid(worldName, region.union(other.region));
     }
 
     /**
@@ -530,7 +614,7 @@ public class Cuboid implements Iterable<Block>, Cloneable {
      * @return	the block at the given position
      */
     public Block getRelativeBlock(int x, int y, int z) {
-        return getWorld().getBlockAt(x1 + x, y1 + y, z1 + z);
+        return getWorld().getBlockAt(getMinX() + x, getMinY() + y, getMinZ() + z);
     }
 
     /**
@@ -545,7 +629,7 @@ public class Cuboid implements Iterable<Block>, Cloneable {
      * @return	the block at the given position
      */
     public Block getRelativeBlock(World w, int x, int y, int z) {
-        return w.getBlockAt(x1 + x, y1 + y, z1 + z);
+        return w.getBlockAt(getMinX() + x, getMinY() + y, getMinZ() + z);
     }
 
     /**
@@ -557,8 +641,8 @@ public class Cuboid implements Iterable<Block>, Cloneable {
         List<Chunk> res = new ArrayList<>();
 
         World w = getWorld();
-        int x1 = (int) getLowerX() & ~0xf; int x2 = (int) getUpperX() & ~0xf;
-        int z1 = (int) getLowerZ() & ~0xf; int z2 = (int) getUpperZ() & ~0xf;
+        int x1 = getMinX() & ~0xf; int x2 = getMaxX() & ~0xf;
+        int z1 = getMinZ() & ~0xf; int z2 = getMaxZ() & ~0xf;
         for (int x = x1; x <= x2; x += 16) {
             for (int z = z1; z <= z2; z += 16) {
                 res.add(w.getChunk(x >> 4, z >> 4));
@@ -568,11 +652,59 @@ public class Cuboid implements Iterable<Block>, Cloneable {
     }
 
 
+    /**
+     * Visit every block co-ordinate of this Cuboid without creating any objects.  Co-ordinates
+     * are visited chunk column by chunk column and section by section inside each column.
+     *
+     * @param visitor	the visitor to call for every co-ordinate
+     */
+    public void forEachPosition(PositionVisitor visitor) {
+        region.forEachPosition(visitor);
+    }
+
+    /**
+     * Get a Spliterator over the packed co-ordinates (see {@link BlockPositions}) of this Cuboid
+     * which splits on chunk borders.
+     *
+     * @return	a new chunk aligned Spliterator
+     */
+    public Spliterator.OfLong positionSpliterator() {
+        return region.positionSpliterator();
+    }
+
+    /**
+     * Get a sequential stream of the packed co-ordinates of this Cuboid.  Call parallel() on it
+     * to spread the work over all cores, every thread then gets its own set of chunks.
+     *
+     * @return	a stream of packed co-ordinates
+     */
+    public LongStream positions() {
+        return region.positions();
+    }
+
+    /**
+     * Get a sequential stream of the blocks in this Cuboid.  The blocks are read from the live
+     * world, so this stream must stay on the main thread; take a snapshot for parallel analysis.
+     *
+     * @return	a stream of the blocks in this Cuboid
+     */
+    public Stream<Block> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    /* (non-Javadoc)
+     * @see java.lang.Iterable#spliterator()
+     */
+    @Override
+    public Spliterator<Block> spliterator() {
+        return new BlockSpliterator(getWorld(), positionSpliterator());
+    }
+
     /* (non-Javadoc)
      * @see java.lang.Iterable#iterator()
      */
     public Iterator<Block> iterator() {
-        return new CuboidIterator(getWorld(), x1, y1, z1, x2, y2, z2);
+        return new CuboidIterator(getWorld(), getMinX(), getMinY(), getMinZ(), getMaxX(), getMaxY(), getMaxZ());
     }
 
     /* (non-Javadoc)
@@ -589,7 +721,7 @@ public class Cuboid implements Iterable<Block>, Cloneable {
      */
     @Override
     public String toString() {
-        return "Cuboid: " + worldName + "," + x1 + "," + y1 + "," + z1 + "=>" + x2 + "," + y2 + "," + z2;
+        return "Cuboid: " + worldName + "," + getMinX() + "," + getMinY() + "," + getMinZ() + "=>" + getMaxX() + "," + getMaxY() + "," + getMaxZ();
     }
 
     public class CuboidIterator implements Iterator<Block> {
@@ -630,6 +762,33 @@ public class Cuboid implements Iterable<Block>, Cloneable {
         }
     }
 
+    private static class BlockSpliterator implements Spliterator<Block> {
+        private final World w;
+        private final Spliterator.OfLong positions;
+
+        private BlockSpliterator(World w, Spliterator.OfLong positions) {
+            this.w = w;
+            this.positions = positions;
+        }
+
+        public boolean tryAdvance(Consumer<? super Block> action) {
+            return positions.tryAdvance((long p) -> action.accept(w.getBlockAt(BlockPositions.unpackX(p), BlockPositions.unpackY(p), BlockPositions.unpackZ(p))));
+        }
+
+        public Spliterator<Block> trySplit() {
+            Spliterator.OfLong prefix = positions.trySplit();
+            return prefix == null ? null : new BlockSpliterator(w, prefix);
+        }
+
+        public long estimateSize() {
+            return positions.estimateSize();
+        }
+
+        public int characteristics() {
+            return SIZED | SUBSIZED | NONNULL;
+        }
+    }
+
     public enum CuboidDirection {
 
         North, East, South, West, Up, Down, Horizontal, Vertical, Both, Unknown;
@@ -0,0 +1,107 @@
+package de.theamychan.schematic.util;
+
+import java.util.Spliterator;
+import java.util.function.LongConsumer;
+
+/**
+ * Spliterator over the packed positions (see {@link BlockPositions}) of a box. Splits always
+ * happen on chunk borders, first along the longer horizontal axis and then on section borders,
+ * so every part of a parallel stream works on its own set of chunks. Inside a part positions
+ * are visited x-fastest, then z, then y.
+ */
+public class CuboidSpliterator implements Spliterator.OfLong {
+
+    private int minX, minY, minZ;
+    private int maxX, maxY, maxZ;
+    private int x, y, z;
+    private long remaining;
+
+    public CuboidSpliterator( int minX, int minY, int minZ, int maxX, int maxY, int maxZ ) {
+        reset( minX, minY, minZ, maxX, maxY, maxZ );
+    }
+
+    private void reset( int minX, int minY, int minZ, int maxX, int maxY, int maxZ ) {
+        this.minX = minX;
+        this.minY = minY;
+        this.minZ = minZ;
+        this.maxX = maxX;
+        this.maxY = maxY;
+        this.maxZ = maxZ;
+        this.x = minX;
+        this.y = minY;
+        this.z = minZ;
+        this.remaining = (long) ( maxX - minX + 1 ) * ( maxY - minY + 1 ) * ( maxZ - minZ + 1 );
+    }
+
+    private boolean started() {
+        return x != minX || y != minY || z != minZ;
+    }
+
+    @Override
+    public OfLong trySplit() {
+        if ( remaining == 0 || started() ) {
+            return null;
+        }
+
+        int chunksX = ( maxX >> 4 ) - ( minX >> 4 ) + 1;
+        int chunksZ = ( maxZ >> 4 ) - ( minZ >> 4 ) + 1;
+        int sections = ( maxY >> 4 ) - ( minY >> 4 ) + 1;
+        CuboidSpliterator prefix;
+        if ( chunksX > 1 && chunksX >= chunksZ ) {
+            int border = ( ( minX >> 4 ) + chunksX / 2 ) << 4;
+            prefix = new CuboidSpliterator( minX, minY, minZ, border - 1, maxY, maxZ );
+            reset( border, minY, minZ, maxX, maxY, maxZ );
+        } else if ( chunksZ > 1 ) {
+            int border = ( ( minZ >> 4 ) + chunksZ / 2 ) << 4;
+            prefix = new CuboidSpliterator( minX, minY, minZ, maxX, maxY, border - 1 );
+            reset( minX, minY, border, maxX, maxY, maxZ );
+        } else if ( sections > 1 ) {
+            int border = ( ( minY >> 4 ) + sections / 2 ) << 4;
+            prefix = new CuboidSpliterator( minX, minY, minZ, maxX, border - 1, maxZ );
+            reset( minX, border, minZ, maxX, maxY, maxZ );
+        } else {
+            return null;
+        }
+        return prefix;
+    }
+
+    @Override
+    public boolean tryAdvance( LongConsumer action ) {
+        if ( remaining == 0 ) {
+            return false;
+        }
+        action.accept( BlockPositions.pack( x, y, z ) );
+        advance();
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining( LongConsumer action ) {
+        while ( remaining > 0 ) {
+            action.accept( BlockPositions.pack( x, y, z ) );
+            advance();
+        }
+    }
+
+    private void advance() {
+        remaining--;
+        if ( ++x > maxX ) {
+            x = minX;
+            if ( ++z > maxZ ) {
+                z = minZ;
+                ++y;
+            }
+        }
+    }
+
+    @Override
+    public long estimateSize() {
+        return remaining;
+    }
+
+    @Override
+    public int characteristics() {
+        return SIZED | SUBSIZED | DISTINCT | NONNULL | IMMUTABLE;
+    }
+
+}
@@ -0,0 +1,11 @@
+package de.theamychan.schematic.util;
+
+/**
+ * Receives block co-ordinates one at a time, see {@link Cuboid#forEachPosition(PositionVisitor)}.
+ */
+@FunctionalInterface
+public interface PositionVisitor {
+
+    void visit( int x, int y, int z );
+
+}
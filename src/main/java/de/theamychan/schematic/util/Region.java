@@ -0,0 +1,257 @@
+package de.theamychan.schematic.util;
+
+import lombok.Getter;
+
+import java.util.Spliterator;
+import java.util.stream.LongStream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Immutable box of block co-ordinates. Both corners are inclusive. Unlike {@link Cuboid} a
+ * Region is not bound to a world, so it can be used from any thread and in tight loops.
+ * Linear indices use the same order as a {@link de.theamychan.schematic.clipboard.Clipboard}:
+ * x first, then z, then y.
+ */
+public final class Region {
+
+    @Getter
+    private final int minX, minY, minZ;
+    @Getter
+    private final int maxX, maxY, maxZ;
+
+    /**
+     * Construct a Region from two corners in any order.
+     *
+     * @param x1 X co-ordinate of corner 1
+     * @param y1 Y co-ordinate of corner 1
+     * @param z1 Z co-ordinate of corner 1
+     * @param x2 X co-ordinate of corner 2
+     * @param y2 Y co-ordinate of corner 2
+     * @param z2 Z co-ordinate of corner 2
+     */
+    public Region( int x1, int y1, int z1, int x2, int y2, int z2 ) {
+        this.minX = Math.min( x1, x2 );
+        this.minY = Math.min( y1, y2 );
+        this.minZ = Math.min( z1, z2 );
+        this.maxX = Math.max( x1, x2 );
+        this.maxY = Math.max( y1, y2 );
+        this.maxZ = Math.max( z1, z2 );
+    }
+
+    public int getSizeX() {
+        return maxX - minX + 1;
+    }
+
+    public int getSizeY() {
+        return maxY - minY + 1;
+    }
+
+    public int getSizeZ() {
+        return maxZ - minZ + 1;
+    }
+
+    public long getVolume() {
+        return (long) getSizeX() * getSizeY() * getSizeZ();
+    }
+
+    public boolean contains( int x, int y, int z ) {
+        return x >= minX && x <= maxX && y >= minY && y <= maxY && z >= minZ && z <= maxZ;
+    }
+
+    public boolean contains( Region other ) {
+        return other.minX >= minX && other.maxX <= maxX
+                && other.minY >= minY && other.maxY <= maxY
+                && other.minZ >= minZ && other.maxZ <= maxZ;
+    }
+
+    public boolean intersects( Region other ) {
+        return minX <= other.maxX && other.minX <= maxX
+                && minY <= other.maxY && other.minY <= maxY
+                && minZ <= other.maxZ && other.minZ <= maxZ;
+    }
+
+    /**
+     * Get the blocks shared by this Region and the given one.
+     *
+     * @param other the other Region
+     * @return the shared Region or null if both do not overlap
+     */
+    public Region intersection( Region other ) {
+        if ( !intersects( other ) ) {
+            return null;
+        }
+        if ( other.contains( this ) ) {
+            return this;
+        }
+        if ( contains( other ) ) {
+            return other;
+        }
+        return new Region( Math.max( minX, other.minX ), Math.max( minY, other.minY ), Math.max( minZ, other.minZ ),
+                Math.min( maxX, other.maxX ), Math.min( maxY, other.maxY ), Math.min( maxZ, other.maxZ ) );
+    }
+
+    /**
+     * Get the smallest Region holding both this Region and the given one.
+     *
+     * @param other the other Region
+     * @return the bounding Region
+     */
+    public Region union( Region other ) {
+        if ( contains( other ) ) {
+            return this;
+        }
+        if ( other.contains( this ) ) {
+            return other;
+        }
+        return new Region( Math.min( minX, other.minX ), Math.min( minY, other.minY ), Math.min( minZ, other.minZ ),
+                Math.max( maxX, other.maxX ), Math.max( maxY, other.maxY ), Math.max( maxZ, other.maxZ ) );
+    }
+
+    /**
+     * Move every face of the Region outwards by the given amounts. Negative amounts move a face
+     * inwards.
+     *
+     * @param minX amount to move the lower X face by
+     * @param minY amount to move the lower Y face by
+     * @param minZ amount to move the lower Z face by
+     * @param maxX amount to move the upper X face by
+     * @param maxY amount to move the upper Y face by
+     * @param maxZ amount to move the upper Z face by
+     * @return the resized Region
+     */
+    public Region expand( int minX, int minY, int minZ, int maxX, int maxY, int maxZ ) {
+        return new Region( this.minX - minX, this.minY - minY, this.minZ - minZ, this.maxX + maxX, this.maxY + maxY, this.maxZ + maxZ );
+    }
+
+    public Region shift( int x, int y, int z ) {
+        return new Region( minX + x, minY + y, minZ + z, maxX + x, maxY + y, maxZ + z );
+    }
+
+    /**
+     * Get the linear index of a block inside this Region.
+     *
+     * @param x the X co-ordinate
+     * @param y the Y co-ordinate
+     * @param z the Z co-ordinate
+     * @return the index, between 0 and the volume
+     */
+    public long getIndex( int x, int y, int z ) {
+        return ( (long) ( y - minY ) * getSizeZ() + ( z - minZ ) ) * getSizeX() + ( x - minX );
+    }
+
+    public int getX( long index ) {
+        return minX + (int) ( index % getSizeX() );
+    }
+
+    public int getY( long index ) {
+        return minY + (int) ( index / getSizeX() / getSizeZ() );
+    }
+
+    public int getZ( long index ) {
+        return minZ + (int) ( index / getSizeX() % getSizeZ() );
+    }
+
+    /**
+     * Get points along the twelve edges of this Region's outer faces, packed as described in
+     * {@link BlockPositions}. The far faces lie one block beyond the maximum corner, so the
+     * outline encloses the last row of blocks. On large Regions the points are spread out to
+     * stay close to the given limit.
+     *
+     * @param maxPoints the number of points to aim for
+     * @return the packed points
+     */
+    public long[] getOutline( int maxPoints ) {
+        int x2 = maxX + 1, y2 = maxY + 1, z2 = maxZ + 1;
+        long edges = 4L * ( getSizeX() + getSizeY() + getSizeZ() );
+        int step = (int) Math.max( 1, ( edges + maxPoints - 1 ) / maxPoints );
+
+        LongStream.Builder points = LongStream.builder();
+        for (int edge = 0; edge < 4; edge++) {
+            int x = ( edge & 1 ) == 0 ? minX : x2, y = ( edge & 1 ) == 0 ? minY : y2, z = ( edge & 2 ) == 0 ? minZ : z2;
+            // Edges along X hold the corners, the others leave them out
+            for (int i = minX; i < x2; i += step) {
+                points.add( BlockPositions.pack( i, y, z ) );
+            }
+            points.add( BlockPositions.pack( x2, y, z ) );
+            for (int i = minY + step; i < y2; i += step) {
+                points.add( BlockPositions.pack( x, i, z ) );
+            }
+            for (int i = minZ + step; i < z2; i += step) {
+                points.add( BlockPositions.pack( x, ( edge & 2 ) == 0 ? minY : y2, i ) );
+            }
+        }
+        return points.build().toArray();
+    }
+
+    /**
+     * Visit every block co-ordinate without creating any objects. Co-ordinates are visited chunk
+     * column by chunk column, bottom to top inside each column.
+     *
+     * @param visitor the visitor to call for every co-ordinate
+     */
+    public void forEachPosition( PositionVisitor visitor ) {
+        for (int chunkX = minX >> 4; chunkX <= maxX >> 4; chunkX++) {
+            int fromX = Math.max( minX, chunkX << 4 ), toX = Math.min( maxX, ( chunkX << 4 ) + 15 );
+            for (int chunkZ = minZ >> 4; chunkZ <= maxZ >> 4; chunkZ++) {
+                int fromZ = Math.max( minZ, chunkZ << 4 ), toZ = Math.min( maxZ, ( chunkZ << 4 ) + 15 );
+                for (int y = minY; y <= maxY; y++) {
+                    for (int z = fromZ; z <= toZ; z++) {
+                        for (int x = fromX; x <= toX; x++) {
+                            visitor.visit( x, y, z );
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Get a Spliterator over the packed co-ordinates (see {@link BlockPositions}) of this Region
+     * which splits on chunk borders.
+     *
+     * @return a new chunk aligned Spliterator
+     */
+    public Spliterator.OfLong positionSpliterator() {
+        return new CuboidSpliterator( minX, minY, minZ, maxX, maxY, maxZ );
+    }
+
+    /**
+     * Get a sequential stream of the packed co-ordinates of this Region. Call parallel() on it to
+     * spread the work over all cores, every thread then gets its own set of chunks.
+     *
+     * @return a stream of packed co-ordinates
+     */
+    public LongStream positions() {
+        return StreamSupport.longStream( positionSpliterator(), false );
+    }
+
+    @Override
+    public boolean equals( Object o ) {
+        if ( this == o ) {
+            return true;
+        }
+        if ( !( o instanceof Region ) ) {
+            return false;
+        }
+        Region other = (Region) o;
+        return minX == other.minX && minY == other.minY && minZ == other.minZ
+                && maxX == other.maxX && maxY == other.maxY && maxZ == other.maxZ;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = minX;
+        result = 31 * result + minY;
+        result = 31 * result + minZ;
+        result = 31 * result + maxX;
+        result = 31 * result + maxY;
+        result = 31 * result + maxZ;
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "Region: " + minX + "," + minY + "," + minZ + "=>" + maxX + "," + maxY + "," + maxZ;
+    }
+
+}
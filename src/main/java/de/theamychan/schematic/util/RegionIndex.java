@@ -0,0 +1,161 @@
+package de.theamychan.schematic.util;
+
+import java.util.*;
+
+/**
+ * In-memory spatial index of Cuboids. Every value is registered under each chunk column its
+ * Cuboid touches, so lookups only have to look at the values sharing a chunk with the query.
+ * Each value carries the sequence number of its insertion, so query results are put in insertion
+ * order by sorting the hits alone.
+ *
+ * @param <T> the type of the indexed values
+ */
+public class RegionIndex<T> {
+
+    private final Map<String, Map<Long, List<T>>> chunks = new HashMap<>();
+    private final Map<T, Entry> regions = new LinkedHashMap<>();
+    private long sequence;
+
+    /**
+     * Add a value covering the given Cuboid.
+     *
+     * @param cuboid the area covered by the value
+     * @param value  the value to add
+     */
+    public void add( Cuboid cuboid, T value ) {
+        remove( value );
+        regions.put( value, new Entry( cuboid, sequence++ ) );
+        Map<Long, List<T>> world = chunks.computeIfAbsent( cuboid.getWorldName(), w -> new HashMap<>() );
+        for (int cx = cuboid.getMinX() >> 4; cx <= cuboid.getMaxX() >> 4; cx++) {
+            for (int cz = cuboid.getMinZ() >> 4; cz <= cuboid.getMaxZ() >> 4; cz++) {
+                world.computeIfAbsent( chunkKey( cx, cz ), k -> new ArrayList<>( 2 ) ).add( value );
+            }
+        }
+    }
+
+    /**
+     * Remove a value from the index.
+     *
+     * @param value the value to remove
+     * @return true if the value was indexed
+     */
+    public boolean remove( T value ) {
+        Entry entry = regions.remove( value );
+        if ( entry == null ) {
+            return false;
+        }
+        Cuboid cuboid = entry.cuboid;
+        Map<Long, List<T>> world = chunks.get( cuboid.getWorldName() );
+        for (int cx = cuboid.getMinX() >> 4; cx <= cuboid.getMaxX() >> 4; cx++) {
+            for (int cz = cuboid.getMinZ() >> 4; cz <= cuboid.getMaxZ() >> 4; cz++) {
+                long key = chunkKey( cx, cz );
+                List<T> values = world.get( key );
+                values.remove( value );
+                if ( values.isEmpty() ) {
+                    world.remove( key );
+                }
+            }
+        }
+        if ( world.isEmpty() ) {
+            chunks.remove( cuboid.getWorldName() );
+        }
+        return true;
+    }
+
+    /**
+     * Get all values whose Cuboid overlaps the given one, in the order they were added.
+     *
+     * @param cuboid the area to query
+     * @return the overlapping values
+     */
+    public List<T> query( Cuboid cuboid ) {
+        Map<Long, List<T>> world = chunks.get( cuboid.getWorldName() );
+        if ( world == null ) {
+            return Collections.emptyList();
+        }
+
+        Set<T> result = new HashSet<>();
+        for (int cx = cuboid.getMinX() >> 4; cx <= cuboid.getMaxX() >> 4; cx++) {
+            for (int cz = cuboid.getMinZ() >> 4; cz <= cuboid.getMaxZ() >> 4; cz++) {
+                List<T> values = world.get( chunkKey( cx, cz ) );
+                if ( values != null ) {
+                    for (T value : values) {
+                        if ( regions.get( value ).cuboid.intersects( cuboid ) ) {
+                            result.add( value );
+                        }
+                    }
+                }
+            }
+        }
+        return inInsertionOrder( result );
+    }
+
+    /**
+     * Get all values whose Cuboid contains the given block.
+     *
+     * @param worldName the name of the world
+     * @param x         the X co-ordinate
+     * @param y         the Y co-ordinate
+     * @param z         the Z co-ordinate
+     * @return the values covering the block
+     */
+    public List<T> query( String worldName, int x, int y, int z ) {
+        Map<Long, List<T>> world = chunks.get( worldName );
+        List<T> values = world == null ? null : world.get( chunkKey( x >> 4, z >> 4 ) );
+        if ( values == null ) {
+            return Collections.emptyList();
+        }
+
+        Set<T> result = new HashSet<>();
+        for (T value : values) {
+            if ( regions.get( value ).cuboid.contains( x, y, z ) ) {
+                result.add( value );
+            }
+        }
+        return inInsertionOrder( result );
+    }
+
+    private List<T> inInsertionOrder( Set<T> values ) {
+        if ( values.isEmpty() ) {
+            return Collections.emptyList();
+        }
+        List<T> ordered = new ArrayList<>( values );
+        ordered.sort( Comparator.comparingLong( value -> regions.get( value ).sequence ) );
+        return ordered;
+    }
+
+    /**
+     * Get all indexed values in the order they were added.
+     *
+     * @return the indexed values
+     */
+    public List<T> values() {
+        return new ArrayList<>( regions.keySet() );
+    }
+
+    public Cuboid getRegion( T value ) {
+        Entry entry = regions.get( value );
+        return entry == null ? null : entry.cuboid;
+    }
+
+    public int size() {
+        return regions.size();
+    }
+
+    public static long chunkKey( int chunkX, int chunkZ ) {
+        return ( (long) chunkX << 32 ) | ( chunkZ & 0xFFFFFFFFL );
+    }
+
+    private static final class Entry {
+
+        private final Cuboid cuboid;
+        private final long sequence;
+
+        private Entry( Cuboid cuboid, long sequence ) {
+            this.cuboid = cuboid;
+            this.sequence = sequence;
+        }
+
+    }
+
+}
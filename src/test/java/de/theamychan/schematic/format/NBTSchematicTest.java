@@ -0,0 +1,199 @@
+package de.theamychan.schematic.format;
+
+import de.theamychan.schematic.clipboard.BlockPalette;
+import de.theamychan.schematic.clipboard.Clipboard;
+import de.theamychan.schematic.headless.InMemoryWorld;
+import de.theamychan.schematic.headless.ManualTickScheduler;
+import de.theamychan.schematic.manager.SchematicManager;
+import de.theamychan.schematic.util.Region;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class NBTSchematicTest {
+
+    private ManualTickScheduler scheduler;
+    private File dataFolder;
+    private SchematicManager manager;
+
+    @Before
+    public void setUp() throws Exception {
+        scheduler = new ManualTickScheduler( 2 );
+        dataFolder = Files.createTempDirectory( "schematics" ).toFile();
+        manager = new SchematicManager( dataFolder, scheduler );
+    }
+
+    @After
+    public void tearDown() {
+        scheduler.shutdown();
+    }
+
+    @Test
+    public void worldEditSpongeFileLandsAtItsOrigin() throws Exception {
+        // Written like WorldEdit does: Offset is the absolute minimum corner, Metadata holds the paste offset
+        Region region;
+        try ( InputStream input = fixture( "worldedit-v2.schem" ) ) {
+            Clipboard clipboard = NBTSchematicReader.read( input );
+            assertEquals( -1, clipboard.getOffsetX() );
+            assertEquals( 0, clipboard.getOffsetY() );
+            assertEquals( -2, clipboard.getOffsetZ() );
+            region = clipboard.getRegion();
+        }
+        // The header alone gives the same area without decoding any block
+        try ( InputStream input = fixture( "worldedit-v2.schem" ) ) {
+            assertEquals( region, NBTSchematicReader.readRegion( input ) );
+        }
+
+        try ( InputStream input = fixture( "worldedit-v2.schem" ) ) {
+            Files.copy( input, new File( dataFolder, "schematics/imported.schem" ).toPath(), StandardCopyOption.REPLACE_EXISTING );
+        }
+        InMemoryWorld world = new InMemoryWorld( "world" );
+        manager.paste( world, 10, 20, 30, "imported", success -> assertTrue( success ) );
+        scheduler.runUntilIdle( 10000 );
+
+        for (int x = 9; x <= 11; x++) {
+            for (int z = 28; z <= 29; z++) {
+                assertEquals( "Stone", world.getBlockName( x, 20, z ) );
+            }
+        }
+        assertEquals( "Air", world.getBlockName( 12, 20, 30 ) );
+        assertEquals( 6, world.getWrites() );
+    }
+
+    @Test
+    public void flattenedIdsMapToLegacyFamilies() {
+        assertEquals( "Grass", BlockNames.fromMinecraft( "minecraft:grass_block[snowy=false]" ) );
+        assertEquals( "Wool", BlockNames.fromMinecraft( "minecraft:light_gray_wool" ) );
+        assertEquals( "Planks", BlockNames.fromMinecraft( "minecraft:dark_oak_planks" ) );
+        assertEquals( "Log2", BlockNames.fromMinecraft( "minecraft:acacia_log[axis=y]" ) );
+        assertEquals( "StainedHardenedClay", BlockNames.fromMinecraft( "minecraft:red_terracotta" ) );
+        assertEquals( "Sand", BlockNames.fromMinecraft( "minecraft:red_sand" ) );
+        assertEquals( "RedSandstone", BlockNames.fromMinecraft( "minecraft:red_sandstone" ) );
+        assertEquals( "Stone", BlockNames.fromMinecraft( "minecraft:stone" ) );
+    }
+
+    @Test
+    public void unresolvedNamesAreReported() {
+        BlockPalette palette = new BlockPalette();
+        palette.getOrAdd( "Stone" );
+        palette.getOrAdd( "Legacy253" );
+        assertEquals( Collections.singletonList( "Legacy253" ), palette.getUnresolved() );
+    }
+
+    @Test
+    public void spongeRoundTrip() throws Exception {
+        Clipboard clipboard = sample();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        NBTSchematicWriter.writeSponge( clipboard, output );
+
+        Clipboard read = NBTSchematicReader.read( new ByteArrayInputStream( output.toByteArray() ) );
+        assertSameBlocks( clipboard, read );
+    }
+
+    @Test
+    public void mcEditRoundTrip() throws Exception {
+        Clipboard clipboard = sample();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        NBTSchematicWriter.writeMCEdit( clipboard, output );
+
+        Clipboard read = NBTSchematicReader.read( new ByteArrayInputStream( output.toByteArray() ) );
+        assertSameBlocks( clipboard, read );
+    }
+
+    @Test
+    public void spongeV3NestedBlocks() throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try ( NBTStreamWriter nbt = new NBTStreamWriter( output ) ) {
+            nbt.beginCompound( "" );
+            nbt.beginCompound( "Schematic" );
+            nbt.writeInt( "Version", 3 );
+            nbt.writeShort( "Width", 2 );
+            nbt.writeShort( "Height", 1 );
+            nbt.writeShort( "Length", 1 );
+            nbt.writeIntArray( "Offset", 4, 5, 6 );
+            nbt.beginCompound( "Blocks" );
+            nbt.beginCompound( "Palette" );
+            nbt.writeInt( "minecraft:stone", 0 );
+            nbt.writeInt( "minecraft:orange_wool", 200 );
+            nbt.endCompound();
+            nbt.beginByteArray( "Data", 1 + NBTStreamWriter.varIntSize( 200 ) );
+            nbt.writeVarInt( 200 );
+            nbt.writeVarInt( 0 );
+            nbt.endCompound();
+            nbt.endCompound();
+            nbt.endCompound();
+        }
+
+        Clipboard read = NBTSchematicReader.read( new ByteArrayInputStream( output.toByteArray() ) );
+        assertEquals( 4, read.getOffsetX() );
+        assertEquals( 6, read.getOffsetZ() );
+        assertEquals( "Wool", read.getPalette().getName( read.getBlock( 0, 0, 0 ) ) );
+        assertEquals( "Stone", read.getPalette().getName( read.getBlock( 1, 0, 0 ) ) );
+    }
+
+    @Test
+    public void addBlocksExtendLegacyIds() throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try ( NBTStreamWriter nbt = new NBTStreamWriter( output ) ) {
+            nbt.beginCompound( "Schematic" );
+            // Before the dimensions, so the upper bits are decoded once the size is known
+            nbt.beginByteArray( "AddBlocks", 1 );
+            nbt.writeRawByte( 0x01 );
+            nbt.writeShort( "Width", 2 );
+            nbt.writeShort( "Height", 1 );
+            nbt.writeShort( "Length", 1 );
+            nbt.writeString( "Materials", "Alpha" );
+            nbt.beginByteArray( "Blocks", 2 );
+            nbt.writeRawByte( 1 );
+            nbt.writeRawByte( 1 );
+            nbt.endCompound();
+        }
+
+        Clipboard read = NBTSchematicReader.read( new ByteArrayInputStream( output.toByteArray() ) );
+        assertEquals( "Legacy257", read.getPalette().getName( read.getBlock( 0, 0, 0 ) ) );
+        assertEquals( "Stone", read.getPalette().getName( read.getBlock( 1, 0, 0 ) ) );
+        assertEquals( Collections.singletonList( "Legacy257" ), read.getPalette().getUnresolved() );
+    }
+
+    private static Clipboard sample() {
+        Clipboard clipboard = new Clipboard( 3, 2, 2, -1, 0, 2 );
+        clipboard.setBlock( 0, 0, 0, "Stone" );
+        clipboard.setBlock( 1, 0, 0, "Wool" );
+        clipboard.setBlock( 2, 0, 1, "Grass" );
+        clipboard.setBlock( 0, 1, 1, "Planks" );
+        clipboard.setBlock( 2, 1, 0, "Log2" );
+        return clipboard;
+    }
+
+    private static void assertSameBlocks( Clipboard expected, Clipboard actual ) {
+        assertEquals( expected.getWidth(), actual.getWidth() );
+        assertEquals( expected.getHeight(), actual.getHeight() );
+        assertEquals( expected.getLength(), actual.getLength() );
+        assertEquals( expected.getOffsetX(), actual.getOffsetX() );
+        assertEquals( expected.getOffsetY(), actual.getOffsetY() );
+        assertEquals( expected.getOffsetZ(), actual.getOffsetZ() );
+        for (int i = 0; i < expected.getVolume(); i++) {
+            int id = expected.getBlock( i );
+            // Positions outside the clipboard are exported as air
+            String name = id == Clipboard.EMPTY ? "Air" : expected.getPalette().getName( id );
+            assertEquals( "block " + i, name, actual.getPalette().getName( actual.getBlock( i ) ) );
+        }
+    }
+
+    private static InputStream fixture( String name ) {
+        InputStream input = NBTSchematicTest.class.getResourceAsStream( "/fixtures/" + name );
+        assertNotNull( name, input );
+        return input;
+    }
+
+}
@@ -0,0 +1,180 @@
+package de.theamychan.schematic.headless;
+
+import de.theamychan.schematic.manager.WorldAccess;
+import de.theamychan.schematic.util.RegionIndex;
+import io.gomint.world.block.Block;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Headless stand-in for a GoMint world. Every chunk column is one short array of block ids into
+ * a world wide name table, so reads and writes do not allocate.
+ */
+public class InMemoryWorld implements WorldAccess {
+
+    public static final int HEIGHT = 256;
+    private static final String AIR = "Air";
+
+    private final String name;
+    private final Map<Long, short[]> columns = new ConcurrentHashMap<>();
+    private final Map<Long, Integer> pins = new ConcurrentHashMap<>();
+    private final List<String> names = new ArrayList<>();
+    private final Map<String, Short> ids = new ConcurrentHashMap<>();
+    private final Map<Class<?>, Short> typeIds = new ConcurrentHashMap<>();
+    private final AtomicLong writes = new AtomicLong();
+    private final AtomicLong chunkLoads = new AtomicLong();
+    private final Queue<Runnable> pendingLoads = new ConcurrentLinkedQueue<>();
+    private volatile boolean deferLoads;
+
+    public InMemoryWorld( String name ) {
+        this.name = name;
+        idOf( AIR );
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String getBlockName( int x, int y, int z ) {
+        short[] column = column( x >> 4, z >> 4 );
+        return names.get( column[index( x, y, z )] );
+    }
+
+    @Override
+    public ChunkView getChunk( int chunkX, int chunkZ ) {
+        short[] column = column( chunkX, chunkZ );
+        return ( x, y, z ) -> names.get( column[index( x, y, z )] );
+    }
+
+    @Override
+    public ChunkView snapshotChunk( int chunkX, int chunkZ, int minY, int maxY ) {
+        short[] copy = Arrays.copyOfRange( column( chunkX, chunkZ ), minY << 8, ( maxY + 1 ) << 8 );
+        String[] table;
+        synchronized ( this ) {
+            table = names.toArray( new String[0] );
+        }
+        return ( x, y, z ) -> table[copy[( ( y - minY ) << 8 ) | ( z << 4 ) | x]];
+    }
+
+    @Override
+    public void setBlock( int x, int y, int z, Class<? extends Block> type ) {
+        short id = typeIds.computeIfAbsent( type, t -> idOf( nameOf( t ) ) );
+        column( x >> 4, z >> 4 )[index( x, y, z )] = id;
+        writes.incrementAndGet();
+    }
+
+    /**
+     * Set a block by its schematic name, used to build test scenery.
+     *
+     * @param x    the X co-ordinate
+     * @param y    the Y co-ordinate
+     * @param z    the Z co-ordinate
+     * @param name the block name, e.g. "Stone"
+     */
+    public void setBlockName( int x, int y, int z, String name ) {
+        column( x >> 4, z >> 4 )[index( x, y, z )] = idOf( name );
+    }
+
+    @Override
+    public void pinChunk( int chunkX, int chunkZ, Runnable loaded ) {
+        pins.merge( RegionIndex.chunkKey( chunkX, chunkZ ), 1, Integer::sum );
+        Runnable load = () -> {
+            column( chunkX, chunkZ );
+            loaded.run();
+        };
+        if ( deferLoads ) {
+            pendingLoads.add( load );
+        } else {
+            load.run();
+        }
+    }
+
+    /**
+     * Hold back pinned chunks until {@link #completeLoads(int)} is called, like a chunk loader
+     * which has not answered yet.
+     *
+     * @param deferLoads whether loads should be held back
+     */
+    public void setDeferLoads( boolean deferLoads ) {
+        this.deferLoads = deferLoads;
+    }
+
+    /**
+     * Finish chunk loads which were held back, in the order they were requested.
+     *
+     * @param count the maximum number of loads to finish
+     * @return the number of loads finished
+     */
+    public int completeLoads( int count ) {
+        int completed = 0;
+        Runnable load;
+        while ( completed < count && ( load = pendingLoads.poll() ) != null ) {
+            load.run();
+            completed++;
+        }
+        return completed;
+    }
+
+    @Override
+    public void unpinChunk( int chunkX, int chunkZ ) {
+        pins.computeIfPresent( RegionIndex.chunkKey( chunkX, chunkZ ), ( key, count ) -> count <= 1 ? null : count - 1 );
+    }
+
+    public int getPinnedChunks() {
+        return pins.size();
+    }
+
+    public long getWrites() {
+        return writes.get();
+    }
+
+    public long getChunkLoads() {
+        return chunkLoads.get();
+    }
+
+    private short[] column( int chunkX, int chunkZ ) {
+        return columns.computeIfAbsent( RegionIndex.chunkKey( chunkX, chunkZ ), key -> {
+            chunkLoads.incrementAndGet();
+            return new short[16 * 16 * HEIGHT];
+        } );
+    }
+
+    private static int index( int x, int y, int z ) {
+        if ( y < 0 || y >= HEIGHT ) {
+            throw new IllegalArgumentException( "y out of range: " + y );
+        }
+        return ( y << 8 ) | ( ( z & 15 ) << 4 ) | ( x & 15 );
+    }
+
+    private synchronized short idOf( String name ) {
+        Short id = ids.get( name );
+        if ( id == null ) {
+            id = (short) names.size();
+            names.add( name );
+            ids.put( name, id );
+        }
+        return id;
+    }
+
+    /**
+     * Map a GoMint block interface to the schematic name of its implementation, e.g.
+     * BlockStone to "Stone".
+     *
+     * @param type the block interface
+     * @return the schematic name
+     */
+    public static String nameOf( Class<?> type ) {
+        String simpleName = type.getSimpleName();
+        return simpleName.startsWith( "Block" ) ? simpleName.substring( 5 ) : simpleName;
+    }
+
+}
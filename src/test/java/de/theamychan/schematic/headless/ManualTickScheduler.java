@@ -0,0 +1,137 @@
+package de.theamychan.schematic.headless;
+
+import de.theamychan.schematic.manager.TickScheduler;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Stand-in for the server scheduler. Async tasks run on a small thread pool, main thread tasks
+ * and repeating tasks only run when the calling thread invokes {@link #tick()}, which makes the
+ * calling thread the simulated main thread and lets the duration of every tick be recorded.
+ */
+public class ManualTickScheduler implements TickScheduler {
+
+    private final ExecutorService async;
+    private final AtomicInteger pendingAsync = new AtomicInteger();
+    private final Queue<Runnable> mainQueue = new ConcurrentLinkedQueue<>();
+    private final List<Runnable> repeating = new CopyOnWriteArrayList<>();
+    private long[] tickNanos = new long[1024];
+    private int ticks;
+
+    public ManualTickScheduler( int asyncThreads ) {
+        this.async = Executors.newFixedThreadPool( asyncThreads, runnable -> {
+            Thread thread = new Thread( runnable, "headless-async" );
+            thread.setDaemon( true );
+            return thread;
+        } );
+    }
+
+    @Override
+    public void execute( Runnable runnable ) {
+        mainQueue.add( runnable );
+    }
+
+    @Override
+    public void executeAsync( Runnable runnable ) {
+        pendingAsync.incrementAndGet();
+        async.execute( () -> {
+            try {
+                runnable.run();
+            } finally {
+                pendingAsync.decrementAndGet();
+            }
+        } );
+    }
+
+    @Override
+    public Handle scheduleRepeating( Runnable runnable, long period, TimeUnit unit ) {
+        Runnable entry = runnable::run;
+        repeating.add( entry );
+        return () -> repeating.remove( entry );
+    }
+
+    /**
+     * Run one simulated server tick: all queued main thread tasks, then every repeating task once.
+     *
+     * @return true if the tick did any work
+     */
+    public boolean tick() {
+        if ( mainQueue.isEmpty() && repeating.isEmpty() ) {
+            return false;
+        }
+
+        long start = System.nanoTime();
+        Runnable runnable;
+        while ( ( runnable = mainQueue.poll() ) != null ) {
+            runnable.run();
+        }
+        for (Runnable task : repeating) {
+            task.run();
+        }
+        recordTick( System.nanoTime() - start );
+        return true;
+    }
+
+    /**
+     * Tick until no async, main thread or repeating task is left.
+     *
+     * @param timeoutMillis the maximum time to wait
+     * @throws TimeoutException if there is still work left after the timeout
+     */
+    public void runUntilIdle( long timeoutMillis ) throws TimeoutException, InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while ( pendingAsync.get() > 0 || !mainQueue.isEmpty() || !repeating.isEmpty() ) {
+            if ( System.currentTimeMillis() > deadline ) {
+                throw new TimeoutException( "scheduler did not become idle within " + timeoutMillis + "ms" );
+            }
+            if ( !tick() ) {
+                Thread.sleep( 1 );
+            }
+        }
+    }
+
+    /**
+     * Wait until all async tasks have finished, without running a tick.
+     *
+     * @param timeoutMillis the maximum time to wait
+     * @throws TimeoutException if async tasks are still running after the timeout
+     */
+    public void awaitAsync( long timeoutMillis ) throws TimeoutException, InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while ( pendingAsync.get() > 0 ) {
+            if ( System.currentTimeMillis() > deadline ) {
+                throw new TimeoutException( "async tasks did not finish within " + timeoutMillis + "ms" );
+            }
+            Thread.sleep( 1 );
+        }
+    }
+
+    private void recordTick( long nanos ) {
+        if ( ticks == tickNanos.length ) {
+            tickNanos = Arrays.copyOf( tickNanos, ticks * 2 );
+        }
+        tickNanos[ticks++] = nanos;
+    }
+
+    /**
+     * Get the durations of all ticks which did work since the last reset.
+     *
+     * @return the tick durations in nanoseconds
+     */
+    public long[] getTickNanos() {
+        return Arrays.copyOf( tickNanos, ticks );
+    }
+
+    public void resetTicks() {
+        ticks = 0;
+    }
+
+    public void shutdown() {
+        async.shutdownNow();
+    }
+
+}
@@ -0,0 +1,164 @@
+package de.theamychan.schematic.headless;
+
+import de.theamychan.schematic.clipboard.Clipboard;
+import de.theamychan.schematic.manager.SchematicManager;
+import de.theamychan.schematic.util.Cuboid;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load test which replays capture, save, load and paste workloads of several sizes against the
+ * headless world and prints blocks per second, allocated bytes and the distribution of the
+ * simulated tick time. Run with {@code java -cp target/test-classes:target/classes:<deps>
+ * de.theamychan.schematic.headless.PasteThroughputHarness [size...]}.
+ */
+public class PasteThroughputHarness {
+
+    private static final String[] MATERIALS = { "Stone", "Dirt", "Air", "Air", "Glass", "Wool", "Cobblestone" };
+    private static final int[] DEFAULT_SIZES = { 16, 48, 96 };
+    private static final int[] PLAYERS = { 1, 4, 16 };
+
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+    public static void main( String[] args ) throws Exception {
+        int[] sizes = args.length == 0 ? DEFAULT_SIZES : Arrays.stream( args ).mapToInt( Integer::parseInt ).toArray();
+        new PasteThroughputHarness().run( sizes );
+    }
+
+    private void run( int[] sizes ) throws Exception {
+        System.out.printf( "%-10s %-8s %-8s %14s %14s %10s %10s %10s %10s%n",
+                "phase", "size", "players", "blocks/s", "alloc MB", "tick p50", "tick p95", "tick p99", "tick max" );
+
+        for (int size : sizes) {
+            for (int players : PLAYERS) {
+                runWorkload( size, players );
+            }
+        }
+    }
+
+    private void runWorkload( int size, int players ) throws Exception {
+        File dataFolder = Files.createTempDirectory( "schematic-harness" ).toFile();
+        ManualTickScheduler scheduler = new ManualTickScheduler( Math.max( 2, Runtime.getRuntime().availableProcessors() ) );
+        SchematicManager manager = new SchematicManager( dataFolder, scheduler );
+        InMemoryWorld source = new InMemoryWorld( "source" );
+        InMemoryWorld target = new InMemoryWorld( "target" );
+        fill( source, size );
+
+        try {
+            Cuboid selection = new Cuboid( "source", 0, 0, 0, size - 1, size - 1, size - 1 );
+            long volume = (long) size * size * size;
+
+            Map<Long, Long> allocation = allocationSnapshot();
+            long start = System.nanoTime();
+            Clipboard clipboard = null;
+            for (int i = 0; i < players; i++) {
+                clipboard = manager.capture( source, selection, 0, 0, 0 );
+            }
+            report( "capture", size, players, volume * players, System.nanoTime() - start, allocatedSince( allocation ), null );
+
+            CountDownLatch captured = new CountDownLatch( players );
+            allocation = allocationSnapshot();
+            start = System.nanoTime();
+            for (int i = 0; i < players; i++) {
+                manager.captureAsync( source, selection, 0, 0, 0, result -> captured.countDown() );
+            }
+            scheduler.runUntilIdle( TimeUnit.MINUTES.toMillis( 10 ) );
+            captured.await();
+            report( "capture-p", size, players, volume * players, System.nanoTime() - start, allocatedSince( allocation ), null );
+
+            allocation = allocationSnapshot();
+            start = System.nanoTime();
+            for (int i = 0; i < players; i++) {
+                manager.save( "workload" + i, clipboard );
+            }
+            report( "save", size, players, volume * players, System.nanoTime() - start, allocatedSince( allocation ), null );
+
+            allocation = allocationSnapshot();
+            start = System.nanoTime();
+            for (int i = 0; i < players; i++) {
+                manager.getClipboardFromFile( "workload" + i );
+            }
+            report( "load", size, players, volume * players, System.nanoTime() - start, allocatedSince( allocation ), null );
+
+            CountDownLatch done = new CountDownLatch( players );
+            scheduler.resetTicks();
+            allocation = allocationSnapshot();
+            start = System.nanoTime();
+            for (int i = 0; i < players; i++) {
+                // Every player pastes into its own arena, laid out along the X axis
+                manager.paste( target, i * ( size + 16 ), 0, 0, "workload" + i, success -> done.countDown() );
+            }
+            scheduler.runUntilIdle( TimeUnit.MINUTES.toMillis( 10 ) );
+            done.await();
+            report( "paste", size, players, volume * players, System.nanoTime() - start, allocatedSince( allocation ), scheduler.getTickNanos() );
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    private static void fill( InMemoryWorld world, int size ) {
+        Random random = new Random( size );
+        for (int y = 0; y < size; y++) {
+            for (int z = 0; z < size; z++) {
+                for (int x = 0; x < size; x++) {
+                    world.setBlockName( x, y, z, MATERIALS[random.nextInt( MATERIALS.length )] );
+                }
+            }
+        }
+    }
+
+    private Map<Long, Long> allocationSnapshot() {
+        Map<Long, Long> snapshot = new HashMap<>();
+        if ( threads instanceof com.sun.management.ThreadMXBean ) {
+            long[] ids = threads.getAllThreadIds();
+            long[] bytes = ( (com.sun.management.ThreadMXBean) threads ).getThreadAllocatedBytes( ids );
+            for (int i = 0; i < ids.length; i++) {
+                if ( bytes[i] > 0 ) {
+                    snapshot.put( ids[i], bytes[i] );
+                }
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * Sum the bytes allocated by all threads since the given snapshot. Threads which terminated in
+     * between are not accounted for.
+     */
+    private long allocatedSince( Map<Long, Long> before ) {
+        long total = 0;
+        for (Map.Entry<Long, Long> entry : allocationSnapshot().entrySet()) {
+            total += entry.getValue() - before.getOrDefault( entry.getKey(), 0L );
+        }
+        return total;
+    }
+
+    private static void report( String phase, int size, int players, long blocks, long nanos, long allocated, long[] ticks ) {
+        double blocksPerSecond = blocks / ( nanos / 1e9 );
+        String p50 = "-", p95 = "-", p99 = "-", max = "-";
+        if ( ticks != null && ticks.length > 0 ) {
+            Arrays.sort( ticks );
+            p50 = millis( ticks, 0.50 );
+            p95 = millis( ticks, 0.95 );
+            p99 = millis( ticks, 0.99 );
+            max = millis( ticks, 1.0 );
+        }
+        System.out.printf( "%-10s %-8s %-8d %14.0f %14.2f %10s %10s %10s %10s%n",
+                phase, size + "^3", players, blocksPerSecond, allocated / 1024.0 / 1024.0, p50, p95, p99, max );
+    }
+
+    private static String millis( long[] sorted, double percentile ) {
+        int index = (int) Math.min( sorted.length - 1, Math.ceil( percentile * sorted.length ) - 1 );
+        return String.format( "%.2fms", sorted[Math.max( 0, index )] / 1e6 );
+    }
+
+}
@@ -0,0 +1,91 @@
+package de.theamychan.schematic.jfr;
+
+import de.theamychan.schematic.headless.InMemoryWorld;
+import de.theamychan.schematic.headless.ManualTickScheduler;
+import de.theamychan.schematic.manager.SchematicManager;
+import de.theamychan.schematic.util.Cuboid;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class SchematicEventsTest {
+
+    private ManualTickScheduler scheduler;
+    private SchematicManager manager;
+    private InMemoryWorld world;
+
+    @Before
+    public void setUp() throws Exception {
+        scheduler = new ManualTickScheduler( 2 );
+        manager = new SchematicManager( Files.createTempDirectory( "schematics" ).toFile(), scheduler );
+        world = new InMemoryWorld( "world" );
+        for (int x = 0; x < 20; x++) {
+            for (int z = 0; z < 20; z++) {
+                world.setBlockName( x, 10, z, "Stone" );
+            }
+        }
+    }
+
+    @After
+    public void tearDown() {
+        scheduler.shutdown();
+    }
+
+    @Test
+    public void saveAndPasteAreRecorded() throws Exception {
+        Path dump = File.createTempFile( "schematic", ".jfr" ).toPath();
+        try ( Recording recording = new Recording() ) {
+            for (Class<?> type : new Class<?>[]{ JobEvent.class, PlacementBatchEvent.class, FileReadEvent.class,
+                    FileWriteEvent.class, SegmentDecodeEvent.class, SegmentEncodeEvent.class }) {
+                recording.enable( type.getAnnotation( jdk.jfr.Name.class ).value() );
+            }
+            recording.start();
+
+            assertTrue( manager.save( "floor", manager.capture( world, new Cuboid( "world", 0, 10, 0, 19, 10, 19 ), 0, 10, 0 ) ) );
+            manager.paste( world, 100, 10, 0, "floor", success -> assertTrue( success ) );
+            scheduler.runUntilIdle( 10000 );
+
+            recording.stop();
+            recording.dump( dump );
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents( dump );
+        Files.delete( dump );
+
+        RecordedEvent write = single( events, "de.theamychan.schematic.FileWrite" );
+        assertEquals( "floor.schematic", write.getString( "schematic" ) );
+        assertEquals( 400, write.getLong( "positions" ) );
+        assertTrue( write.getLong( "bytes" ) > 0 );
+        assertEquals( 4, of( events, "de.theamychan.schematic.SegmentEncode" ).size() );
+
+        assertEquals( 400, single( events, "de.theamychan.schematic.FileRead" ).getLong( "positions" ) );
+        assertEquals( 4, of( events, "de.theamychan.schematic.SegmentDecode" ).size() );
+
+        RecordedEvent job = single( events, "de.theamychan.schematic.Job" );
+        assertEquals( "floor", job.getString( "schematic" ) );
+        assertEquals( 400, job.getLong( "blocksWritten" ) );
+        assertEquals( 400, of( events, "de.theamychan.schematic.PlacementBatch" ).stream().mapToLong( event -> event.getInt( "blocksWritten" ) ).sum() );
+    }
+
+    private static List<RecordedEvent> of( List<RecordedEvent> events, String name ) {
+        return events.stream().filter( event -> event.getEventType().getName().equals( name ) ).collect( Collectors.toList() );
+    }
+
+    private static RecordedEvent single( List<RecordedEvent> events, String name ) {
+        List<RecordedEvent> matching = of( events, name );
+        assertEquals( name, 1, matching.size() );
+        return matching.get( 0 );
+    }
+
+}
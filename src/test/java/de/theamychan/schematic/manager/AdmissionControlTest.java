@@ -0,0 +1,136 @@
+package de.theamychan.schematic.manager;
+
+import de.theamychan.schematic.clipboard.ClipboardMerge;
+import de.theamychan.schematic.headless.InMemoryWorld;
+import de.theamychan.schematic.headless.ManualTickScheduler;
+import de.theamychan.schematic.util.Cuboid;
+import de.theamychan.schematic.util.Region;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class AdmissionControlTest {
+
+    private static final long MB = 1 << 20;
+
+    private ManualTickScheduler scheduler;
+    private AtomicLong freeHeap;
+    private AdmissionControl admission;
+
+    @Before
+    public void setUp() {
+        scheduler = new ManualTickScheduler( 1 );
+        freeHeap = new AtomicLong( 1000 * MB );
+        admission = new AdmissionControl( scheduler, 100 * MB, 150 * MB, 50 * MB, freeHeap::get );
+    }
+
+    @After
+    public void tearDown() {
+        scheduler.shutdown();
+    }
+
+    @Test
+    public void oversizedJobsAreRefused() {
+        AtomicInteger started = new AtomicInteger();
+        assertEquals( AdmissionControl.Admission.TOO_LARGE,
+                admission.submit( "alice", JobCost.capture( new Region( 0, 0, 0, 999, 999, 999 ) ), ticket -> started.incrementAndGet(), () -> { } ) );
+        assertEquals( 0, started.get() );
+        assertEquals( 0, admission.getTotalReserved() );
+    }
+
+    @Test
+    public void quotasQueueUntilMemoryIsReleased() throws Exception {
+        List<AdmissionControl.Ticket> tickets = new ArrayList<>();
+        JobCost cost = new JobCost( 0, 60 * MB, 0 );
+
+        assertEquals( AdmissionControl.Admission.STARTED, admission.submit( "alice", cost, tickets::add, () -> { } ) );
+        assertEquals( 60 * MB, admission.getReserved( "alice" ) );
+
+        // Over alice's quota, but bob still fits into the global one
+        assertEquals( AdmissionControl.Admission.QUEUED, admission.submit( "alice", cost, tickets::add, () -> { } ) );
+        assertEquals( AdmissionControl.Admission.QUEUED, admission.submit( "bob", cost, tickets::add, () -> { } ) );
+        assertEquals( 1, tickets.size() );
+
+        tickets.get( 0 ).release();
+        tickets.get( 0 ).release();
+        scheduler.runUntilIdle( 10000 );
+        assertEquals( 3, tickets.size() );
+        assertEquals( 120 * MB, admission.getTotalReserved() );
+        assertEquals( 0, admission.getQueued() );
+
+        tickets.get( 1 ).release();
+        tickets.get( 2 ).release();
+        assertEquals( 0, admission.getTotalReserved() );
+        assertEquals( 0, admission.getReserved( "alice" ) );
+    }
+
+    @Test
+    public void lowHeapIsRefusedOrQueued() throws Exception {
+        freeHeap.set( 80 * MB );
+        JobCost cost = new JobCost( 0, 40 * MB, 0 );
+        assertEquals( AdmissionControl.Admission.BUSY, admission.submit( "alice", cost, ticket -> { }, () -> { } ) );
+
+        List<AdmissionControl.Ticket> tickets = new ArrayList<>();
+        AtomicInteger cancelled = new AtomicInteger();
+        assertEquals( AdmissionControl.Admission.STARTED, admission.submit( "alice", new JobCost( 0, 10 * MB, 0 ), tickets::add, () -> { } ) );
+        assertEquals( AdmissionControl.Admission.QUEUED, admission.submit( "bob", cost, tickets::add, cancelled::incrementAndGet ) );
+
+        // The heap did not recover, so the queued job can never start
+        tickets.get( 0 ).release();
+        scheduler.runUntilIdle( 10000 );
+        assertEquals( 1, tickets.size() );
+        assertEquals( 1, cancelled.get() );
+    }
+
+    @Test
+    public void loadIsEstimatedFromTheHeader() throws Exception {
+        SchematicManager manager = new SchematicManager( Files.createTempDirectory( "schematics" ).toFile(), scheduler );
+        InMemoryWorld world = new InMemoryWorld( "world" );
+        world.setBlockName( 0, 10, 0, "Stone" );
+        assertTrue( manager.save( "box", manager.capture( world, new Cuboid( "world", 0, 10, 0, 39, 29, 9 ), 0, 10, 0 ) ) );
+
+        JobCost cost = manager.estimateLoad( "box" );
+        assertEquals( 40 * 20 * 10, cost.getVolume() );
+        assertEquals( 40 * 20 * 10 * JobCost.BYTES_PER_BLOCK, cost.getBytes() );
+        assertNull( manager.estimateLoad( "missing" ) );
+        assertEquals( JobCost.NONE, manager.estimateBounds( "box" ) );
+    }
+
+    @Test
+    public void mergeIsChargedForTheResultBounds() throws Exception {
+        SchematicManager manager = new SchematicManager( Files.createTempDirectory( "schematics" ).toFile(), scheduler );
+        InMemoryWorld world = new InMemoryWorld( "world" );
+        world.setBlockName( 0, 10, 0, "Stone" );
+        assertTrue( manager.save( "small", manager.capture( world, new Cuboid( "world", 0, 10, 0, 1, 11, 1 ), 0, 10, 0 ) ) );
+
+        // Two 2x2x2 schematics 1000 blocks apart make a 1002x2x2 union
+        List<JobCost> costs = new ArrayList<>();
+        manager.estimateMerge( "small", "small", 1000, 0, 0, ClipboardMerge.Operation.UNION, costs::add );
+        manager.estimateMerge( "small", "missing", 0, 0, 0, ClipboardMerge.Operation.UNION, costs::add );
+        scheduler.runUntilIdle( 10000 );
+        assertEquals( 1002 * 2 * 2, costs.get( 0 ).getVolume() );
+        assertEquals( ( 2 * 8 + 1002 * 2 * 2 ) * JobCost.BYTES_PER_BLOCK, costs.get( 0 ).getBytes() );
+        assertNull( costs.get( 1 ) );
+    }
+
+    @Test
+    public void pasteReservesPinnedChunks() {
+        // 40x20x10 starting at a chunk border touches 3x1 columns, counted with a spare one per axis
+        JobCost cost = JobCost.paste( new Region( 0, 10, 0, 39, 29, 9 ), false );
+        assertEquals( 40 * 20 * 10, cost.getVolume() );
+        assertTrue( cost.getBytes() >= 4 * 2 * JobCost.PINNED_COLUMN_BYTES );
+
+        JobCost cropped = JobCost.paste( new Region( 0, 10, 0, 39, 29, 9 ), true );
+        assertEquals( cost.getBytes() + 40 * 20 * 10 * JobCost.BYTES_PER_BLOCK, cropped.getBytes() );
+        assertTrue( JobCost.paste( 8000 ).getBytes() > 0 );
+    }
+
+}
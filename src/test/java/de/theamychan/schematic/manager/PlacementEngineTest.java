@@ -0,0 +1,133 @@
+package de.theamychan.schematic.manager;
+
+import de.theamychan.schematic.clipboard.Clipboard;
+import de.theamychan.schematic.headless.InMemoryWorld;
+import de.theamychan.schematic.headless.ManualTickScheduler;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class PlacementEngineTest {
+
+    private ManualTickScheduler scheduler;
+    private SchematicManager manager;
+    private InMemoryWorld world;
+
+    @Before
+    public void setUp() throws Exception {
+        scheduler = new ManualTickScheduler( 2 );
+        manager = new SchematicManager( Files.createTempDirectory( "schematics" ).toFile(), scheduler );
+        world = new InMemoryWorld( "world" );
+    }
+
+    @After
+    public void tearDown() {
+        scheduler.shutdown();
+    }
+
+    private static Clipboard filled( int size, String name ) {
+        Clipboard clipboard = new Clipboard( size, size, size, 0, 0, 0 );
+        int id = clipboard.getPalette().getOrAdd( name );
+        for (int i = 0; i < clipboard.getVolume(); i++) {
+            clipboard.setBlock( i, id );
+        }
+        return clipboard;
+    }
+
+    @Test
+    public void overlappingJobsRunInSubmissionOrder() throws Exception {
+        List<String> order = Collections.synchronizedList( new ArrayList<>() );
+        PlacementEngine engine = manager.getPlacementEngine();
+
+        PasteJob first = manager.createJob( world, 0, 0, 0, filled( 40, "Stone" ), false, success -> order.add( "first" ) );
+        PasteJob second = manager.createJob( world, 20, 20, 20, filled( 40, "Dirt" ), false, success -> order.add( "second" ) );
+        PasteJob disjoint = manager.createJob( world, 200, 0, 200, filled( 4, "Dirt" ), false, success -> order.add( "disjoint" ) );
+        engine.submit( first );
+        engine.submit( second );
+        engine.submit( disjoint );
+
+        assertTrue( engine.isWaiting( second ) );
+        assertFalse( engine.isWaiting( disjoint ) );
+        assertEquals( 2, engine.getJobsAt( "world", 30, 30, 30 ).size() );
+
+        scheduler.runUntilIdle( 10000 );
+
+        // The disjoint job runs alongside the first one instead of waiting behind both
+        assertEquals( 3, order.size() );
+        assertTrue( order.indexOf( "first" ) < order.indexOf( "second" ) );
+        assertTrue( order.indexOf( "disjoint" ) < order.indexOf( "second" ) );
+        assertEquals( "Dirt", world.getBlockName( 30, 30, 30 ) );
+        assertEquals( "Stone", world.getBlockName( 10, 10, 10 ) );
+        assertTrue( engine.getJobsAt( "world", 30, 30, 30 ).isEmpty() );
+    }
+
+    @Test
+    public void jobWaitsForEveryChunk() throws Exception {
+        PlacementEngine engine = manager.getPlacementEngine();
+        world.setDeferLoads( true );
+        // 20 blocks from x=10 and z=10 touch four chunks
+        engine.submit( manager.createJob( world, 10, 0, 10, filled( 20, "Stone" ), false, success -> { } ) );
+        scheduler.awaitAsync( 10000 );
+        scheduler.tick();
+
+        assertEquals( 3, world.completeLoads( 3 ) );
+        scheduler.tick();
+        assertTrue( engine.getActiveWorlds().isEmpty() );
+        assertEquals( 0, world.getWrites() );
+
+        assertEquals( 1, world.completeLoads( Integer.MAX_VALUE ) );
+        scheduler.tick();
+        assertEquals( Collections.singleton( "world" ), engine.getActiveWorlds() );
+        assertTrue( world.getWrites() > 0 );
+    }
+
+    @Test
+    public void worldsShareTheTickBudget() throws Exception {
+        InMemoryWorld other = new InMemoryWorld( "other" );
+        PlacementEngine engine = manager.getPlacementEngine();
+        engine.submit( manager.createJob( world, 0, 0, 0, filled( 20, "Stone" ), false, success -> { } ) );
+        engine.submit( manager.createJob( other, 0, 0, 0, filled( 20, "Stone" ), false, success -> { } ) );
+        scheduler.awaitAsync( 10000 );
+        assertTrue( engine.getActiveWorlds().isEmpty() );
+
+        // Both jobs pin their chunks and place in the same tick, half of the budget each
+        scheduler.tick();
+
+        assertEquals( PlacementEngine.BLOCKS_PER_TICK / 2, world.getWrites() );
+        assertEquals( PlacementEngine.BLOCKS_PER_TICK / 2, other.getWrites() );
+        scheduler.runUntilIdle( 10000 );
+        assertEquals( 20 * 20 * 20, world.getWrites() );
+        assertEquals( 20 * 20 * 20, other.getWrites() );
+        assertTrue( engine.getActiveWorlds().isEmpty() );
+    }
+
+    @Test
+    public void manyJobsStayWithinTheBudget() throws Exception {
+        PlacementEngine engine = manager.getPlacementEngine();
+        for (int i = 0; i < 40; i++) {
+            engine.submit( manager.createJob( world, i * 20, 0, 0, filled( 10, "Stone" ), false, success -> { } ) );
+        }
+        scheduler.awaitAsync( 10000 );
+        scheduler.tick();
+
+        // 40 shares of 204 or 205 blocks, not 40 times a minimum share
+        assertEquals( PlacementEngine.BLOCKS_PER_TICK, world.getWrites() );
+        scheduler.runUntilIdle( 10000 );
+        assertEquals( 40 * 10 * 10 * 10, world.getWrites() );
+    }
+
+    @Test
+    public void budgetIsSplitExactly() {
+        assertArrayEquals( new int[]{ 3, 3, 2 }, PlacementEngine.split( 8, 3, 0 ) );
+        assertArrayEquals( new int[]{ 2, 3, 3 }, PlacementEngine.split( 8, 3, 1 ) );
+        assertArrayEquals( new int[]{ 1, 1, 0, 0 }, PlacementEngine.split( 2, 4, 0 ) );
+    }
+
+}
@@ -0,0 +1,509 @@
+package de.theamychan.schematic.manager;
+
+import de.theamychan.schematic.clipboard.Clipboard;
+import de.theamychan.schematic.clipboard.ClipboardHolder;
+import de.theamychan.schematic.clipboard.ClipboardMerge;
+import de.theamychan.schematic.format.TiledSchematicWriter;
+import de.theamychan.schematic.headless.InMemoryWorld;
+import de.theamychan.schematic.headless.ManualTickScheduler;
+import de.theamychan.schematic.util.Cuboid;
+import de.theamychan.schematic.util.Region;
+import io.gomint.world.block.Block;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class SchematicManagerTest {
+
+    private File dataFolder;
+    private ManualTickScheduler scheduler;
+    private SchematicManager manager;
+    private InMemoryWorld world;
+
+    @Before
+    public void setUp() throws Exception {
+        dataFolder = Files.createTempDirectory( "schematics" ).toFile();
+        scheduler = new ManualTickScheduler( 2 );
+        manager = new SchematicManager( dataFolder, scheduler );
+        world = new InMemoryWorld( "world" );
+
+        for (int x = 0; x < 20; x++) {
+            for (int z = 0; z < 20; z++) {
+                world.setBlockName( x, 10, z, "Stone" );
+                world.setBlockName( x, 11, z, ( x + z ) % 3 == 0 ? "Dirt" : "Air" );
+            }
+        }
+    }
+
+    @After
+    public void tearDown() {
+        scheduler.shutdown();
+    }
+
+    @Test
+    public void captureSaveLoadAndPaste() throws Exception {
+        Cuboid selection = new Cuboid( "world", 0, 10, 0, 19, 11, 19 );
+        Clipboard clipboard = manager.capture( world, selection, 0, 10, 0 );
+        assertEquals( 20 * 2 * 20, clipboard.getVolume() );
+        assertTrue( manager.save( "floor", clipboard ) );
+
+        AtomicInteger done = new AtomicInteger();
+        manager.paste( world, 100, 50, -40, "floor", success -> {
+            assertTrue( success );
+            done.incrementAndGet();
+        } );
+        scheduler.runUntilIdle( 10000 );
+
+        assertEquals( 1, done.get() );
+        assertEquals( 0, world.getPinnedChunks() );
+        for (int x = 0; x < 20; x++) {
+            for (int z = 0; z < 20; z++) {
+                assertEquals( "Stone", world.getBlockName( 100 + x, 50, -40 + z ) );
+                assertEquals( world.getBlockName( x, 11, z ), world.getBlockName( 100 + x, 51, -40 + z ) );
+            }
+        }
+    }
+
+    @Test
+    public void captureAcrossChunkBorders() {
+        for (int x = -20; x < 20; x++) {
+            for (int y = 0; y < 40; y++) {
+                world.setBlockName( x, y, -7, ( x * 31 + y ) % 5 == 0 ? "Dirt" : "Stone" );
+            }
+        }
+
+        Cuboid selection = new Cuboid( "world", -20, 0, -9, 19, 39, -5 );
+        Clipboard clipboard = manager.capture( world, selection, 0, 0, 0 );
+        assertEquals( -20, clipboard.getOffsetX() );
+        assertEquals( -9, clipboard.getOffsetZ() );
+        for (int x = 0; x < clipboard.getWidth(); x++) {
+            for (int y = 0; y < clipboard.getHeight(); y++) {
+                for (int z = 0; z < clipboard.getLength(); z++) {
+                    assertEquals( world.getBlockName( x - 20, y, z - 9 ), clipboard.getPalette().getName( clipboard.getBlock( x, y, z ) ) );
+                }
+            }
+        }
+    }
+
+    @Test
+    public void asyncCaptureIsConsistent() throws Exception {
+        for (int x = -40; x < 40; x++) {
+            for (int z = -40; z < 40; z++) {
+                world.setBlockName( x, 12, z, ( x * 7 + z * 3 ) % 4 == 0 ? "Glass" : ( x + z ) % 5 == 0 ? "Dirt" : "Stone" );
+            }
+        }
+        Cuboid selection = new Cuboid( "world", -40, 0, -40, 39, 63, 39 );
+        Clipboard expected = manager.capture( world, selection, 0, 10, 0 );
+
+        AtomicReference<Clipboard> result = new AtomicReference<>();
+        manager.captureAsync( world, selection, 0, 10, 0, result::set );
+        scheduler.resetTicks();
+        scheduler.runUntilIdle( 10000 );
+        // 25 chunk columns of 16384 positions each are copied over several ticks
+        assertTrue( scheduler.getTickNanos().length > 4 );
+
+        Clipboard clipboard = result.get();
+        assertEquals( -40, clipboard.getOffsetX() );
+        assertEquals( expected.getVolume(), clipboard.getVolume() );
+        for (int i = 0; i < clipboard.getVolume(); i++) {
+            assertEquals( expected.getPalette().getName( expected.getBlock( i ) ), clipboard.getPalette().getName( clipboard.getBlock( i ) ) );
+        }
+    }
+
+    @Test
+    public void asyncCaptureCopiesWholeColumnsPerTick() throws Exception {
+        // Columns of 160 blocks height: the first tick copies two of them and overruns its budget
+        // with the second one instead of splitting it
+        for (int x : new int[]{ 0, 16, 32 }) {
+            world.setBlockName( x, 0, 0, "Stone" );
+            world.setBlockName( x, 150, 0, "Stone" );
+        }
+        AtomicReference<Clipboard> result = new AtomicReference<>();
+        manager.captureAsync( world, new Cuboid( "world", 0, 0, 0, 47, 159, 15 ), 0, 0, 0, result::set );
+        scheduler.tick();
+
+        for (int x : new int[]{ 0, 16, 32 }) {
+            world.setBlockName( x, 0, 0, "Dirt" );
+            world.setBlockName( x, 150, 0, "Dirt" );
+        }
+        scheduler.runUntilIdle( 10000 );
+
+        Clipboard clipboard = result.get();
+        for (int x : new int[]{ 0, 16 }) {
+            assertEquals( "Stone", clipboard.getPalette().getName( clipboard.getBlock( x, 0, 0 ) ) );
+            assertEquals( "Stone", clipboard.getPalette().getName( clipboard.getBlock( x, 150, 0 ) ) );
+        }
+        assertEquals( "Dirt", clipboard.getPalette().getName( clipboard.getBlock( 32, 0, 0 ) ) );
+        assertEquals( "Dirt", clipboard.getPalette().getName( clipboard.getBlock( 32, 150, 0 ) ) );
+    }
+
+    @Test
+    public void pasteOnlyRequestedRegion() throws Exception {
+        assertTrue( manager.save( "floor", manager.capture( world, new Cuboid( "world", 0, 10, 0, 19, 11, 19 ), 0, 10, 0 ) ) );
+
+        AtomicInteger done = new AtomicInteger();
+        manager.paste( world, 200, 10, 0, "floor", new Region( 203, 10, 17, 218, 10, 40 ), success -> {
+            assertTrue( success );
+            done.incrementAndGet();
+        } );
+        scheduler.runUntilIdle( 10000 );
+
+        assertEquals( 1, done.get() );
+        for (int x = 0; x < 20; x++) {
+            for (int z = 0; z < 20; z++) {
+                boolean inside = x >= 3 && x <= 18 && z >= 17;
+                assertEquals( inside ? "Stone" : "Air", world.getBlockName( 200 + x, 10, z ) );
+                assertEquals( "Air", world.getBlockName( 200 + x, 11, z ) );
+            }
+        }
+
+        Clipboard district = manager.getClipboardFromFile( "floor", new Region( 16, 1, 16, 100, 1, 100 ) );
+        assertEquals( 4 * 4, district.getVolume() );
+        assertEquals( 16, district.getOffsetX() );
+        assertEquals( world.getBlockName( 17, 11, 18 ), district.getPalette().getName( district.getBlock( 1, 0, 2 ) ) );
+        assertNull( manager.getClipboardFromFile( "floor", new Region( 20, 0, 0, 30, 0, 0 ) ) );
+    }
+
+    @Test
+    public void resumeContinuesAtCheckpoint() throws Exception {
+        Clipboard clipboard = new Clipboard( 64, 16, 64, 0, 0, 0 );
+        int stone = clipboard.getPalette().getOrAdd( "Stone" );
+        for (int i = 0; i < clipboard.getVolume(); i++) {
+            clipboard.setBlock( i, stone );
+        }
+        assertTrue( manager.save( "big", clipboard ) );
+
+        long before = world.getWrites();
+        manager.paste( world, 0, 100, 0, "big", success -> fail( "job should have been interrupted" ) );
+        scheduler.awaitAsync( 10000 );
+        scheduler.tick();
+        PasteJob job = manager.getPlacementEngine().getJobs().get( 0 );
+        long cursor = job.getCursor();
+        long placed = world.getWrites() - before;
+        assertTrue( cursor > 0 && placed > 0 && placed < clipboard.getVolume() );
+        manager.shutdown();
+
+        // Simulate a restart: the old scheduler never runs again
+        ManualTickScheduler restarted = new ManualTickScheduler( 2 );
+        try {
+            SchematicManager resumed = new SchematicManager( dataFolder, restarted );
+            List<JobCheckpoint> unfinished = resumed.getUnfinishedJobs();
+            assertEquals( 1, unfinished.size() );
+            assertEquals( cursor, unfinished.get( 0 ).getCursor() );
+            assertEquals( placed, unfinished.get( 0 ).getWritten() );
+
+            // A claimed job is hidden right away and can not be claimed a second time
+            assertTrue( resumed.claim( unfinished.get( 0 ) ) );
+            assertTrue( resumed.getUnfinishedJobs().isEmpty() );
+            assertFalse( resumed.claim( unfinished.get( 0 ) ) );
+
+            // Its world is not loaded: the resume fails and gives the claim back
+            AtomicInteger failed = new AtomicInteger();
+            resumed.resume( unfinished.get( 0 ), (WorldAccess) null, success -> {
+                assertFalse( success );
+                failed.incrementAndGet();
+            } );
+            assertEquals( 1, failed.get() );
+            assertEquals( 1, resumed.getUnfinishedJobs().size() );
+            assertTrue( resumed.claim( unfinished.get( 0 ) ) );
+
+            long writes = world.getWrites();
+            AtomicInteger done = new AtomicInteger();
+            resumed.resume( unfinished.get( 0 ), world, success -> {
+                assertTrue( success );
+                done.incrementAndGet();
+            } );
+            restarted.runUntilIdle( 10000 );
+
+            assertEquals( 1, done.get() );
+            assertEquals( clipboard.getVolume() - placed, world.getWrites() - writes );
+            assertEquals( "Stone", world.getBlockName( 63, 115, 63 ) );
+            assertTrue( resumed.getUnfinishedJobs().isEmpty() );
+        } finally {
+            restarted.shutdown();
+        }
+    }
+
+    @Test
+    public void loadedClipboardsAreSharedUntilEdited() {
+        assertTrue( manager.save( "floor", manager.capture( world, new Cuboid( "world", 0, 10, 0, 19, 10, 19 ), 0, 10, 0 ) ) );
+
+        ClipboardHolder first = manager.load( "floor" );
+        ClipboardHolder second = manager.load( "floor" );
+        assertSame( first.get(), second.get() );
+        assertTrue( first.get().isFrozen() );
+        assertEquals( 1, manager.getClipboardCache().size() );
+
+        Clipboard edited = second.edit();
+        assertNotSame( first.get(), edited );
+        edited.setBlock( 0, 0, 0, "Dirt" );
+        assertEquals( "Stone", first.get().getPalette().getName( first.get().getBlock( 0, 0, 0 ) ) );
+
+        first.release();
+        assertEquals( 0, manager.getClipboardCache().size() );
+        second.release();
+    }
+
+    @Test
+    public void analyzeCountsSelection() throws Exception {
+        AtomicReference<Map<String, Long>> result = new AtomicReference<>();
+        manager.analyze( world, new Cuboid( "world", 0, 10, 0, 19, 11, 19 ), result::set );
+        scheduler.runUntilIdle( 10000 );
+
+        Map<String, Long> counts = result.get();
+        assertEquals( Long.valueOf( 400 ), counts.get( "Stone" ) );
+        assertEquals( 800L, counts.values().stream().mapToLong( Long::longValue ).sum() );
+        assertEquals( "Stone", counts.keySet().iterator().next() );
+
+        // A selection larger than one tick's copy budget is spread over several ticks
+        AtomicReference<Map<String, Long>> large = new AtomicReference<>();
+        manager.analyze( world, new Cuboid( "world", 0, 0, 0, 47, 255, 15 ), large::set );
+        scheduler.tick();
+        assertNull( large.get() );
+        scheduler.runUntilIdle( 10000 );
+        assertEquals( 48L * 256 * 16, large.get().values().stream().mapToLong( Long::longValue ).sum() );
+    }
+
+    @Test
+    public void replaceOnlyWritesMatches() throws Exception {
+        long writes = world.getWrites();
+        AtomicLong count = new AtomicLong( -1 );
+        manager.replace( world, new Cuboid( "world", 0, 10, 0, 19, 11, 19 ), "Dirt", "Glass", matches -> {
+            count.set( matches );
+            // Changed after the area was copied, so it must not be replaced any more
+            world.setBlockName( 0, 11, 0, "Wool" );
+        }, success -> assertTrue( success ) );
+        scheduler.runUntilIdle( 10000 );
+
+        assertEquals( 133, count.get() );
+        assertEquals( writes + count.get() - 1, world.getWrites() );
+        for (int x = 0; x < 20; x++) {
+            for (int z = 0; z < 20; z++) {
+                assertEquals( "Stone", world.getBlockName( x, 10, z ) );
+                String expected = x == 0 && z == 0 ? "Wool" : ( x + z ) % 3 == 0 ? "Glass" : "Air";
+                assertEquals( expected, world.getBlockName( x, 11, z ) );
+            }
+        }
+
+        AtomicReference<Boolean> result = new AtomicReference<>();
+        manager.replace( world, new Cuboid( "world", 0, 10, 0, 19, 11, 19 ), "Dirt", "Glass", count::set, result::set );
+        scheduler.runUntilIdle( 10000 );
+        assertEquals( 0, count.get() );
+        assertFalse( result.get() );
+
+        result.set( null );
+        manager.replace( world, new Cuboid( "world", 0, 10, 0, 19, 11, 19 ), "Glass", "Glass", count::set, result::set );
+        assertFalse( result.get() );
+    }
+
+    @Test
+    public void maskedPasteSkipsOccupiedAndUnchangedBlocks() throws Exception {
+        assertTrue( manager.save( "layer", manager.capture( world, new Cuboid( "world", 0, 10, 0, 19, 11, 19 ), 0, 10, 0 ) ) );
+
+        // Pasting onto the original only has to write what differs, which is nothing
+        long writes = world.getWrites();
+        manager.paste( world, 0, 10, 0, "layer", success -> assertTrue( success ) );
+        scheduler.runUntilIdle( 10000 );
+        assertEquals( writes, world.getWrites() );
+
+        for (int z = 0; z < 20; z++) {
+            world.setBlockName( 100, 11, z, "Glass" );
+        }
+        PasteMask mask = new PasteMask( true, Collections.singleton( "Stone" ) );
+        manager.paste( world, 100, 10, 0, "layer", null, mask, success -> assertTrue( success ) );
+        scheduler.runUntilIdle( 10000 );
+
+        for (int x = 0; x < 20; x++) {
+            for (int z = 0; z < 20; z++) {
+                assertEquals( "Air", world.getBlockName( 100 + x, 10, z ) );
+                String expected = x == 0 ? "Glass" : ( x + z ) % 3 == 0 ? "Dirt" : "Air";
+                assertEquals( expected, world.getBlockName( 100 + x, 11, z ) );
+            }
+        }
+    }
+
+    @Test
+    public void watcherPicksUpReplacedFiles() throws Exception {
+        assertTrue( manager.save( "tower", manager.capture( world, new Cuboid( "world", 0, 10, 0, 3, 11, 3 ), 0, 10, 0 ) ) );
+        ClipboardHolder old = manager.load( "tower" );
+        assertEquals( 32, manager.estimateLoad( "tower" ).getVolume() );
+        manager.startWatching( true );
+
+        try {
+            // Written the way rsync does it: into a hidden file which is renamed when complete
+            File folder = new File( dataFolder, "schematics" );
+            File temp = new File( folder, ".tower.schematic.a1B2c3" );
+            TiledSchematicWriter.write( manager.capture( world, new Cuboid( "world", 0, 10, 0, 7, 11, 7 ), 0, 10, 0 ), temp );
+            Files.move( temp.toPath(), new File( folder, "tower.schematic" ).toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+
+            long deadline = System.currentTimeMillis() + 5000;
+            while ( manager.getCatalog().get( "tower" ).getCost().getVolume() != 128 && System.currentTimeMillis() < deadline ) {
+                Thread.sleep( 20 );
+            }
+            assertEquals( 128, manager.getCatalog().get( "tower" ).getCost().getVolume() );
+            assertEquals( 1, manager.getCatalog().getAll().size() );
+
+            // The old version was resident, so the new one is decoded in the background
+            scheduler.awaitAsync( 5000 );
+            assertEquals( 1, manager.getClipboardCache().size() );
+            ClipboardHolder current = manager.load( "tower" );
+            assertEquals( 128, current.get().getVolume() );
+            assertEquals( 32, old.get().getVolume() );
+            current.release();
+            old.release();
+            assertEquals( 1, manager.getClipboardCache().size() );
+        } finally {
+            manager.shutdown();
+        }
+    }
+
+    @Test
+    public void mergeStoredSchematics() throws Exception {
+        // A 4x1x4 stone plate and a 2x2x2 cube of glass with an air layer at its bottom
+        Clipboard plate = new Clipboard( 4, 1, 4, 0, 0, 0 );
+        int stone = plate.getPalette().getOrAdd( "Stone" );
+        for (int i = 0; i < plate.getVolume(); i++) {
+            plate.setBlock( i, stone );
+        }
+        Clipboard cube = new Clipboard( 2, 2, 2, 0, 0, 0 );
+        for (int x = 0; x < 2; x++) {
+            for (int z = 0; z < 2; z++) {
+                cube.setBlock( x, 0, z, "Air" );
+                cube.setBlock( x, 1, z, "Glass" );
+            }
+        }
+        assertTrue( manager.save( "plate", plate ) );
+        assertTrue( manager.save( "cube", cube ) );
+
+        AtomicInteger done = new AtomicInteger();
+        for (ClipboardMerge.Operation operation : ClipboardMerge.Operation.values()) {
+            manager.merge( "plate", "cube", 3, -1, 3, operation, operation.name().toLowerCase(), success -> {
+                assertTrue( success );
+                done.incrementAndGet();
+            } );
+        }
+        scheduler.awaitAsync( 10000 );
+        assertEquals( 4, done.get() );
+
+        // The cube's glass layer covers the plate's corner at 3,0,3 and sticks out by one block
+        Clipboard union = manager.getClipboardFromFile( "union" );
+        assertEquals( new Region( 0, -1, 0, 4, 0, 4 ), union.getRegion() );
+        assertEquals( "Stone", nameAt( union, 3, 0, 3 ) );
+        assertEquals( "Glass", nameAt( union, 4, 0, 4 ) );
+        assertEquals( "Air", nameAt( union, 3, -1, 3 ) );
+        assertNull( nameAt( union, 0, -1, 0 ) );
+
+        Clipboard overlay = manager.getClipboardFromFile( "overlay" );
+        assertEquals( "Glass", nameAt( overlay, 3, 0, 3 ) );
+        assertEquals( "Stone", nameAt( overlay, 2, 0, 2 ) );
+
+        Clipboard subtract = manager.getClipboardFromFile( "subtract" );
+        assertEquals( plate.getRegion(), subtract.getRegion() );
+        assertNull( nameAt( subtract, 3, 0, 3 ) );
+        assertEquals( "Stone", nameAt( subtract, 3, 0, 2 ) );
+
+        Clipboard intersect = manager.getClipboardFromFile( "intersect" );
+        assertEquals( new Region( 3, 0, 3, 3, 0, 3 ), intersect.getRegion() );
+        assertEquals( "Stone", nameAt( intersect, 3, 0, 3 ) );
+    }
+
+    private static String nameAt( Clipboard clipboard, int x, int y, int z ) {
+        int id = clipboard.getBlock( x - clipboard.getOffsetX(), y - clipboard.getOffsetY(), z - clipboard.getOffsetZ() );
+        return id == Clipboard.EMPTY ? null : clipboard.getPalette().getName( id );
+    }
+
+    @Test
+    public void supportBlocksArePlacedFirst() throws Exception {
+        Clipboard clipboard = new Clipboard( 1, 3, 1, 0, 0, 0 );
+        clipboard.setBlock( 0, 0, 0, "StationaryWater" );
+        clipboard.setBlock( 0, 1, 0, "Torch" );
+        clipboard.setBlock( 0, 2, 0, "Stone" );
+        assertTrue( manager.save( "tower", clipboard ) );
+        assertNotNull( manager.getClipboardFromFile( "tower" ).getPlan() );
+
+        List<String> order = new ArrayList<>();
+        InMemoryWorld recording = new InMemoryWorld( "world" ) {
+            @Override
+            public void setBlock( int x, int y, int z, Class<? extends Block> type ) {
+                super.setBlock( x, y, z, type );
+                order.add( type.getSimpleName() );
+            }
+        };
+        manager.paste( recording, 0, 10, 0, "tower", success -> assertTrue( success ) );
+        scheduler.runUntilIdle( 10000 );
+        assertEquals( Arrays.asList( "BlockStone", "BlockTorch", "BlockStationaryWater" ), order );
+
+        order.clear();
+        manager.destroy( recording, 0, 10, 0, "tower", success -> assertTrue( success ) );
+        scheduler.runUntilIdle( 10000 );
+        assertEquals( 3, order.size() );
+        assertEquals( "Air", recording.getBlockName( 0, 12, 0 ) );
+    }
+
+    @Test
+    public void columnsAreFinishedBeforeTheNextOne() throws Exception {
+        Clipboard clipboard = new Clipboard( 32, 2, 1, 0, 0, 0 );
+        for (int x = 0; x < 32; x++) {
+            clipboard.setBlock( x, 0, 0, "Stone" );
+            clipboard.setBlock( x, 1, 0, "Torch" );
+        }
+
+        List<String> order = new ArrayList<>();
+        InMemoryWorld recording = new InMemoryWorld( "world" ) {
+            @Override
+            public void setBlock( int x, int y, int z, Class<? extends Block> type ) {
+                super.setBlock( x, y, z, type );
+                order.add( ( x >> 4 ) + ":" + type.getSimpleName() );
+            }
+        };
+        manager.getPlacementEngine().submit( manager.createJob( recording, 0, 10, 0, clipboard, false, success -> assertTrue( success ) ) );
+        scheduler.runUntilIdle( 10000 );
+
+        // Both phases of the first chunk are done before the second chunk is touched
+        assertEquals( 64, order.size() );
+        for (int i = 0; i < 64; i++) {
+            assertEquals( ( i / 32 ) + ":" + ( i % 32 < 16 ? "BlockStone" : "BlockTorch" ), order.get( i ) );
+        }
+    }
+
+    @Test
+    public void destroyReplacesWithAir() throws Exception {
+        assertTrue( manager.save( "floor", manager.capture( world, new Cuboid( "world", 0, 10, 0, 19, 10, 19 ), 0, 10, 0 ) ) );
+
+        manager.destroy( world, 0, 10, 0, "floor", success -> assertTrue( success ) );
+        scheduler.runUntilIdle( 10000 );
+
+        for (int x = 0; x < 20; x++) {
+            for (int z = 0; z < 20; z++) {
+                assertEquals( "Air", world.getBlockName( x, 10, z ) );
+            }
+        }
+    }
+
+    @Test
+    public void missingSchematicFails() throws Exception {
+        AtomicInteger failed = new AtomicInteger();
+        manager.paste( world, 0, 0, 0, "missing", success -> {
+            if ( !success ) {
+                failed.incrementAndGet();
+            }
+        } );
+        scheduler.runUntilIdle( 10000 );
+        assertEquals( 1, failed.get() );
+    }
+
+}
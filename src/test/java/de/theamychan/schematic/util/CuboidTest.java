@@ -0,0 +1,128 @@
+package de.theamychan.schematic.util;
+
+import de.theamychan.schematic.headless.InMemoryWorld;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.Spliterator;
+
+import static org.junit.Assert.*;
+
+public class CuboidTest {
+
+    @Test
+    public void cornersAreNormalized() {
+        Cuboid cuboid = new Cuboid( "world", 10, 70, -3, -5, 60, 12 );
+        assertEquals( -5, cuboid.getMinX() );
+        assertEquals( 10, cuboid.getMaxX() );
+        assertEquals( 60, cuboid.getMinY() );
+        assertEquals( 70, cuboid.getMaxY() );
+        assertEquals( -3, cuboid.getMinZ() );
+        assertEquals( 12, cuboid.getMaxZ() );
+        assertEquals( 16 * 11 * 16, cuboid.getVolume() );
+    }
+
+    @Test
+    public void containsAndIntersects() {
+        Cuboid cuboid = new Cuboid( "world", 0, 0, 0, 15, 15, 15 );
+        assertTrue( cuboid.contains( 0, 0, 0 ) );
+        assertTrue( cuboid.contains( 15, 15, 15 ) );
+        assertFalse( cuboid.contains( 16, 0, 0 ) );
+
+        assertTrue( cuboid.intersects( new Cuboid( "world", 15, 15, 15, 30, 30, 30 ) ) );
+        assertFalse( cuboid.intersects( new Cuboid( "world", 16, 0, 0, 30, 15, 15 ) ) );
+        assertFalse( cuboid.intersects( new Cuboid( "other", 0, 0, 0, 15, 15, 15 ) ) );
+    }
+
+    @Test
+    public void contractRemovesSurroundingAir() {
+        InMemoryWorld world = new InMemoryWorld( "world" );
+        world.setBlockName( 14, 5, -3, "Stone" );
+        world.setBlockName( 20, 9, 2, "Dirt" );
+
+        Cuboid contracted = new Cuboid( "world", -10, 0, -20, 40, 30, 20 ).contract( world );
+        assertEquals( new Cuboid( "world", 14, 5, -3, 20, 9, 2 ).getRegion(), contracted.getRegion() );
+    }
+
+    @Test
+    public void regionIntersectionUnionAndIndex() {
+        Region a = new Region( 0, 0, 0, 15, 15, 15 );
+        Region b = new Region( 10, -5, 8, 30, 4, 20 );
+        assertEquals( new Region( 10, 0, 8, 15, 4, 15 ), a.intersection( b ) );
+        assertEquals( new Region( 0, -5, 0, 30, 15, 20 ), a.union( b ) );
+        assertNull( a.intersection( new Region( 16, 0, 0, 20, 0, 0 ) ) );
+        assertSame( a, a.union( new Region( 1, 1, 1, 2, 2, 2 ) ) );
+
+        long index = 0;
+        for (int y = b.getMinY(); y <= b.getMaxY(); y++) {
+            for (int z = b.getMinZ(); z <= b.getMaxZ(); z++) {
+                for (int x = b.getMinX(); x <= b.getMaxX(); x++, index++) {
+                    assertEquals( index, b.getIndex( x, y, z ) );
+                    assertEquals( x, b.getX( index ) );
+                    assertEquals( y, b.getY( index ) );
+                    assertEquals( z, b.getZ( index ) );
+                }
+            }
+        }
+        assertEquals( b.getVolume(), index );
+    }
+
+    @Test
+    public void regionOutlineFollowsTheEdges() {
+        Region region = new Region( 0, 0, 0, 1, 2, 3 );
+        Set<Long> points = new HashSet<>();
+        for (long point : region.getOutline( 1000 )) {
+            assertTrue( points.add( point ) );
+            int x = BlockPositions.unpackX( point ), y = BlockPositions.unpackY( point ), z = BlockPositions.unpackZ( point );
+            int faces = ( x == 0 || x == 2 ? 1 : 0 ) + ( y == 0 || y == 3 ? 1 : 0 ) + ( z == 0 || z == 4 ? 1 : 0 );
+            assertTrue( faces >= 2 );
+        }
+        assertEquals( 4 * ( 2 + 3 + 4 ) - 4, points.size() );
+        assertTrue( points.contains( BlockPositions.pack( 2, 3, 4 ) ) );
+
+        assertTrue( new Region( 0, 0, 0, 999, 99, 999 ).getOutline( 100 ).length <= 100 + 12 );
+    }
+
+    @Test
+    public void regionIndexFindsOverlaps() {
+        RegionIndex<String> index = new RegionIndex<>();
+        index.add( new Cuboid( "world", 0, 0, 0, 40, 10, 40 ), "a" );
+        index.add( new Cuboid( "world", 100, 0, 100, 120, 10, 120 ), "b" );
+        index.add( new Cuboid( "world", 30, 0, 30, 110, 10, 110 ), "c" );
+
+        assertEquals( Arrays.asList( "a", "c" ), index.query( new Cuboid( "world", 35, 5, 35, 36, 5, 36 ) ) );
+        assertEquals( "b", index.query( "world", 115, 5, 115 ).get( 0 ) );
+
+        // Adding a value again moves it behind the others
+        index.add( new Cuboid( "world", 0, 0, 0, 40, 10, 40 ), "a" );
+        assertEquals( Arrays.asList( "c", "a" ), index.query( "world", 35, 5, 35 ) );
+        assertTrue( index.query( "world", 50, 11, 50 ).isEmpty() );
+
+        index.remove( "c" );
+        assertEquals( 1, index.query( new Cuboid( "world", 35, 5, 35, 36, 5, 36 ) ).size() );
+    }
+
+    @Test
+    public void spliteratorSplitsOnChunkBorders() {
+        Cuboid cuboid = new Cuboid( "world", -20, 0, -9, 37, 40, 5 );
+        Spliterator.OfLong first = cuboid.positionSpliterator();
+        Spliterator.OfLong second = first.trySplit();
+        assertNotNull( second );
+        assertEquals( cuboid.getVolume(), first.estimateSize() + second.estimateSize() );
+
+        Set<Integer> secondChunks = new HashSet<>();
+        second.forEachRemaining( (long position) -> secondChunks.add( BlockPositions.unpackX( position ) >> 4 ) );
+        first.forEachRemaining( (long position) -> assertFalse( secondChunks.contains( BlockPositions.unpackX( position ) >> 4 ) ) );
+
+        assertEquals( cuboid.getVolume(), cuboid.positions().parallel().distinct().count() );
+        assertEquals( cuboid.getVolume(), cuboid.positions().parallel().filter( position ->
+                cuboid.contains( BlockPositions.unpackX( position ), BlockPositions.unpackY( position ), BlockPositions.unpackZ( position ) ) ).count() );
+
+        long[] visited = new long[1];
+        cuboid.forEachPosition( ( x, y, z ) -> visited[0]++ );
+        assertEquals( cuboid.getVolume(), visited[0] );
+    }
+
+}